@@ -0,0 +1,89 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt.benchmark;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonValue;
+import io.nats.jwt.AuthorizationRequest;
+import io.nats.jwt.Base64Url;
+import io.nats.jwt.Claim;
+import io.nats.jwt.ClaimIssuer;
+import io.nats.jwt.Interner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.jwt.benchmark.BenchmarkData.*;
+
+/**
+ * The server side of auth callout, an mTLS authorization request with its certificate chain.
+ * Parsing is what a callout service does for every connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AuthorizationRequestBenchmark {
+
+    private AuthorizationRequest request;
+    private ClaimIssuer issuer;
+    private String body;
+    private JsonValue requestJv;
+    private Interner interner;
+    private byte[] bodyBytes;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws GeneralSecurityException, IOException {
+        request = mtlsRequest();
+        issuer = requestIssuer(request);
+        body = body(issuer.issueJwt(SIGNING_KEY));
+        requestJv = BenchmarkData.parse(request.toJson());
+        interner = new Interner(Interner.DEFAULT_CAPACITY);
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        encoded = new byte[Base64Url.encodedLength(bodyBytes.length)];
+    }
+
+    @Benchmark
+    public String issueJwt() throws GeneralSecurityException, IOException {
+        return issuer.issueJwt(SIGNING_KEY);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return request.toJson();
+    }
+
+    @Benchmark
+    public Claim parse() throws JsonParseException {
+        return new Claim(body);
+    }
+
+    @Benchmark
+    public Claim parseInterned() throws JsonParseException {
+        return new Claim(body, interner);
+    }
+
+    @Benchmark
+    public int base64Url() {
+        return Base64Url.encode(bodyBytes, 0, bodyBytes.length, encoded, 0);
+    }
+
+    @Benchmark
+    public AuthorizationRequest fromJsonValue() {
+        return new AuthorizationRequest(requestJv);
+    }
+}
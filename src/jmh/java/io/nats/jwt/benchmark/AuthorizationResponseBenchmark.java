@@ -0,0 +1,73 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt.benchmark;
+
+import io.nats.json.JsonParseException;
+import io.nats.jwt.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.jwt.benchmark.BenchmarkData.*;
+
+/**
+ * The reply side of auth callout: a user JWT wrapped in an authorization response JWT.
+ * callout compares the usual two step issue with {@link CalloutResponder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AuthorizationResponseBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+
+    private ClaimIssuer userIssuer;
+    private AuthorizationResponse response;
+    private ClaimIssuer responseIssuer;
+    private String body;
+
+    @Setup
+    public void setup() throws GeneralSecurityException, IOException {
+        userIssuer = userIssuer(user(size));
+        String userJwt = userIssuer.issueJwt(SIGNING_KEY);
+        response = new AuthorizationResponse().jwt(userJwt);
+        responseIssuer = responseIssuer(response);
+        body = body(responseIssuer.issueJwt(SIGNING_KEY));
+    }
+
+    @Benchmark
+    public String toJson() {
+        return response.toJson();
+    }
+
+    @Benchmark
+    public Claim parse() throws JsonParseException {
+        return new Claim(body);
+    }
+
+    @Benchmark
+    public byte[] callout() throws GeneralSecurityException, IOException {
+        String userJwt = userIssuer.issueJwt(SIGNING_KEY);
+        return responseIssuer(new AuthorizationResponse().jwt(userJwt)).issueJwt(SIGNING_KEY).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] calloutFused() throws GeneralSecurityException, IOException {
+        return CalloutResponder.respond(userIssuer, SIGNING_KEY, responseIssuer, SIGNING_KEY);
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package io.nats.jwt.benchmark;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonParser;
+import io.nats.json.JsonValue;
+import io.nats.jwt.*;
+import io.nats.nkey.NKey;
+import io.nats.nkey.NKeyProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static io.nats.nkey.NKeyConstants.NKEY_PROVIDER_CLASS_SYSTEM_PROPERTY;
+
+/**
+ * Fixed keys and claims shared by the benchmarks, sized like real deployments.
+ */
+public abstract class BenchmarkData {
+    private BenchmarkData() {} /* ensures cannot be constructed */
+
+    public static final long IAT = 1633043378L;
+    public static final String ACCOUNT_ID = "ACXZRALIL22WRETDRXYKOYDB7XC3E7MBSVUSUMFACO6OM5VPRNFMOOO6";
+
+    public static final NKeyProvider PROVIDER;
+    public static final NKey USER_KEY;
+    public static final NKey SIGNING_KEY;
+    public static final String USER_KEY_PUB;
+    public static final String SIGNING_KEY_PUB;
+
+    static {
+        NKeyProvider.clearInstance();
+        System.setProperty(NKEY_PROVIDER_CLASS_SYSTEM_PROPERTY, "io.nats.nkey.LtsNKeyProvider");
+        PROVIDER = NKeyProvider.getProvider();
+        USER_KEY = PROVIDER.fromSeed("SUAGL3KX4ZBBD53BNNLSHGAAGCMXSEYZ6NTYUBUCPZQGHYNK3ZRQBUDPRY".toCharArray());
+        SIGNING_KEY = PROVIDER.fromSeed("SAANJIBNEKGCRUWJCPIWUXFBFJLR36FJTFKGBGKAT7AQXH2LVFNQWZJMQU".toCharArray());
+        try {
+            USER_KEY_PUB = new String(USER_KEY.getPublicKey());
+            SIGNING_KEY_PUB = new String(SIGNING_KEY.getPublicKey());
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A user with a couple of tags and a handful of permissions, the common case
+     * @return the user claim
+     */
+    public static UserClaim smallUser() {
+        return new UserClaim(ACCOUNT_ID)
+            .pub(new Permission().allow("orders.>", "_INBOX.>"))
+            .sub(new Permission().allow("orders.*.status", "_INBOX.>"))
+            .tags("team:checkout", "env:prod");
+    }
+
+    /**
+     * A user with 1,000 publish and 1,000 subscribe subjects
+     * @return the user claim
+     */
+    public static UserClaim largeUser() {
+        List<String> pub = new ArrayList<>();
+        List<String> sub = new ArrayList<>();
+        for (int x = 0; x < 1000; x++) {
+            pub.add("tenant." + x + ".orders.>");
+            sub.add("tenant." + x + ".events.*");
+        }
+        return new UserClaim(ACCOUNT_ID)
+            .pub(new Permission().allow(pub).deny("tenant.*.admin.>"))
+            .sub(new Permission().allow(sub))
+            .tags("team:platform", "env:prod")
+            .subs(10_000).data(1024 * 1024).payload(64 * 1024);
+    }
+
+    public static UserClaim user(String size) {
+        return "large".equals(size) ? largeUser() : smallUser();
+    }
+
+    public static ClaimIssuer userIssuer(UserClaim userClaim) {
+        return new ClaimIssuer().aud("APP").iat(IAT).iss(SIGNING_KEY_PUB)
+            .name("bench-user").sub(USER_KEY_PUB).expiresIn(Duration.ofHours(1)).nats(userClaim);
+    }
+
+    /**
+     * An auth callout request from a client that connected with mTLS,
+     * carrying the client certificate and one verified chain
+     * @return the request
+     */
+    public static AuthorizationRequest mtlsRequest() {
+        String json = "{"
+            + "\"server_id\":{\"name\":\"nats-0\",\"host\":\"10.0.0.1\",\"id\":\"NDJWE4SOUJOJT2TY5Y2YQEOAHGAK5VIGXTGKWJSFHVCII4ITI3LBHBUV\",\"version\":\"2.10.22\",\"cluster\":\"prod\"},"
+            + "\"user_nkey\":\"" + USER_KEY_PUB + "\","
+            + "\"client_info\":{\"host\":\"192.168.1.20\",\"id\":42,\"user\":\"bench-user\",\"name\":\"orders-service\",\"tags\":[\"team:checkout\",\"env:prod\"],\"kind\":\"Client\",\"type\":\"nats\",\"nonce\":\"dGhpcyBpcyBhIG5vbmNl\"},"
+            + "\"connect_opts\":{\"lang\":\"java\",\"version\":\"2.20.5\",\"protocol\":1},"
+            + "\"client_tls\":{\"version\":\"1.3\",\"cipher\":\"TLS_AES_128_GCM_SHA256\","
+            + "\"certs\":[" + quoted(pem()) + "],"
+            + "\"verified_chains\":[[" + quoted(pem()) + "," + quoted(pem()) + "]]},"
+            + "\"request_nonce\":\"dGhpcyBpcyBhbm90aGVyIG5vbmNl\","
+            + "\"type\":\"authorization_request\",\"version\":2}";
+        try {
+            return new AuthorizationRequest(JsonParser.parse(json));
+        }
+        catch (JsonParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ClaimIssuer requestIssuer(AuthorizationRequest request) {
+        return new ClaimIssuer().aud("nats-authorization-request").iat(IAT)
+            .iss("NDJWE4SOUJOJT2TY5Y2YQEOAHGAK5VIGXTGKWJSFHVCII4ITI3LBHBUV").sub(ACCOUNT_ID).nats(request);
+    }
+
+    public static ClaimIssuer responseIssuer(AuthorizationResponse response) {
+        return new ClaimIssuer().aud("NDJWE4SOUJOJT2TY5Y2YQEOAHGAK5VIGXTGKWJSFHVCII4ITI3LBHBUV").iat(IAT)
+            .iss(SIGNING_KEY_PUB).sub(USER_KEY_PUB).nats(response);
+    }
+
+    public static String body(String jwt) {
+        return JwtUtils.getClaimBody(jwt);
+    }
+
+    /**
+     * The parts of a token a verifier works on
+     * @param jwt the token
+     * @return the signed bytes (header.body) and the decoded signature
+     */
+    public static byte[][] signedAndSignature(String jwt) {
+        int dot = jwt.lastIndexOf('.');
+        return new byte[][] {
+            jwt.substring(0, dot).getBytes(StandardCharsets.US_ASCII),
+            Base64.getUrlDecoder().decode(jwt.substring(dot + 1))
+        };
+    }
+
+    public static JsonValue parse(String json) {
+        try {
+            return JsonParser.parse(json);
+        }
+        catch (JsonParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // a 2048 bit RSA certificate is about 1.2k of base64 plus the pem lines
+    private static String pem() {
+        StringBuilder sb = new StringBuilder("-----BEGIN CERTIFICATE-----\n");
+        String line = "MIIFzzCCA7egAwIBAgIUTl3VZWhRLhM9XzhfzeAfHKGBgNgwDQYJKoZIhvcNAQEL";
+        for (int x = 0; x < 24; x++) {
+            sb.append(line).append('\n');
+        }
+        return sb.append("-----END CERTIFICATE-----\n").toString();
+    }
+
+    private static String quoted(String s) {
+        return "\"" + s.replace("\n", "\\n") + "\"";
+    }
+}
@@ -0,0 +1,97 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt.benchmark;
+
+import io.nats.json.JsonParseException;
+import io.nats.jwt.Claim;
+import io.nats.jwt.ClaimIssuer;
+import io.nats.jwt.ClaimRenewer;
+import io.nats.jwt.JwtUtils;
+import io.nats.jwt.UserClaim;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.jwt.benchmark.BenchmarkData.*;
+
+/**
+ * Issuing, serializing, parsing and verifying user JWTs.
+ * "small" is a typical user, "large" has 1,000 publish and 1,000 subscribe subjects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserClaimBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+
+    private UserClaim userClaim;
+    private ClaimIssuer issuer;
+    private ClaimRenewer renewer;
+    private String jwt;
+    private String body;
+    private byte[] signed;
+    private byte[] signature;
+
+    @Setup
+    public void setup() throws GeneralSecurityException, IOException {
+        userClaim = user(size);
+        issuer = userIssuer(userClaim);
+        renewer = new ClaimRenewer(issuer);
+        jwt = issuer.issueJwt(SIGNING_KEY);
+        body = body(jwt);
+        byte[][] parts = signedAndSignature(jwt);
+        signed = parts[0];
+        signature = parts[1];
+    }
+
+    @Benchmark
+    public String issueJwt() throws GeneralSecurityException, IOException {
+        return issuer.issueJwt(SIGNING_KEY);
+    }
+
+    @Benchmark
+    public String renew() throws GeneralSecurityException, IOException {
+        return renewer.renew(SIGNING_KEY);
+    }
+
+    @Benchmark
+    public String issueUserJWT() throws GeneralSecurityException, IOException {
+        return JwtUtils.issueUserJWT(SIGNING_KEY, USER_KEY_PUB, "bench-user", Duration.ofHours(1), IAT, "APP", userClaim);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return userClaim.toJson();
+    }
+
+    @Benchmark
+    public Claim parse() throws JsonParseException {
+        return new Claim(body);
+    }
+
+    @Benchmark
+    public Claim decodeAndParse() throws JsonParseException {
+        return new Claim(JwtUtils.getClaimBody(jwt));
+    }
+
+    @Benchmark
+    public boolean verify() throws GeneralSecurityException, IOException {
+        return SIGNING_KEY.verify(signed, signature);
+    }
+}
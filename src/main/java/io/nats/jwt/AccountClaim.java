@@ -0,0 +1,388 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonParser;
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.*;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+import static io.nats.jwt.JwtUtils.ACCOUNT_CLAIM_TYPE;
+
+/**
+ * The nats section of an account JWT.
+ * <p>
+ * The limits and the small fields are read when the claim is constructed. The exports,
+ * imports, revocations and signing keys, which can run to thousands of entries, are kept as
+ * the parsed json until first used, and are then built once along with their indexes:
+ * a subject trie of the exports and a set of the signing keys. An account can therefore
+ * be loaded and inspected without paying for the sections that are never read.
+ * The sections carry fields this model does not hold, such as export revocations and signing key
+ * scopes, so their json is kept and written back as it came until they are replaced with a setter;
+ * until then the lists and maps read from them are unmodifiable. Fields of the account this model
+ * does not read at all, such as default_permissions or mappings, are kept and written back too.
+ * The revocations can be loaded into a {@link RevocationIndex} as is.
+ */
+public class AccountClaim extends GenericClaimFields<AccountClaim> {
+    public AccountLimits limits;                // Account/OperatorLimits
+    public String description;                  // Account/Info
+    public String infoUrl;                      // Account/Info
+
+    // the json of each section is kept until the section is replaced, it holds more than the model
+    private static final Set<String> MODELED = new HashSet<>(Arrays.asList("limits", "description", "info_url",
+        "imports", "exports", "revocations", "signing_keys", "tags", "type", "version"));
+    private final Map<String, JsonValue> unmodeled = new TreeMap<>();
+    private JsonValue importsJson;
+    private JsonValue exportsJson;
+    private JsonValue revocationsJson;
+    private JsonValue signingKeysJson;
+    private volatile List<Import> imports;
+    private volatile List<Export> exports;
+    private volatile Map<String, Long> revocations;
+    private volatile List<String> signingKeys;
+    private volatile Set<String> signingKeySet;
+    private volatile SubjectTrie<Export> exportTrie;
+
+    public AccountClaim() {
+        super(ACCOUNT_CLAIM_TYPE, 2);
+        limits = new AccountLimits();
+    }
+
+    public AccountClaim(JsonValue jv) {
+        super(jv, ACCOUNT_CLAIM_TYPE, 2);
+        limits = AccountLimits.optionalInstance(JsonValueUtils.readValue(jv, "limits"));
+        description = JsonValueUtils.readString(jv, "description");
+        infoUrl = JsonValueUtils.readString(jv, "info_url");
+        importsJson = JsonValueUtils.readValue(jv, "imports");
+        exportsJson = JsonValueUtils.readValue(jv, "exports");
+        revocationsJson = JsonValueUtils.readValue(jv, "revocations");
+        signingKeysJson = JsonValueUtils.readValue(jv, "signing_keys");
+        for (Map.Entry<String, JsonValue> e : jv.map.entrySet()) {
+            if (!MODELED.contains(e.getKey())) {
+                unmodeled.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    @Override
+    protected AccountClaim getThis() {
+        return this;
+    }
+
+    /**
+     * @return the imports, an empty list if none
+     */
+    public List<Import> getImports() {
+        List<Import> list = imports;
+        if (list == null) {
+            synchronized (this) {
+                if (imports == null) {
+                    imports = importsJson == null ? new ArrayList<>()
+                        : Collections.unmodifiableList(orEmpty(Import.optionalListOf(importsJson)));
+                }
+                list = imports;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the exports, an empty list if none
+     */
+    public List<Export> getExports() {
+        List<Export> list = exports;
+        if (list == null) {
+            synchronized (this) {
+                if (exports == null) {
+                    exports = exportsJson == null ? new ArrayList<>()
+                        : Collections.unmodifiableList(orEmpty(Export.optionalListOf(exportsJson)));
+                }
+                list = exports;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Find the exports whose subject, wildcards included, matches a subject
+     * @param subject a literal subject
+     * @return the matching exports, empty if none
+     */
+    public List<Export> findExports(String subject) {
+        SubjectTrie<Export> trie = exportTrie;
+        if (trie == null) {
+            List<Export> list = getExports();
+            synchronized (this) {
+                if (exportTrie == null) {
+                    SubjectTrie<Export> t = new SubjectTrie<>();
+                    for (Export e : list) {
+                        if (e.subject != null) {
+                            t.add(e.subject, e);
+                        }
+                    }
+                    exportTrie = t;
+                }
+                trie = exportTrie;
+            }
+        }
+        return trie.match(subject);
+    }
+
+    /**
+     * @return the revocations, a user public key or {@link RevocationIndex#ALL_USERS} mapped to its cutoff,
+     * an empty map if none
+     */
+    public Map<String, Long> getRevocations() {
+        Map<String, Long> map = revocations;
+        if (map == null) {
+            synchronized (this) {
+                if (revocations == null) {
+                    revocations = revocationsJson == null ? new HashMap<>()
+                        : Collections.unmodifiableMap(revocationsOf(revocationsJson));
+                }
+                map = revocations;
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Check a user against the revocations
+     * @param userKey the user public key
+     * @param iat the issued at of the user JWT
+     * @return true if the user, or all users, were revoked at or after the iat
+     */
+    public boolean isRevoked(String userKey, long iat) {
+        Map<String, Long> map = getRevocations();
+        Long cutoff = map.get(userKey);
+        if (cutoff != null && cutoff >= iat) {
+            return true;
+        }
+        Long all = map.get(RevocationIndex.ALL_USERS);
+        return all != null && all >= iat;
+    }
+
+    /**
+     * @return the signing keys, an empty list if none. Scoped keys are listed by their key.
+     */
+    public List<String> getSigningKeys() {
+        List<String> list = signingKeys;
+        if (list == null) {
+            synchronized (this) {
+                if (signingKeys == null) {
+                    signingKeys = signingKeysJson == null ? new ArrayList<>()
+                        : Collections.unmodifiableList(signingKeysOf(signingKeysJson));
+                }
+                list = signingKeys;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @param publicKey a public key
+     * @return true if it is one of the signing keys
+     */
+    public boolean isSigningKey(String publicKey) {
+        Set<String> set = signingKeySet;
+        if (set == null) {
+            set = new HashSet<>(getSigningKeys());
+            signingKeySet = set;
+        }
+        return set.contains(publicKey);
+    }
+
+    public synchronized AccountClaim imports(List<Import> imports) {
+        this.imports = imports;
+        importsJson = null;
+        return this;
+    }
+
+    public synchronized AccountClaim exports(List<Export> exports) {
+        this.exports = exports;
+        exportsJson = null;
+        exportTrie = null;
+        return this;
+    }
+
+    public synchronized AccountClaim revocations(Map<String, Long> revocations) {
+        this.revocations = revocations;
+        revocationsJson = null;
+        return this;
+    }
+
+    public synchronized AccountClaim signingKeys(List<String> signingKeys) {
+        this.signingKeys = signingKeys;
+        signingKeysJson = null;
+        signingKeySet = null;
+        return this;
+    }
+
+    public AccountClaim limits(AccountLimits limits) {
+        this.limits = limits;
+        return this;
+    }
+
+    public AccountClaim description(String description) {
+        this.description = description;
+        return this;
+    }
+
+    public AccountClaim infoUrl(String infoUrl) {
+        this.infoUrl = infoUrl;
+        return this;
+    }
+
+    @Override
+    @NonNull
+    public synchronized String toJson() {
+        StringBuilder sb = beginJson();
+        // sections not replaced are written back as they came
+        if (importsJson != null) {
+            JsonWriteUtils.addField(sb, "imports", importsJson);
+        }
+        else {
+            JsonWriteUtils.addJsons(sb, "imports", imports);
+        }
+        if (exportsJson != null) {
+            JsonWriteUtils.addField(sb, "exports", exportsJson);
+        }
+        else {
+            JsonWriteUtils.addJsons(sb, "exports", exports);
+        }
+        JsonWriteUtils.addField(sb, "limits", limits);
+        if (signingKeysJson != null) {
+            JsonWriteUtils.addField(sb, "signing_keys", signingKeysJson);
+        }
+        else {
+            JsonWriteUtils.addStrings(sb, "signing_keys", signingKeys);
+        }
+        if (revocationsJson != null) {
+            JsonWriteUtils.addField(sb, "revocations", revocationsJson);
+        }
+        else if (revocations != null && !revocations.isEmpty()) {
+            Map<String, JsonValue> map = new TreeMap<>();
+            for (Map.Entry<String, Long> e : revocations.entrySet()) {
+                map.put(e.getKey(), new JsonValue(e.getValue()));
+            }
+            JsonWriteUtils.addField(sb, "revocations", new JsonValue(map));
+        }
+        JsonWriteUtils.addField(sb, "description", description);
+        JsonWriteUtils.addField(sb, "info_url", infoUrl);
+        for (Map.Entry<String, JsonValue> e : unmodeled.entrySet()) {
+            JsonWriteUtils.addField(sb, e.getKey(), e.getValue());
+        }
+        baseJson(sb);
+        return endJson(sb).toString();
+    }
+
+    /**
+     * The full json of the claim with the keys of every object sorted, the same for claims
+     * with the same content whichever of their sections were read. Used for fingerprints.
+     */
+    String canonicalJson() {
+        try {
+            return sorted(JsonParser.parse(toJson())).toJson();
+        }
+        catch (JsonParseException e) {
+            throw new IllegalStateException("Account claim json can not be parsed.", e);
+        }
+    }
+
+    private static JsonValue sorted(JsonValue jv) {
+        if (jv.map != null) {
+            Map<String, JsonValue> map = new TreeMap<>();
+            for (Map.Entry<String, JsonValue> e : jv.map.entrySet()) {
+                map.put(e.getKey(), sorted(e.getValue()));
+            }
+            return new JsonValue(map);
+        }
+        if (jv.array != null) {
+            List<JsonValue> list = new ArrayList<>(jv.array.size());
+            for (JsonValue v : jv.array) {
+                list.add(sorted(v));
+            }
+            return new JsonValue(list);
+        }
+        return jv;
+    }
+
+    private static Map<String, Long> revocationsOf(JsonValue jv) {
+        Map<String, Long> m = new HashMap<>();
+        if (jv != null && jv.map != null) {
+            for (Map.Entry<String, JsonValue> e : jv.map.entrySet()) {
+                if (e.getValue().l != null) {
+                    m.put(e.getKey(), e.getValue().l);
+                }
+            }
+        }
+        return m;
+    }
+
+    private static List<String> signingKeysOf(JsonValue jv) {
+        List<String> keys = new ArrayList<>();
+        if (jv != null && jv.array != null) {
+            // each entry is either the key itself or a scope object with the key
+            for (JsonValue v : jv.array) {
+                String key = v.string == null ? JsonValueUtils.readString(v, "key") : v.string;
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? new ArrayList<>() : list;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        AccountClaim that = (AccountClaim) o;
+
+        if (!Objects.equals(limits, that.limits)) return false;
+        if (!Objects.equals(description, that.description)) return false;
+        if (!Objects.equals(infoUrl, that.infoUrl)) return false;
+        if (!getImports().equals(that.getImports())) return false;
+        if (!getExports().equals(that.getExports())) return false;
+        if (!getRevocations().equals(that.getRevocations())) return false;
+        if (!unmodeled.equals(that.unmodeled)) return false;
+        return getSigningKeys().equals(that.getSigningKeys());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (limits != null ? limits.hashCode() : 0);
+        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + (infoUrl != null ? infoUrl.hashCode() : 0);
+        result = 31 * result + getImports().hashCode();
+        result = 31 * result + getExports().hashCode();
+        result = 31 * result + getRevocations().hashCode();
+        result = 31 * result + getSigningKeys().hashCode();
+        result = 31 * result + unmodeled.hashCode();
+        return result;
+    }
+}
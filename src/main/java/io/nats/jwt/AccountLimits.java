@@ -0,0 +1,187 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+import static io.nats.jwt.JwtUtils.NO_LIMIT;
+
+public class AccountLimits implements JsonSerializable {
+    public long subs = NO_LIMIT;                // Account/OperatorLimits/NatsLimits
+    public long data = NO_LIMIT;                // Account/OperatorLimits/NatsLimits
+    public long payload = NO_LIMIT;             // Account/OperatorLimits/NatsLimits
+    public long imports = NO_LIMIT;             // Account/OperatorLimits/AccountLimits
+    public long exports = NO_LIMIT;             // Account/OperatorLimits/AccountLimits
+    public boolean wildcards = true;            // Account/OperatorLimits/AccountLimits, false when absent from json
+    public boolean disallowBearer;              // Account/OperatorLimits/AccountLimits
+    public long conn = NO_LIMIT;                // Account/OperatorLimits/AccountLimits
+    public long leaf = NO_LIMIT;                // Account/OperatorLimits/AccountLimits
+    public long memStorage;                     // Account/OperatorLimits/JetStreamLimits
+    public long diskStorage;                    // Account/OperatorLimits/JetStreamLimits
+    public long streams;                        // Account/OperatorLimits/JetStreamLimits
+    public long consumer;                       // Account/OperatorLimits/JetStreamLimits
+
+    public static AccountLimits optionalInstance(JsonValue jv) {
+        return jv == null ? null : new AccountLimits(jv);
+    }
+
+    public AccountLimits() {}
+
+    public AccountLimits(JsonValue jv) {
+        subs = JsonValueUtils.readLong(jv, "subs", NO_LIMIT);
+        data = JsonValueUtils.readLong(jv, "data", NO_LIMIT);
+        payload = JsonValueUtils.readLong(jv, "payload", NO_LIMIT);
+        imports = JsonValueUtils.readLong(jv, "imports", NO_LIMIT);
+        exports = JsonValueUtils.readLong(jv, "exports", NO_LIMIT);
+        wildcards = JsonValueUtils.readBoolean(jv, "wildcards", false);
+        disallowBearer = JsonValueUtils.readBoolean(jv, "disallow_bearer", false);
+        conn = JsonValueUtils.readLong(jv, "conn", NO_LIMIT);
+        leaf = JsonValueUtils.readLong(jv, "leaf", NO_LIMIT);
+        memStorage = JsonValueUtils.readLong(jv, "mem_storage", 0);
+        diskStorage = JsonValueUtils.readLong(jv, "disk_storage", 0);
+        streams = JsonValueUtils.readLong(jv, "streams", 0);
+        consumer = JsonValueUtils.readLong(jv, "consumer", 0);
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "subs", subs);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "data", data);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "payload", payload);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "imports", imports);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "exports", exports);
+        JsonWriteUtils.addField(sb, "wildcards", wildcards);
+        JsonWriteUtils.addField(sb, "disallow_bearer", disallowBearer);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "conn", conn);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "leaf", leaf);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "mem_storage", memStorage);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "disk_storage", diskStorage);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "streams", streams);
+        JsonWriteUtils.addFieldWhenGteMinusOne(sb, "consumer", consumer);
+        return endJson(sb).toString();
+    }
+
+    public AccountLimits subs(long subs) {
+        this.subs = subs;
+        return this;
+    }
+
+    public AccountLimits data(long data) {
+        this.data = data;
+        return this;
+    }
+
+    public AccountLimits payload(long payload) {
+        this.payload = payload;
+        return this;
+    }
+
+    public AccountLimits imports(long imports) {
+        this.imports = imports;
+        return this;
+    }
+
+    public AccountLimits exports(long exports) {
+        this.exports = exports;
+        return this;
+    }
+
+    public AccountLimits wildcards(boolean wildcards) {
+        this.wildcards = wildcards;
+        return this;
+    }
+
+    public AccountLimits disallowBearer(boolean disallowBearer) {
+        this.disallowBearer = disallowBearer;
+        return this;
+    }
+
+    public AccountLimits conn(long conn) {
+        this.conn = conn;
+        return this;
+    }
+
+    public AccountLimits leaf(long leaf) {
+        this.leaf = leaf;
+        return this;
+    }
+
+    public AccountLimits memStorage(long memStorage) {
+        this.memStorage = memStorage;
+        return this;
+    }
+
+    public AccountLimits diskStorage(long diskStorage) {
+        this.diskStorage = diskStorage;
+        return this;
+    }
+
+    public AccountLimits streams(long streams) {
+        this.streams = streams;
+        return this;
+    }
+
+    public AccountLimits consumer(long consumer) {
+        this.consumer = consumer;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AccountLimits that = (AccountLimits) o;
+
+        if (subs != that.subs) return false;
+        if (data != that.data) return false;
+        if (payload != that.payload) return false;
+        if (imports != that.imports) return false;
+        if (exports != that.exports) return false;
+        if (wildcards != that.wildcards) return false;
+        if (disallowBearer != that.disallowBearer) return false;
+        if (conn != that.conn) return false;
+        if (leaf != that.leaf) return false;
+        if (memStorage != that.memStorage) return false;
+        if (diskStorage != that.diskStorage) return false;
+        if (streams != that.streams) return false;
+        return consumer == that.consumer;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (subs ^ (subs >>> 32));
+        result = 31 * result + (int) (data ^ (data >>> 32));
+        result = 31 * result + (int) (payload ^ (payload >>> 32));
+        result = 31 * result + (int) (imports ^ (imports >>> 32));
+        result = 31 * result + (int) (exports ^ (exports >>> 32));
+        result = 31 * result + (wildcards ? 1 : 0);
+        result = 31 * result + (disallowBearer ? 1 : 0);
+        result = 31 * result + (int) (conn ^ (conn >>> 32));
+        result = 31 * result + (int) (leaf ^ (leaf >>> 32));
+        result = 31 * result + (int) (memStorage ^ (memStorage >>> 32));
+        result = 31 * result + (int) (diskStorage ^ (diskStorage >>> 32));
+        result = 31 * result + (int) (streams ^ (streams >>> 32));
+        result = 31 * result + (int) (consumer ^ (consumer >>> 32));
+        return result;
+    }
+}
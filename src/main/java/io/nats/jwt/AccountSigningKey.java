@@ -0,0 +1,67 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+import io.nats.nkey.NKeyType;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * A signing key for an account, checked once and holding what issuing needs,
+ * so that issuing with it repeats neither the key type checks nor the public key encoding.
+ */
+public class AccountSigningKey {
+    private final String issuerAccount;
+    private final NKey signingKey;
+    private final String publicKey;
+
+    /**
+     * Construct an account signing key
+     * @param issuerAccount the public key of the account
+     * @param signingKey the account key or one of its signing keys
+     * @throws IllegalArgumentException if the issuerAccount is not an account public key or the signingKey is not an account key
+     * @throws GeneralSecurityException if the public key of the signing key can not be read
+     * @throws IOException if the signing key getPublicKey method throws this exception
+     */
+    public AccountSigningKey(String issuerAccount, NKey signingKey) throws GeneralSecurityException, IOException {
+        if (signingKey.getType() != NKeyType.ACCOUNT) {
+            throw new IllegalArgumentException("AccountSigningKey requires an account key for the signingKey parameter, but got " + signingKey.getType());
+        }
+        NKey accountKey = JwtUtils.PROVIDER.fromPublicKey(issuerAccount.toCharArray());
+        if (accountKey.getType() != NKeyType.ACCOUNT) {
+            throw new IllegalArgumentException("AccountSigningKey requires an account key for the issuerAccount parameter, but got " + accountKey.getType());
+        }
+        this.issuerAccount = issuerAccount;
+        this.signingKey = signingKey;
+        this.publicKey = new String(signingKey.getPublicKey());
+    }
+
+    public String getIssuerAccount() {
+        return issuerAccount;
+    }
+
+    public NKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Get the public key of the signing key, the iss of the JWTs it issues
+     * @return the public key
+     */
+    public String getPublicKey() {
+        return publicKey;
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.Objects;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+import static io.nats.jwt.JwtUtils.ACTIVATION_CLAIM_TYPE;
+
+/**
+ * The nats section of an activation JWT, which lets the account in the claim subject
+ * import a private export of the issuing account.
+ */
+public class ActivationClaim extends GenericClaimFields<ActivationClaim> implements JsonWritable {
+    public String importSubject;                // Activation
+    public String importType;                   // Activation, Export.STREAM or Export.SERVICE
+    public String issuerAccount;                // Activation, when issued with a signing key
+
+    public ActivationClaim() {
+        super(ACTIVATION_CLAIM_TYPE, 2);
+    }
+
+    public ActivationClaim(JsonValue jv) {
+        super(jv, ACTIVATION_CLAIM_TYPE, 2);
+        importSubject = JsonValueUtils.readString(jv, "subject");
+        importType = JsonValueUtils.readString(jv, "kind");
+        issuerAccount = JsonValueUtils.readString(jv, "issuer_account");
+    }
+
+    @Override
+    protected ActivationClaim getThis() {
+        return this;
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addField(sb, "subject", importSubject);
+        JsonWriteUtils.addField(sb, "kind", importType);
+        JsonWriteUtils.addField(sb, "issuer_account", issuerAccount);
+        baseJson(sb);
+        return endJson(sb).toString();
+    }
+
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("subject", importSubject);
+        sink.addField("kind", importType);
+        sink.addField("issuer_account", issuerAccount);
+        baseJson(sink);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.fieldSize("subject", importSubject)
+            + ByteSink.fieldSize("kind", importType)
+            + ByteSink.fieldSize("issuer_account", issuerAccount)
+            + baseJsonSize());
+    }
+
+    public ActivationClaim importSubject(String importSubject) {
+        this.importSubject = importSubject;
+        return this;
+    }
+
+    public ActivationClaim importType(String importType) {
+        this.importType = importType;
+        return this;
+    }
+
+    public ActivationClaim issuerAccount(String issuerAccount) {
+        this.issuerAccount = issuerAccount;
+        return this;
+    }
+
+    /**
+     * Take an immutable snapshot of this ActivationClaim
+     * @return the snapshot
+     */
+    public ClaimSnapshot<ActivationClaim> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        ActivationClaim that = (ActivationClaim) o;
+
+        if (!Objects.equals(importSubject, that.importSubject)) return false;
+        if (!Objects.equals(importType, that.importType)) return false;
+        return Objects.equals(issuerAccount, that.issuerAccount);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (importSubject != null ? importSubject.hashCode() : 0);
+        result = 31 * result + (importType != null ? importType.hashCode() : 0);
+        result = 31 * result + (issuerAccount != null ? issuerAccount.hashCode() : 0);
+        return result;
+    }
+}
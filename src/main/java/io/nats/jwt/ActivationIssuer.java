@@ -0,0 +1,231 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonParser;
+import io.nats.json.JsonValue;
+import io.nats.nkey.NKey;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Issues the activation tokens that let many importing accounts use one private export.
+ * <p>
+ * Every token in a batch has the same nats section, issuer and timestamps, only the subject
+ * and the jti differ. The nats section is serialized once, when the issuer is made, and each
+ * batch resolves its iat and exp once, then the tokens are assembled and signed in parallel,
+ * each thread in its own scratch buffers, on the common fork join pool unless a pool is given. Each token is exactly what
+ * {@link ClaimIssuer#issueJwt(NKey)} would return for the same settings and subject.
+ * An instance is immutable and can be shared by any number of threads.
+ */
+public class ActivationIssuer {
+    private final String aud;
+    private final Long iat;
+    private final Long exp;
+    private final Duration expiresIn;
+    private final String iss;
+    private final String name;
+    private final String nbf;
+    private final PreRendered nats;
+    private final NKey signingKey;
+
+    /**
+     * Construct an activation issuer
+     * @param template the settings shared by every token, its nats must be an {@link ActivationClaim}.
+     *                 The sub and jti of the template are ignored. When iss has not been set it is the
+     *                 public key of the signing key. The template is copied, later changes do not affect this issuer.
+     * @param signingKey the export account (signing) key, it must be safe to sign with from multiple threads
+     * @throws IllegalArgumentException if the template nats is not an ActivationClaim
+     * @throws GeneralSecurityException if the public key of the signing key can not be read
+     * @throws IOException if the signing key getPublicKey method throws this exception
+     */
+    public ActivationIssuer(ClaimIssuer template, NKey signingKey) throws GeneralSecurityException, IOException {
+        if (!(template.nats instanceof ActivationClaim)) {
+            throw new IllegalArgumentException("ActivationIssuer requires an ActivationClaim for the template nats.");
+        }
+        this.aud = template.aud;
+        this.iat = template.iatInput;
+        this.exp = template.expInput;
+        this.expiresIn = template.expiresInInput;
+        this.iss = template.iss == null ? new String(signingKey.getPublicKey()) : template.iss;
+        this.name = template.name;
+        this.nbf = template.nbf;
+        this.nats = new PreRendered(template.nats.toJson());
+        this.signingKey = signingKey;
+    }
+
+    /**
+     * Issue an activation token for one importing account
+     * @param importingAccount the public key of the importing account, the subject of the token
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return the activation JWT
+     */
+    public String issue(String importingAccount) throws GeneralSecurityException, IOException {
+        return issue(Collections.singletonList(importingAccount)).get(importingAccount);
+    }
+
+    /**
+     * Issue an activation token for each importing account. All the tokens are issued at the same time.
+     * They are signed on the common fork join pool and the calling thread.
+     * @param importingAccounts the public keys of the importing accounts, the subjects of the tokens
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return the activation JWT by importing account, in the order of the importing accounts
+     */
+    public Map<String, String> issue(Collection<String> importingAccounts) throws GeneralSecurityException, IOException {
+        return issue(importingAccounts, null);
+    }
+
+    /**
+     * Issue an activation token for each importing account. All the tokens are issued at the same time.
+     * @param importingAccounts the public keys of the importing accounts, the subjects of the tokens
+     * @param pool the pool to sign on, or null for the common pool and the calling thread
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return the activation JWT by importing account, in the order of the importing accounts
+     */
+    public Map<String, String> issue(Collection<String> importingAccounts, ForkJoinPool pool) throws GeneralSecurityException, IOException {
+        String[] subs = importingAccounts.toArray(new String[0]);
+        String[] jwts = new String[subs.length];
+        // one iat and exp for the whole batch
+        Claim resolved = ClaimIssuer.resolveClaim(aud, null, iat, exp, expiresIn, iss, name, nbf, null, nats);
+        Runnable sign = () -> IntStream.range(0, subs.length).parallel().forEach(x -> {
+            Claim claim = new Claim(aud, null, resolved.iat, iss, resolved.exp, name, nbf, subs[x], nats);
+            TokenAssembler ta = TokenAssembler.get();
+            try {
+                ta.issue(claim, signingKey, null, ta.outer);
+                jwts[x] = new String(ta.outer.bytes, 0, ta.outer.length, StandardCharsets.US_ASCII);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch (GeneralSecurityException e) {
+                throw new SecurityWrapper(e);
+            }
+            finally {
+                ta.trim();
+            }
+        });
+        try {
+            if (pool == null) {
+                sign.run();
+            }
+            else {
+                // a parallel stream started in a pool runs its tasks in that pool
+                pool.submit(sign).join();
+            }
+        }
+        catch (RuntimeException e) {
+            // a pool may rethrow the failure of another thread wrapped in a copy of itself
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) t).getCause();
+                }
+                if (t instanceof SecurityWrapper) {
+                    throw (GeneralSecurityException) t.getCause();
+                }
+            }
+            throw e;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int x = 0; x < subs.length; x++) {
+            map.put(subs[x], jwts[x]);
+        }
+        return map;
+    }
+
+    /**
+     * Get the activation claim of the tokens
+     * @return a copy, changing it does not affect this issuer
+     */
+    public ActivationClaim getActivation() {
+        try {
+            return new ActivationClaim(JsonParser.parse(nats.toJson()));
+        }
+        catch (JsonParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getIss() {
+        return iss;
+    }
+
+    public NKey getSigningKey() {
+        return signingKey;
+    }
+
+    private static class SecurityWrapper extends RuntimeException {
+        SecurityWrapper(GeneralSecurityException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * The nats section, serialized once and copied as is into every token
+     */
+    private static class PreRendered implements JsonWritable {
+        private final String json;
+        private final byte[] utf8;
+        private JsonValue jv;
+
+        PreRendered(String json) {
+            this.json = json;
+            this.utf8 = json.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void writeJson(ByteSink sink) {
+            sink.append(utf8, 0, utf8.length);
+        }
+
+        @Override
+        public int maxJsonSize() {
+            return utf8.length;
+        }
+
+        @Override
+        @NonNull
+        public String toJson() {
+            return json;
+        }
+
+        @Override
+        @NonNull
+        public JsonValue toJsonValue() {
+            JsonValue local = jv;
+            if (local == null) {
+                try {
+                    local = JsonParser.parse(json);
+                }
+                catch (JsonParseException e) {
+                    throw new IllegalStateException(e);
+                }
+                jv = local;
+            }
+            return local;
+        }
+    }
+}
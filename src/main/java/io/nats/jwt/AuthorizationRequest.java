@@ -24,7 +24,7 @@ import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 import static io.nats.jwt.JwtUtils.AUTH_REQUEST_CLAIM_TYPE;
 
-public class AuthorizationRequest extends GenericClaimFields<AuthorizationRequest> {
+public class AuthorizationRequest extends GenericClaimFields<AuthorizationRequest> implements JsonWritable {
     public ServerId serverId;
     public String userNkey;
     public ClientInfo clientInfo;
@@ -37,12 +37,23 @@ public class AuthorizationRequest extends GenericClaimFields<AuthorizationReques
     }
 
     public AuthorizationRequest(JsonValue jv) {
+        this(jv, Interner.NONE);
+    }
+
+    /**
+     * Construct an authorization request, deduplicating the strings that repeat from
+     * request to request. The server id is interned as a whole, so requests from the
+     * same server share one ServerId instance.
+     * @param jv the json value
+     * @param interner the interner, {@link Interner#NONE} to not intern
+     */
+    public AuthorizationRequest(JsonValue jv, Interner interner) {
         super(jv, AUTH_REQUEST_CLAIM_TYPE, 2);
-        serverId = ServerId.optionalInstance(JsonValueUtils.readValue(jv, "server_id"));
+        serverId = ServerId.optionalInstance(JsonValueUtils.readValue(jv, "server_id"), interner);
         userNkey = JsonValueUtils.readString(jv, "user_nkey");
-        clientInfo = ClientInfo.optionalInstance(JsonValueUtils.readValue(jv, "client_info"));
-        connectOpts = ConnectOpts.optionalInstance(JsonValueUtils.readValue(jv, "connect_opts"));
-        clientTls = ClientTls.optionalInstance(JsonValueUtils.readValue(jv, "client_tls"));
+        clientInfo = ClientInfo.optionalInstance(JsonValueUtils.readValue(jv, "client_info"), interner);
+        connectOpts = ConnectOpts.optionalInstance(JsonValueUtils.readValue(jv, "connect_opts"), interner);
+        clientTls = ClientTls.optionalInstance(JsonValueUtils.readValue(jv, "client_tls"), interner);
         requestNonce = JsonValueUtils.readString(jv, "request_nonce");
     }
 
@@ -65,6 +76,30 @@ public class AuthorizationRequest extends GenericClaimFields<AuthorizationReques
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        baseJson(sink);
+        sink.addField("server_id", serverId);
+        sink.addField("user_nkey", userNkey);
+        sink.addField("client_info", clientInfo);
+        sink.addField("connect_opts", connectOpts);
+        sink.addField("client_tls", clientTls);
+        sink.addField("request_nonce", requestNonce);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(baseJsonSize()
+            + ByteSink.fieldSize("server_id", serverId)
+            + ByteSink.fieldSize("user_nkey", userNkey)
+            + ByteSink.fieldSize("client_info", clientInfo)
+            + ByteSink.fieldSize("connect_opts", connectOpts)
+            + ByteSink.fieldSize("client_tls", clientTls)
+            + ByteSink.fieldSize("request_nonce", requestNonce));
+    }
+
     public AuthorizationRequest serverId(ServerId serverId) {
         this.serverId = serverId;
         return this;
@@ -95,6 +130,14 @@ public class AuthorizationRequest extends GenericClaimFields<AuthorizationReques
         return this;
     }
 
+    /**
+     * Take an immutable snapshot of this AuthorizationRequest
+     * @return the snapshot
+     */
+    public ClaimSnapshot<AuthorizationRequest> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -22,7 +22,7 @@ import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 import static io.nats.jwt.JwtUtils.AUTH_RESPONSE_CLAIM_TYPE;
 
-public class AuthorizationResponse extends GenericClaimFields<AuthorizationResponse> {
+public class AuthorizationResponse extends GenericClaimFields<AuthorizationResponse> implements JsonWritable {
     public String jwt;
     public String error;
     public String issuerAccount;
@@ -52,10 +52,40 @@ public class AuthorizationResponse extends GenericClaimFields<AuthorizationRespo
     public String toJson() {
         StringBuilder sb = beginJson();
         JsonWriteUtils.addField(sb, "jwt", jwt);
+        addFieldsAfterJwt(sb);
+        return endJson(sb).toString();
+    }
+
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("jwt", jwt);
+        addFieldsAfterJwt(sink);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.fieldSize("jwt", jwt)
+            + sizeAfterJwt());
+    }
+
+    void addFieldsAfterJwt(StringBuilder sb) {
         JsonWriteUtils.addField(sb, "error", error);
         JsonWriteUtils.addField(sb, "issuer_account", issuerAccount);
         baseJson(sb);
-        return endJson(sb).toString();
+    }
+
+    int sizeAfterJwt() {
+        return ByteSink.fieldSize("error", error)
+            + ByteSink.fieldSize("issuer_account", issuerAccount)
+            + baseJsonSize();
+    }
+
+    void addFieldsAfterJwt(ByteSink sink) {
+        sink.addField("error", error);
+        sink.addField("issuer_account", issuerAccount);
+        baseJson(sink);
     }
 
     public AuthorizationResponse jwt(String jwt) {
@@ -73,6 +103,14 @@ public class AuthorizationResponse extends GenericClaimFields<AuthorizationRespo
         return this;
     }
 
+    /**
+     * Take an immutable snapshot of this AuthorizationResponse
+     * @return the snapshot
+     */
+    public ClaimSnapshot<AuthorizationResponse> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,125 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base64url encoding without padding, as used for the three parts of a JWT, straight from
+ * a byte array into another at a given offset, so a token can be assembled in one buffer.
+ * <p>
+ * Each 12 bits of input are looked up as a pair of output characters, so three input bytes are
+ * two lookups and four single byte stores, and the main loop takes 12 input bytes at a time.
+ * The output is the same as java.util.Base64.getUrlEncoder().withoutPadding().
+ * The Vector API is not used since it is still an incubator module, which every user
+ * of the library would have to add with --add-modules.
+ */
+public abstract class Base64Url {
+    private Base64Url() {} /* ensures cannot be constructed */
+
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    // for each 12 bit value, its two characters, the first in the high byte
+    private static final short[] PAIRS = new short[4096];
+
+    static {
+        for (int x = 0; x < 4096; x++) {
+            PAIRS[x] = (short) (ALPHABET[x >>> 6] << 8 | ALPHABET[x & 0x3f]);
+        }
+    }
+
+    /**
+     * The number of characters the encoding of len bytes takes
+     * @param len the number of bytes
+     * @return the encoded length
+     */
+    public static int encodedLength(int len) {
+        int rem = len % 3;
+        return (len / 3) * 4 + (rem == 0 ? 0 : rem + 1);
+    }
+
+    /**
+     * Encode bytes into a destination array, which must have room for {@link #encodedLength(int)} bytes
+     * @param src the bytes to encode
+     * @param off the offset of the first byte to encode
+     * @param len the number of bytes to encode
+     * @param dst the array to write the characters to
+     * @param dstOff the offset in dst to write the first character to
+     * @throws ArrayIndexOutOfBoundsException if dst is too small
+     * @return the offset in dst after the last character written
+     */
+    public static int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int sp = off;
+        int dp = dstOff;
+        int end = off + len - (len % 3);
+
+        // 12 bytes in, 16 characters out
+        int end12 = off + len - (len % 12);
+        while (sp < end12) {
+            long bits = (src[sp] & 0xffL) << 40 | (src[sp + 1] & 0xffL) << 32 | (src[sp + 2] & 0xffL) << 24
+                | (src[sp + 3] & 0xffL) << 16 | (src[sp + 4] & 0xffL) << 8 | (src[sp + 5] & 0xffL);
+            long bits2 = (src[sp + 6] & 0xffL) << 40 | (src[sp + 7] & 0xffL) << 32 | (src[sp + 8] & 0xffL) << 24
+                | (src[sp + 9] & 0xffL) << 16 | (src[sp + 10] & 0xffL) << 8 | (src[sp + 11] & 0xffL);
+            dp = pair(dst, dp, (int) (bits >>> 36) & 0xfff);
+            dp = pair(dst, dp, (int) (bits >>> 24) & 0xfff);
+            dp = pair(dst, dp, (int) (bits >>> 12) & 0xfff);
+            dp = pair(dst, dp, (int) bits & 0xfff);
+            dp = pair(dst, dp, (int) (bits2 >>> 36) & 0xfff);
+            dp = pair(dst, dp, (int) (bits2 >>> 24) & 0xfff);
+            dp = pair(dst, dp, (int) (bits2 >>> 12) & 0xfff);
+            dp = pair(dst, dp, (int) bits2 & 0xfff);
+            sp += 12;
+        }
+
+        while (sp < end) {
+            int bits = (src[sp] & 0xff) << 16 | (src[sp + 1] & 0xff) << 8 | (src[sp + 2] & 0xff);
+            dp = pair(dst, dp, bits >>> 12);
+            dp = pair(dst, dp, bits & 0xfff);
+            sp += 3;
+        }
+
+        int rem = off + len - sp;
+        if (rem > 0) {
+            int b0 = src[sp] & 0xff;
+            dst[dp++] = ALPHABET[b0 >>> 2];
+            if (rem == 1) {
+                dst[dp++] = ALPHABET[(b0 << 4) & 0x3f];
+            }
+            else {
+                int b1 = src[sp + 1] & 0xff;
+                dst[dp++] = ALPHABET[((b0 << 4) | (b1 >>> 4)) & 0x3f];
+                dst[dp++] = ALPHABET[(b1 << 2) & 0x3f];
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * Encode bytes into a new array
+     * @param src the bytes to encode
+     * @return the encoded characters, as ascii bytes
+     */
+    public static byte[] encode(byte[] src) {
+        byte[] dst = new byte[encodedLength(src.length)];
+        encode(src, 0, src.length, dst, 0);
+        return dst;
+    }
+
+    private static int pair(byte[] dst, int dp, int twelveBits) {
+        short pair = PAIRS[twelveBits];
+        dst[dp] = (byte) (pair >>> 8);
+        dst[dp + 1] = (byte) pair;
+        return dp + 2;
+    }
+}
@@ -0,0 +1,458 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import io.nats.json.JsonWriteUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable buffer that json is written to as utf-8 bytes. The field methods follow the
+ * same rules as the {@link JsonWriteUtils} methods of the same name, so a {@link JsonWritable}
+ * writes exactly the bytes of its toJson, without building any intermediate strings.
+ * Field names are expected to be ascii and are copied as is. Not thread safe.
+ * <p>
+ * The static size methods mirror the field methods and give the most bytes a field
+ * can take, so a {@link JsonWritable#maxJsonSize()} can be computed in one pass without writing.
+ */
+public class ByteSink {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // sinks that grew past this, say for a large mTLS request, are shrunk when reused
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final byte[] DIGITS = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    byte[] bytes;
+    int length;
+    private StringBuilder scratch;
+
+    public ByteSink() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ByteSink(int initialCapacity) {
+        bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * The number of bytes written
+     * @return the length
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * A copy of the bytes written
+     * @return the bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Discard what has been written, keeping the capacity
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (bytes.length < capacity) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+
+    void trim() {
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        length = 0;
+    }
+
+    public ByteSink append(byte b) {
+        ensureCapacity(length + 1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    public ByteSink append(byte[] src, int off, int len) {
+        ensureCapacity(length + len);
+        System.arraycopy(src, off, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    /**
+     * Append a string that is known to be ascii, such as a field name, without any checks
+     * @param s the string
+     * @return this sink
+     */
+    public ByteSink appendAscii(String s) {
+        int len = s.length();
+        ensureCapacity(length + len);
+        for (int x = 0; x < len; x++) {
+            bytes[length++] = (byte) s.charAt(x);
+        }
+        return this;
+    }
+
+    /**
+     * Append a string as utf-8, as is, without any json escaping
+     * @param s the string
+     * @return this sink
+     */
+    public ByteSink appendUtf8(String s) {
+        int len = s.length();
+        ensureCapacity(length + len);
+        for (int x = 0; x < len; x++) {
+            char c = s.charAt(x);
+            if (c > 0x7F) {
+                byte[] rest = s.substring(x).getBytes(StandardCharsets.UTF_8);
+                return append(rest, 0, rest.length);
+            }
+            bytes[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * Append a string, json escaped exactly as JsonWriteUtils.jsonEncode does, as utf-8
+     * @param s the string
+     * @return this sink
+     */
+    public ByteSink appendJsonEncoded(String s) {
+        int len = s.length();
+        ensureCapacity(length + len);
+        for (int x = 0; x < len; x++) {
+            char c = s.charAt(x);
+            if (c < 0x20 || c > 0x7E || c == '"' || c == '\\' || c == '/') {
+                // the rare string that needs escaping or is not ascii takes the library path
+                StringBuilder sb = scratch();
+                JsonWriteUtils.jsonEncode(sb, s.substring(x));
+                return appendUtf8(sb.toString());
+            }
+            bytes[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    public ByteSink appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return appendAscii(Long.toString(value));
+        }
+        ensureCapacity(length + 20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int pos = length + digits;
+        length = pos;
+        do {
+            bytes[--pos] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        } while (value > 0);
+        return this;
+    }
+
+    public ByteSink beginJson() {
+        return append((byte) '{');
+    }
+
+    public ByteSink endJson() {
+        if (length > 0 && bytes[length - 1] == ',') {
+            bytes[length - 1] = '}';
+            return this;
+        }
+        return append((byte) '}');
+    }
+
+    private void name(String fname) {
+        ensureCapacity(length + fname.length() + 3);
+        bytes[length++] = '"';
+        appendAscii(fname);
+        bytes[length++] = '"';
+        bytes[length++] = ':';
+    }
+
+    private void quoted(String value) {
+        append((byte) '"');
+        appendJsonEncoded(value);
+        append((byte) '"');
+    }
+
+    public void addField(String fname, String value) {
+        if (value != null && !value.isEmpty()) {
+            name(fname);
+            quoted(value);
+            append((byte) ',');
+        }
+    }
+
+    public void addFieldAlways(String fname, String value) {
+        name(fname);
+        if (value == null) {
+            appendAscii("null,");
+        }
+        else {
+            quoted(value);
+            append((byte) ',');
+        }
+    }
+
+    public void addField(String fname, Long value) {
+        if (value != null && value >= 0) {
+            number(fname, value);
+        }
+    }
+
+    public void addField(String fname, Integer value) {
+        if (value != null && value >= 0) {
+            number(fname, value);
+        }
+    }
+
+    public void addField(String fname, Boolean value) {
+        if (value != null && value) {
+            name(fname);
+            appendAscii("true,");
+        }
+    }
+
+    public void addFieldWhenGtZero(String fname, Long value) {
+        if (value != null && value > 0) {
+            number(fname, value);
+        }
+    }
+
+    public void addFieldWhenGteMinusOne(String fname, Long value) {
+        if (value != null && value >= -1) {
+            number(fname, value);
+        }
+    }
+
+    private void number(String fname, long value) {
+        name(fname);
+        appendLong(value);
+        append((byte) ',');
+    }
+
+    public void addFieldAsNanos(String fname, Duration value) {
+        if (value != null) {
+            StringBuilder sb = scratch();
+            JsonWriteUtils.addFieldAsNanos(sb, fname, value);
+            appendAscii(sb.toString());
+        }
+    }
+
+    public void addField(String fname, JsonSerializable value) {
+        if (value != null) {
+            name(fname);
+            writeJson(value);
+            append((byte) ',');
+        }
+    }
+
+    public void addStrings(String fname, String[] values) {
+        if (values != null) {
+            addStrings(fname, Arrays.asList(values));
+        }
+    }
+
+    public void addStrings(String fname, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            name(fname);
+            append((byte) '[');
+            for (int x = 0; x < values.size(); x++) {
+                if (x > 0) {
+                    append((byte) ',');
+                }
+                quoted(values.get(x));
+            }
+            appendAscii("],");
+        }
+    }
+
+    public void addJsons(String fname, List<? extends JsonSerializable> values) {
+        if (values != null && !values.isEmpty()) {
+            name(fname);
+            append((byte) '[');
+            for (int x = 0; x < values.size(); x++) {
+                if (x > 0) {
+                    append((byte) ',');
+                }
+                writeJson(values.get(x));
+            }
+            appendAscii("],");
+        }
+    }
+
+    /**
+     * Write a value, straight into this sink when it is a {@link JsonWritable},
+     * otherwise as the utf-8 of its toJson
+     * @param value the value
+     */
+    public void writeJson(JsonSerializable value) {
+        if (value instanceof JsonWritable) {
+            ((JsonWritable) value).writeJson(this);
+        }
+        else {
+            appendUtf8(value.toJson());
+        }
+    }
+
+    /**
+     * The most bytes a string can take once json escaped and utf-8 encoded, exact unless it holds a lone surrogate
+     * @param s the string
+     * @return the size
+     */
+    public static int encodedSize(String s) {
+        int len = s.length();
+        int size = len;
+        for (int x = 0; x < len; x++) {
+            char c = s.charAt(x);
+            if (c < 0x20) {
+                size += (c == '\b' || c == '\f' || c == '\n' || c == '\r' || c == '\t') ? 1 : 5;
+            }
+            else if (c == '"' || c == '\\' || c == '/' || (c > 0x7F && c < 0x800) || Character.isSurrogate(c)) {
+                size++; // a surrogate pair is 4 bytes for the 2 chars
+            }
+            else if (c >= 0x800) {
+                size += 2;
+            }
+        }
+        return size;
+    }
+
+    public static int digits(long value) {
+        if (value < 0) {
+            return value == Long.MIN_VALUE ? 20 : 1 + digits(-value);
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * The size of an object, from the size of its fields, each with its trailing comma
+     * @param fieldsSize the size of the fields
+     * @return the size
+     */
+    public static int objectSize(int fieldsSize) {
+        return fieldsSize == 0 ? 2 : fieldsSize + 1;
+    }
+
+    private static int nameSize(String fname) {
+        return fname.length() + 4; // quotes, colon and the trailing comma
+    }
+
+    public static int fieldSize(String fname, String value) {
+        return value == null || value.isEmpty() ? 0 : nameSize(fname) + 2 + encodedSize(value);
+    }
+
+    public static int fieldSizeAlways(String fname, String value) {
+        return value == null ? nameSize(fname) + 4 : nameSize(fname) + 2 + encodedSize(value);
+    }
+
+    public static int fieldSize(String fname, Long value) {
+        return value == null || value < 0 ? 0 : nameSize(fname) + digits(value);
+    }
+
+    public static int fieldSize(String fname, Integer value) {
+        return value == null || value < 0 ? 0 : nameSize(fname) + digits(value);
+    }
+
+    public static int fieldSize(String fname, Boolean value) {
+        return value == null || !value ? 0 : nameSize(fname) + 4;
+    }
+
+    public static int fieldSizeWhenGtZero(String fname, Long value) {
+        return value == null || value <= 0 ? 0 : nameSize(fname) + digits(value);
+    }
+
+    public static int fieldSizeWhenGteMinusOne(String fname, Long value) {
+        return value == null || value < -1 ? 0 : nameSize(fname) + digits(value);
+    }
+
+    public static int fieldSizeAsNanos(String fname, Duration value) {
+        return value == null ? 0 : nameSize(fname) + 20;
+    }
+
+    public static int fieldSize(String fname, JsonSerializable value) {
+        return value == null ? 0 : nameSize(fname) + maxJsonSize(value);
+    }
+
+    public static int stringsSize(String fname, String[] values) {
+        return values == null ? 0 : stringsSize(fname, Arrays.asList(values));
+    }
+
+    public static int stringsSize(String fname, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return 0;
+        }
+        int size = nameSize(fname) + 1 + values.size(); // brackets and the commas between
+        for (String value : values) {
+            size += 2 + encodedSize(value);
+        }
+        return size;
+    }
+
+    public static int jsonsSize(String fname, List<? extends JsonSerializable> values) {
+        if (values == null || values.isEmpty()) {
+            return 0;
+        }
+        int size = nameSize(fname) + 1 + values.size();
+        for (JsonSerializable value : values) {
+            size += maxJsonSize(value);
+        }
+        return size;
+    }
+
+    /**
+     * The most bytes the json of a value can take. Only a {@link JsonWritable} can tell
+     * without being serialized, for any other value this is the exact size of its toJson.
+     * @param value the value
+     * @return the size
+     */
+    public static int maxJsonSize(JsonSerializable value) {
+        if (value instanceof JsonWritable) {
+            return ((JsonWritable) value).maxJsonSize();
+        }
+        return value.toJson().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private StringBuilder scratch() {
+        if (scratch == null) {
+            scratch = new StringBuilder();
+        }
+        scratch.setLength(0);
+        return scratch;
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * Builds the reply to an auth callout request in one pass.
+ * <p>
+ * The usual way to answer a callout is to issue the user JWT, set it as the jwt of an
+ * AuthorizationResponse, issue the response JWT and send its bytes:
+ * <pre>
+ * String userJwt = userIssuer.issueJwt(accountKey);
+ * String responseJwt = responseIssuer.nats(response.jwt(userJwt)).issueJwt(calloutKey);
+ * byte[] reply = responseJwt.getBytes(StandardCharsets.UTF_8);
+ * </pre>
+ * {@link #respond(ClaimIssuer, NKey, ClaimIssuer, NKey)} returns exactly the same bytes,
+ * but the user JWT is written straight into the response claim and all the intermediate
+ * work happens in per thread scratch buffers, so only the final reply is allocated.
+ */
+public abstract class CalloutResponder {
+    private CalloutResponder() {} /* ensures cannot be constructed */
+
+    /**
+     * Issue a user JWT and the authorization response that carries it.
+     * @param userIssuer the issuer of the user JWT, with a UserClaim as its nats
+     * @param userSigningKey the account (signing) key for the user JWT
+     * @param responseIssuer the issuer of the response JWT, with an AuthorizationResponse as its nats.
+     *                       The jwt field of that response is ignored and is not modified.
+     * @param responseSigningKey the key for the response JWT
+     * @throws IllegalArgumentException if the response issuer nats is not an AuthorizationResponse
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if a signing key can not be used for signing.
+     * @throws IOException if a signing key sign method throws this exception.
+     * @return the response JWT as utf-8 bytes, ready to be sent
+     */
+    public static byte[] respond(ClaimIssuer userIssuer, NKey userSigningKey, ClaimIssuer responseIssuer, NKey responseSigningKey) throws GeneralSecurityException, IOException {
+        if (!(responseIssuer.nats instanceof AuthorizationResponse)) {
+            throw new IllegalArgumentException("respond requires an AuthorizationResponse for the response issuer nats.");
+        }
+        TokenAssembler ta = TokenAssembler.get();
+        try {
+            ta.issue(userIssuer.resolveClaim(), userSigningKey, null, ta.inner);
+            ta.issue(responseIssuer.resolveClaim(), responseSigningKey, ta.inner, ta.outer);
+            return ta.outer.toByteArray();
+        }
+        finally {
+            ta.trim();
+        }
+    }
+}
@@ -34,54 +34,107 @@ public class Claim implements JsonSerializable {
     public final UserClaim userClaim;
     public final AuthorizationRequest authorizationRequest;
     public final AuthorizationResponse authorizationResponse;
+    public final AccountClaim accountClaim;
+    public final OperatorClaim operatorClaim;
+    public final ActivationClaim activationClaim;
+
+    // computed on first use, safe to publish without locking since the fingerprint is immutable
+    private ClaimFingerprint fingerprint;
 
     public Claim(String json) throws JsonParseException {
-        this(JsonParser.parse(json));
+        this(json, Interner.NONE);
     }
 
     public Claim(byte[] json) throws JsonParseException {
-        this(JsonParser.parse(json));
+        this(json, Interner.NONE);
     }
 
     public Claim(char[] json) throws JsonParseException {
-        this(JsonParser.parse(json));
-    }
-
-    Claim(ClaimIssuer issuer) {
-        aud = issuer.aud;
-        jti = issuer.jti;
-        iat = issuer.iatResolved;
-        iss = issuer.iss;
-        exp = issuer.expResolved;
-        name = issuer.name;
-        nbf = issuer.nbf;
-        sub = issuer.sub;
-        nats = issuer.nats;
+        this(System.nanoTime(), Metrics.startParse(), JsonParser.parse(json), Interner.NONE, json.length);
+    }
+
+    public Claim(String json, Interner interner) throws JsonParseException {
+        this(System.nanoTime(), Metrics.startParse(), JsonParser.parse(json), interner, json.length());
+    }
+
+    public Claim(byte[] json, Interner interner) throws JsonParseException {
+        this(System.nanoTime(), Metrics.startParse(), JsonParser.parse(json), interner, json.length);
+    }
+
+    // arguments are evaluated left to right, so the clock is read and the event, if any, starts before the json is parsed
+    private Claim(long start, JwtParseEvent event, JsonValue jv, Interner interner, int jsonLength) {
+        this(jv, interner);
+        Metrics.parsed(start, event, this, jsonLength);
+    }
+
+    Claim(String aud, String jti, long iat, String iss, long exp, String name, String nbf, String sub, JsonSerializable nats) {
+        this.aud = aud;
+        this.jti = jti;
+        this.iat = iat;
+        this.iss = iss;
+        this.exp = exp;
+        this.name = name;
+        this.nbf = nbf;
+        this.sub = sub;
+        this.nats = nats;
         UserClaim tempUserClaim = null;
         AuthorizationRequest tempAuthorizationRequest = null;
         AuthorizationResponse tempAuthorizationResponse = null;
+        AccountClaim tempAccountClaim = null;
+        OperatorClaim tempOperatorClaim = null;
+        ActivationClaim tempActivationClaim = null;
 
-        if (nats instanceof UserClaim) {
-            tempUserClaim = (UserClaim)nats;
+        // a snapshot is written as is, its frozen value is the typed nats
+        JsonSerializable typed = nats instanceof ClaimSnapshot ? ((ClaimSnapshot<?>) nats).frozen() : nats;
+        if (typed instanceof UserClaim) {
+            tempUserClaim = (UserClaim) typed;
             type = tempUserClaim.getType();
         }
-        else if (nats instanceof AuthorizationRequest) {
-            tempAuthorizationRequest = (AuthorizationRequest) nats;
+        else if (typed instanceof AuthorizationRequest) {
+            tempAuthorizationRequest = (AuthorizationRequest) typed;
             type = tempAuthorizationRequest.getType();
         }
-        else if (nats instanceof AuthorizationResponse) {
-            tempAuthorizationResponse = (AuthorizationResponse) nats;
+        else if (typed instanceof AuthorizationResponse) {
+            tempAuthorizationResponse = (AuthorizationResponse) typed;
             type = tempAuthorizationResponse.getType();
         }
+        else if (typed instanceof AccountClaim) {
+            tempAccountClaim = (AccountClaim) typed;
+            type = tempAccountClaim.getType();
+        }
+        else if (typed instanceof OperatorClaim) {
+            tempOperatorClaim = (OperatorClaim) typed;
+            type = tempOperatorClaim.getType();
+        }
+        else if (typed instanceof ActivationClaim) {
+            tempActivationClaim = (ActivationClaim) typed;
+            type = tempActivationClaim.getType();
+        }
+        else if (typed != null) {
+            type = JsonValueUtils.readString(typed.toJsonValue(), "type");
+        }
         else {
-            type = JsonValueUtils.readString(nats.toJsonValue(), "type");
+            type = null;
         }
         userClaim = tempUserClaim;
         authorizationRequest = tempAuthorizationRequest;
         authorizationResponse = tempAuthorizationResponse;
+        accountClaim = tempAccountClaim;
+        operatorClaim = tempOperatorClaim;
+        activationClaim = tempActivationClaim;
     }
 
     public Claim(JsonValue jv) {
+        this(jv, Interner.NONE);
+    }
+
+    /**
+     * Construct a claim, using the interner to deduplicate the repeating
+     * fields of an authorization request.
+     * @param jv the json value
+     * @param interner the interner, {@link Interner#NONE} to not intern
+     */
+    public Claim(JsonValue jv, Interner interner) {
         aud = JsonValueUtils.readString(jv, "aud");
         exp = JsonValueUtils.readLong(jv, "exp", -1);
         jti = JsonValueUtils.readString(jv, "jti");
@@ -95,26 +148,59 @@ public class Claim implements JsonSerializable {
         this.nats = nats;
 
         type = JsonValueUtils.readString(nats, "type");
+        UserClaim tempUserClaim = null;
+        AuthorizationRequest tempAuthorizationRequest = null;
+        AuthorizationResponse tempAuthorizationResponse = null;
+        AccountClaim tempAccountClaim = null;
+        OperatorClaim tempOperatorClaim = null;
+        ActivationClaim tempActivationClaim = null;
+
         if (USER_CLAIM_TYPE.equals(type)) {
-            userClaim = new UserClaim(nats);
-            authorizationRequest = null;
-            authorizationResponse = null;
+            tempUserClaim = new UserClaim(nats);
         }
         else if (AUTH_REQUEST_CLAIM_TYPE.equals(type)) {
-            userClaim = null;
-            authorizationRequest = new AuthorizationRequest(nats);
-            authorizationResponse = null;
+            tempAuthorizationRequest = new AuthorizationRequest(nats, interner);
         }
         else if (AUTH_RESPONSE_CLAIM_TYPE.equals(type)) {
-            userClaim = null;
-            authorizationRequest = null;
-            authorizationResponse = new AuthorizationResponse(nats);
+            tempAuthorizationResponse = new AuthorizationResponse(nats);
         }
-        else {
-            userClaim = null;
-            authorizationRequest = null;
-            authorizationResponse = null;
+        else if (ACCOUNT_CLAIM_TYPE.equals(type)) {
+            tempAccountClaim = new AccountClaim(nats);
         }
+        else if (OPERATOR_CLAIM_TYPE.equals(type)) {
+            tempOperatorClaim = new OperatorClaim(nats);
+        }
+        else if (ACTIVATION_CLAIM_TYPE.equals(type)) {
+            tempActivationClaim = new ActivationClaim(nats);
+        }
+        userClaim = tempUserClaim;
+        authorizationRequest = tempAuthorizationRequest;
+        authorizationResponse = tempAuthorizationResponse;
+        accountClaim = tempAccountClaim;
+        operatorClaim = tempOperatorClaim;
+        activationClaim = tempActivationClaim;
+    }
+
+    /**
+     * Check whether the claim has expired, using {@link JwtUtils#currentTimeSeconds()}
+     * @return true if the claim has an exp and it is not after the current time
+     */
+    public boolean isExpired() {
+        return exp > 0 && exp <= currentTimeSeconds();
+    }
+
+    /**
+     * The fingerprint of the content of this claim, to use as a cache key. It is computed once,
+     * so the typed nats of the claim must not be changed after this is first called.
+     * @return the fingerprint
+     */
+    public ClaimFingerprint fingerprint() {
+        ClaimFingerprint f = fingerprint;
+        if (f == null) {
+            f = ClaimFingerprint.of(this);
+            fingerprint = f;
+        }
+        return f;
     }
 
     @Override
@@ -125,6 +211,12 @@ public class Claim implements JsonSerializable {
 
     public static String toJson(Claim c, String jti) {
         StringBuilder sb = beginJson();
+        addFieldsBeforeNats(sb, c, jti);
+        JsonWriteUtils.addField(sb, "nats", c.nats);
+        return endJson(sb).toString();
+    }
+
+    static void addFieldsBeforeNats(StringBuilder sb, Claim c, String jti) {
         JsonWriteUtils.addField(sb, "aud", c.aud);
         JsonWriteUtils.addFieldAlways(sb, "jti", jti);
         JsonWriteUtils.addField(sb, "iat", c.iat);
@@ -133,7 +225,27 @@ public class Claim implements JsonSerializable {
         JsonWriteUtils.addField(sb, "sub", c.sub);
         JsonWriteUtils.addFieldWhenGtZero(sb, "exp", c.exp);
         JsonWriteUtils.addField(sb, "nbf", c.nbf);
-        JsonWriteUtils.addField(sb, "nats", c.nats);
-        return endJson(sb).toString();
+    }
+
+    static int sizeBeforeNats(Claim c, String jti) {
+        return ByteSink.fieldSize("aud", c.aud)
+            + ByteSink.fieldSizeAlways("jti", jti)
+            + ByteSink.fieldSize("iat", c.iat)
+            + ByteSink.fieldSize("iss", c.iss)
+            + ByteSink.fieldSize("name", c.name)
+            + ByteSink.fieldSize("sub", c.sub)
+            + ByteSink.fieldSizeWhenGtZero("exp", c.exp)
+            + ByteSink.fieldSize("nbf", c.nbf);
+    }
+
+    static void addFieldsBeforeNats(ByteSink sink, Claim c, String jti) {
+        sink.addField("aud", c.aud);
+        sink.addFieldAlways("jti", jti);
+        sink.addField("iat", c.iat);
+        sink.addField("iss", c.iss);
+        sink.addField("name", c.name);
+        sink.addField("sub", c.sub);
+        sink.addFieldWhenGtZero("exp", c.exp);
+        sink.addField("nbf", c.nbf);
     }
 }
@@ -0,0 +1,697 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonParser;
+import io.nats.json.JsonSerializable;
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.nats.jwt.JwtUtils.ACCOUNT_CLAIM_TYPE;
+
+/**
+ * A compact binary form of a claim, for caching and storing parsed claims without parsing json again.
+ * It is not a wire format, tokens are always json.
+ * <p>
+ * Integers are zigzag varints and strings are written once, later occurrences in the same
+ * claim, such as repeated subjects in permissions, are a varint reference to the first one.
+ * A decoded claim has the typed nats of its type, a {@link UserClaim}, {@link AuthorizationRequest},
+ * {@link AuthorizationResponse}, {@link ActivationClaim} or {@link OperatorClaim}, with all
+ * the fields the original had. Any other nats is kept as its original json, and an account nats is
+ * decoded into an {@link AccountClaim} built from that json, so nothing the model leaves out is lost.
+ * <p>
+ * The first byte is the {@link #VERSION}, a claim encoded by a different version can not be decoded.
+ */
+public abstract class ClaimCodec {
+    private ClaimCodec() {} /* ensures cannot be constructed */
+
+    public static final int VERSION = 1;
+
+    private static final int KIND_JSON = 0;
+    private static final int KIND_USER = 1;
+    private static final int KIND_AUTH_REQUEST = 2;
+    private static final int KIND_AUTH_RESPONSE = 3;
+    private static final int KIND_ACTIVATION = 4;
+    private static final int KIND_OPERATOR = 5;
+    private static final int KIND_PERMISSION = 6;
+    private static final int KIND_CLAIM = 7;
+
+    // string references, anything from FIRST_REF up is an index into the strings already read
+    private static final int NULL = 0;
+    private static final int LITERAL = 1;
+    private static final int FIRST_REF = 2;
+
+    /**
+     * Encode a claim
+     * @param claim the claim
+     * @return the encoded bytes
+     */
+    public static byte[] encode(Claim claim) {
+        ByteSink sink = new ByteSink(256);
+        encode(claim, sink);
+        return sink.toByteArray();
+    }
+
+    /**
+     * Encode a claim, appending it to a sink
+     * @param claim the claim
+     * @param sink the sink
+     */
+    public static void encode(Claim claim, ByteSink sink) {
+        new Writer(sink).claim(claim);
+    }
+
+    /**
+     * Decode a claim
+     * @param bytes the encoded claim
+     * @throws IllegalArgumentException if the bytes are not a claim encoded by this version
+     * @return the claim
+     */
+    public static Claim decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length, Interner.NONE);
+    }
+
+    /**
+     * Decode a claim, using the interner to deduplicate strings across claims,
+     * with the same exceptions for secrets and nonces as when parsing json.
+     * @param bytes the array holding the encoded claim
+     * @param off the offset of the encoded claim
+     * @param len the length of the encoded claim
+     * @param interner the interner, {@link Interner#NONE} to not intern
+     * @throws IllegalArgumentException if the bytes are not a claim encoded by this version
+     * @return the claim
+     */
+    public static Claim decode(byte[] bytes, int off, int len, Interner interner) {
+        try {
+            Reader reader = new Reader(bytes, off, off + len, interner, false);
+            Claim claim = reader.claim();
+            reader.finish();
+            return claim;
+        }
+        catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid encoded claim.", e);
+        }
+    }
+
+    /**
+     * Read back a value written by {@link #encodeContent(JsonSerializable, ByteSink)}
+     * @param unmodifiable whether the lists of the value are unmodifiable
+     * @return a copy of the value that was encoded
+     */
+    static JsonSerializable decodeContent(byte[] bytes, int off, int len, boolean unmodifiable) {
+        try {
+            Reader reader = new Reader(bytes, off, off + len, Interner.NONE, unmodifiable);
+            JsonSerializable value = reader.content();
+            reader.finish();
+            return value;
+        }
+        catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid encoded claim.", e);
+        }
+    }
+
+    /**
+     * Write the canonical encoding of a value, the same bytes for values that are equal,
+     * starting with its kind so values of different classes never encode the same
+     * @param value a claim, the nats of a claim, or a permission
+     * @param sink the sink
+     */
+    static void encodeContent(JsonSerializable value, ByteSink sink) {
+        Writer w = new Writer(sink);
+        if (value instanceof Claim) {
+            sink.append((byte) KIND_CLAIM);
+            w.claim((Claim) value);
+        }
+        else if (value instanceof UserClaim) {
+            sink.append((byte) KIND_USER);
+            w.user((UserClaim) value);
+        }
+        else if (value instanceof AuthorizationRequest) {
+            sink.append((byte) KIND_AUTH_REQUEST);
+            w.request((AuthorizationRequest) value);
+        }
+        else if (value instanceof AuthorizationResponse) {
+            sink.append((byte) KIND_AUTH_RESPONSE);
+            w.response((AuthorizationResponse) value);
+        }
+        else if (value instanceof ActivationClaim) {
+            sink.append((byte) KIND_ACTIVATION);
+            w.activation((ActivationClaim) value);
+        }
+        else if (value instanceof OperatorClaim) {
+            sink.append((byte) KIND_OPERATOR);
+            w.operator((OperatorClaim) value);
+        }
+        else if (value instanceof Permission) {
+            sink.append((byte) KIND_PERMISSION);
+            w.permission((Permission) value);
+        }
+        else if (value instanceof AccountClaim) {
+            sink.append((byte) KIND_JSON);
+            w.str(((AccountClaim) value).canonicalJson());
+        }
+        else {
+            sink.append((byte) KIND_JSON);
+            w.str(value == null ? null : value.toJson());
+        }
+    }
+
+    private static class Writer {
+        private final ByteSink sink;
+        private final Map<String, Integer> refs = new HashMap<>();
+
+        Writer(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        void claim(Claim c) {
+            sink.append((byte) VERSION);
+            // a parsed claim keeps its nats as json, with the typed nats alongside
+            int kind = c.userClaim != null ? KIND_USER
+                : c.authorizationRequest != null ? KIND_AUTH_REQUEST
+                : c.authorizationResponse != null ? KIND_AUTH_RESPONSE
+                : c.activationClaim != null ? KIND_ACTIVATION
+                : c.operatorClaim != null ? KIND_OPERATOR
+                : KIND_JSON;
+            sink.append((byte) kind);
+            str(c.aud);
+            str(c.jti);
+            zlong(c.iat);
+            str(c.iss);
+            zlong(c.exp);
+            str(c.name);
+            str(c.nbf);
+            str(c.sub);
+            switch (kind) {
+                case KIND_USER: user(c.userClaim); break;
+                case KIND_AUTH_REQUEST: request(c.authorizationRequest); break;
+                case KIND_AUTH_RESPONSE: response(c.authorizationResponse); break;
+                case KIND_ACTIVATION: activation(c.activationClaim); break;
+                case KIND_OPERATOR: operator(c.operatorClaim); break;
+                default: str(c.nats == null ? null : c.nats.toJson());
+            }
+        }
+
+        void generic(GenericClaimFields<?> g) {
+            strs(g.tags);
+            str(g.type);
+            zlong(g.version);
+        }
+
+        void user(UserClaim u) {
+            generic(u);
+            str(u.issuerAccount);
+            permission(u.pub);
+            permission(u.sub);
+            if (present(u.resp)) {
+                zlong(u.resp.max);
+                duration(u.resp.expires);
+            }
+            strs(u.src);
+            if (u.timeRanges == null) {
+                varint(0);
+            }
+            else {
+                varint(u.timeRanges.size() + 1);
+                for (TimeRange tr : u.timeRanges) {
+                    str(tr.start);
+                    str(tr.end);
+                }
+            }
+            str(u.locale);
+            zlong(u.subs);
+            zlong(u.data);
+            zlong(u.payload);
+            bool(u.bearerToken);
+            strs(u.allowedConnectionTypes);
+        }
+
+        void permission(Permission p) {
+            if (present(p)) {
+                strs(p.allow);
+                strs(p.deny);
+            }
+        }
+
+        void request(AuthorizationRequest r) {
+            generic(r);
+            ServerId si = r.serverId;
+            if (present(si)) {
+                str(si.name);
+                str(si.host);
+                str(si.id);
+                str(si.version);
+                str(si.cluster);
+                strs(si.tags);
+                str(si.xKey);
+            }
+            str(r.userNkey);
+            ClientInfo ci = r.clientInfo;
+            if (present(ci)) {
+                str(ci.host);
+                zlong(ci.id);
+                str(ci.user);
+                str(ci.name);
+                strs(ci.tags == null ? null : Arrays.asList(ci.tags));
+                str(ci.nameTag);
+                str(ci.kind);
+                str(ci.type);
+                str(ci.mqttId);
+                str(ci.nonce);
+            }
+            ConnectOpts co = r.connectOpts;
+            if (present(co)) {
+                str(co.jwt);
+                str(co.nkey);
+                str(co.sig);
+                str(co.authToken);
+                str(co.user);
+                str(co.pass);
+                str(co.name);
+                str(co.lang);
+                str(co.version);
+                zlong(co.protocol);
+            }
+            ClientTls ct = r.clientTls;
+            if (present(ct)) {
+                str(ct.version);
+                str(ct.cipher);
+                strs(ct.certs);
+                if (ct.verifiedChains == null) {
+                    varint(0);
+                }
+                else {
+                    varint(ct.verifiedChains.size() + 1);
+                    for (List<String> chain : ct.verifiedChains) {
+                        strs(chain);
+                    }
+                }
+            }
+            str(r.requestNonce);
+        }
+
+        void response(AuthorizationResponse r) {
+            generic(r);
+            str(r.jwt);
+            str(r.error);
+            str(r.issuerAccount);
+        }
+
+        void activation(ActivationClaim a) {
+            generic(a);
+            str(a.importSubject);
+            str(a.importType);
+            str(a.issuerAccount);
+        }
+
+        void operator(OperatorClaim o) {
+            generic(o);
+            strs(o.signingKeys);
+            str(o.accountServerUrl);
+            strs(o.operatorServiceUrls);
+            str(o.systemAccount);
+            str(o.assertServerVersion);
+            bool(o.strictSigningKeyUsage);
+        }
+
+        boolean present(Object o) {
+            sink.append((byte) (o == null ? 0 : 1));
+            return o != null;
+        }
+
+        void bool(boolean b) {
+            sink.append((byte) (b ? 1 : 0));
+        }
+
+        void duration(Duration d) {
+            if (present(d)) {
+                zlong(d.getSeconds());
+                varint(d.getNano());
+            }
+        }
+
+        void strs(List<String> list) {
+            if (list == null) {
+                varint(0);
+                return;
+            }
+            varint(list.size() + 1);
+            for (String s : list) {
+                str(s);
+            }
+        }
+
+        void str(String s) {
+            if (s == null) {
+                varint(NULL);
+                return;
+            }
+            Integer ref = refs.get(s);
+            if (ref != null) {
+                varint(FIRST_REF + ref);
+                return;
+            }
+            refs.put(s, refs.size());
+            varint(LITERAL);
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            sink.append(utf8, 0, utf8.length);
+        }
+
+        void zlong(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                sink.append((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            sink.append((byte) v);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] bytes;
+        private final int end;
+        private final Interner interner;
+        private final boolean unmodifiable;
+        private int pos;
+        private String[] strings = new String[16];
+        private int stringCount;
+
+        Reader(byte[] bytes, int off, int end, Interner interner, boolean unmodifiable) {
+            this.bytes = bytes;
+            this.pos = off;
+            this.end = end;
+            this.interner = interner;
+            this.unmodifiable = unmodifiable;
+        }
+
+        JsonSerializable content() throws JsonParseException {
+            int kind = next();
+            switch (kind) {
+                case KIND_CLAIM: return claim();
+                case KIND_USER: return user();
+                case KIND_AUTH_REQUEST: return request();
+                case KIND_AUTH_RESPONSE: return response();
+                case KIND_ACTIVATION: return activation();
+                case KIND_OPERATOR: return operator();
+                case KIND_PERMISSION: return permission();
+                case KIND_JSON: return json(secret());
+                default: throw new IllegalArgumentException("Unknown encoded claim kind " + kind + ".");
+            }
+        }
+
+        void finish() {
+            if (pos != end) {
+                throw new IllegalArgumentException("Invalid encoded claim, " + (end - pos) + " trailing bytes.");
+            }
+        }
+
+        Claim claim() throws JsonParseException {
+            int version = next();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported encoded claim version " + version + ".");
+            }
+            int kind = next();
+            String aud = str();
+            String jti = str();
+            long iat = zlong();
+            String iss = str();
+            long exp = zlong();
+            String name = str();
+            String nbf = str();
+            String sub = str();
+            JsonSerializable nats;
+            switch (kind) {
+                case KIND_USER: nats = user(); break;
+                case KIND_AUTH_REQUEST: nats = request(); break;
+                case KIND_AUTH_RESPONSE: nats = response(); break;
+                case KIND_ACTIVATION: nats = activation(); break;
+                case KIND_OPERATOR: nats = operator(); break;
+                case KIND_JSON: nats = json(secret()); break;
+                default: throw new IllegalArgumentException("Unknown encoded claim kind " + kind + ".");
+            }
+            return new Claim(aud, jti, iat, iss, exp, name, nbf, sub, nats);
+        }
+
+        private static JsonSerializable json(String json) throws JsonParseException {
+            if (json == null) {
+                return null;
+            }
+            JsonValue jv = JsonParser.parse(json);
+            if (ACCOUNT_CLAIM_TYPE.equals(JsonValueUtils.readString(jv, "type"))) {
+                return new AccountClaim(jv);
+            }
+            return jv;
+        }
+
+        private <T extends GenericClaimFields<T>> T generic(T g) {
+            g.tags = strs();
+            g.type = str();
+            g.version = (int) zlong();
+            return g;
+        }
+
+        UserClaim user() {
+            UserClaim u = generic(new UserClaim());
+            u.issuerAccount = str();
+            u.pub = permission();
+            u.sub = permission();
+            if (present()) {
+                u.resp = new ResponsePermission();
+                u.resp.max = (int) zlong();
+                u.resp.expires = duration();
+            }
+            u.src = strs();
+            int count = count();
+            if (count >= 0) {
+                u.timeRanges = new ArrayList<>(count);
+                for (int x = 0; x < count; x++) {
+                    u.timeRanges.add(new TimeRange(str(), str()));
+                }
+                u.timeRanges = seal(u.timeRanges);
+            }
+            u.locale = str();
+            u.subs = zlong();
+            u.data = zlong();
+            u.payload = zlong();
+            u.bearerToken = bool();
+            u.allowedConnectionTypes = strs();
+            return u;
+        }
+
+        Permission permission() {
+            if (!present()) {
+                return null;
+            }
+            Permission p = new Permission();
+            p.allow = strs();
+            p.deny = strs();
+            return p;
+        }
+
+        AuthorizationRequest request() {
+            AuthorizationRequest r = generic(new AuthorizationRequest());
+            if (present()) {
+                r.serverId = interner.intern(new ServerId(str(), str(), str(), str(), str(), strs(), str()));
+            }
+            r.userNkey = str();
+            if (present()) {
+                String host = str();
+                long id = zlong();
+                String user = str();
+                String name = str();
+                List<String> tags = strs();
+                r.clientInfo = new ClientInfo(host, id, user, name, tags == null ? null : tags.toArray(new String[0]),
+                    str(), str(), str(), secret(), secret());
+            }
+            if (present()) {
+                r.connectOpts = new ConnectOpts(secret(), secret(), secret(), secret(), str(), secret(),
+                    str(), str(), str(), (int) zlong());
+            }
+            if (present()) {
+                String version = str();
+                String cipher = str();
+                List<String> certs = secrets();
+                List<List<String>> chains = null;
+                int count = count();
+                if (count >= 0) {
+                    chains = new ArrayList<>(count);
+                    for (int x = 0; x < count; x++) {
+                        chains.add(secrets());
+                    }
+                }
+                r.clientTls = new ClientTls(version, cipher, certs, chains == null ? null : seal(chains));
+            }
+            r.requestNonce = secret();
+            return r;
+        }
+
+        AuthorizationResponse response() {
+            AuthorizationResponse r = generic(new AuthorizationResponse());
+            r.jwt = secret();
+            r.error = str();
+            r.issuerAccount = str();
+            return r;
+        }
+
+        ActivationClaim activation() {
+            ActivationClaim a = generic(new ActivationClaim());
+            a.importSubject = str();
+            a.importType = str();
+            a.issuerAccount = str();
+            return a;
+        }
+
+        OperatorClaim operator() {
+            OperatorClaim o = generic(new OperatorClaim());
+            o.signingKeys = strs();
+            o.accountServerUrl = str();
+            o.operatorServiceUrls = strs();
+            o.systemAccount = str();
+            o.assertServerVersion = str();
+            o.strictSigningKeyUsage = bool();
+            return o;
+        }
+
+        private <E> List<E> seal(List<E> list) {
+            return unmodifiable ? Collections.unmodifiableList(list) : list;
+        }
+
+        boolean present() {
+            return next() != 0;
+        }
+
+        boolean bool() {
+            return next() != 0;
+        }
+
+        Duration duration() {
+            if (!present()) {
+                return null;
+            }
+            long seconds = zlong();
+            return Duration.ofSeconds(seconds, varint());
+        }
+
+        /**
+         * @return the number of elements, -1 for null
+         */
+        int count() {
+            long count = varint() - 1;
+            if (count < -1 || count > end - pos) {
+                throw new IllegalArgumentException("Invalid encoded claim, count past the end.");
+            }
+            return (int) count;
+        }
+
+        List<String> strs() {
+            return strs(true);
+        }
+
+        /**
+         * Strings that are large or unique, never interned
+         */
+        List<String> secrets() {
+            return strs(false);
+        }
+
+        private List<String> strs(boolean intern) {
+            int count = count();
+            if (count < 0) {
+                return null;
+            }
+            List<String> list = new ArrayList<>(count);
+            for (int x = 0; x < count; x++) {
+                list.add(str(intern));
+            }
+            return seal(list);
+        }
+
+        String str() {
+            return str(true);
+        }
+
+        /**
+         * A string that is a secret or unique, never interned
+         */
+        String secret() {
+            return str(false);
+        }
+
+        private String str(boolean intern) {
+            long tag = varint();
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag >= FIRST_REF) {
+                long ref = tag - FIRST_REF;
+                if (ref >= stringCount) {
+                    throw new IllegalArgumentException("Invalid encoded claim, unknown string reference.");
+                }
+                return strings[(int) ref];
+            }
+            int len = (int) varint();
+            if (len < 0 || pos + len > end) {
+                throw new IllegalArgumentException("Invalid encoded claim, string past the end.");
+            }
+            String s = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            if (intern) {
+                s = interner.intern(s);
+            }
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, stringCount * 2);
+            }
+            strings[stringCount++] = s;
+            return s;
+        }
+
+        long zlong() {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = next();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException("Invalid encoded claim, varint too long.");
+        }
+
+        private int next() {
+            if (pos >= end) {
+                throw new IllegalArgumentException("Invalid encoded claim, unexpected end.");
+            }
+            return bytes[pos++] & 0xff;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * A 128 bit fingerprint of the content of a claim, or of the nats of a claim, to use as a cache key
+ * instead of the value itself. Equal values have equal fingerprints, and since it is the first
+ * 128 bits of a SHA-256 of the canonical {@link ClaimCodec} encoding, different values are not
+ * expected to collide, even when the content comes from a client.
+ * <p>
+ * A value that has list fields is hashed on every call to {@link #of(JsonSerializable)}.
+ * {@link Claim#fingerprint()} computes it once per claim.
+ */
+public class ClaimFingerprint {
+    private final long hi;
+    private final long lo;
+
+    ClaimFingerprint(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * Compute the fingerprint of a value
+     * @param value a {@link Claim}, the nats of a claim, or a {@link Permission}.
+     *              Values of any other class are fingerprinted by their json.
+     * @return the fingerprint
+     */
+    public static ClaimFingerprint of(JsonSerializable value) {
+        ByteSink sink = new ByteSink(256);
+        ClaimCodec.encodeContent(value, sink);
+        return of(sink.bytes, 0, sink.length);
+    }
+
+    /**
+     * The fingerprint of a canonical encoding, from {@link ClaimCodec#encodeContent(JsonSerializable, ByteSink)}
+     */
+    static ClaimFingerprint of(byte[] content, int off, int len) {
+        MessageDigest sha256;
+        try {
+            sha256 = TokenAssembler.get().sha256();
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        sha256.update(content, off, len);
+        byte[] digest = sha256.digest();
+        return new ClaimFingerprint(toLong(digest, 0), toLong(digest, 8));
+    }
+
+    private static long toLong(byte[] b, int off) {
+        long v = 0;
+        for (int x = off; x < off + 8; x++) {
+            v = v << 8 | (b[x] & 0xff);
+        }
+        return v;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ClaimFingerprint that = (ClaimFingerprint) o;
+
+        return hi == that.hi && lo == that.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        // already uniformly distributed
+        return (int) lo;
+    }
+
+    /**
+     * @return the fingerprint as 32 hex characters
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", hi, lo);
+    }
+}
@@ -21,10 +21,11 @@ import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.Arrays;
 
-import static io.nats.json.Encoding.base64UrlEncodeToString;
-import static io.nats.jwt.JwtUtils.ENCODED_CLAIM_HEADER;
+import static io.nats.jwt.JwtMetrics.Stage.*;
 import static io.nats.jwt.JwtUtils.currentTimeSeconds;
+import static io.nats.jwt.TokenAssembler.HEADER;
 import static io.nats.nkey.NKeyProviderUtils.base32Encode;
 
 public class ClaimIssuer {
@@ -32,8 +33,6 @@ public class ClaimIssuer {
     String jti;
     Long iatInput;
     Long expInput;
-    long iatResolved;
-    long expResolved;
     String iss;
     String name;
     String nbf;
@@ -42,38 +41,86 @@ public class ClaimIssuer {
     Duration expiresInInput;
 
     public String issueJwt(NKey signingKey) throws GeneralSecurityException, IOException {
-        iatResolved = iatInput == null ? currentTimeSeconds() : iatInput;
-        if (expInput == null) {
-            if (expiresInInput != null) {
-                long millis = expiresInInput.toMillis();
-                if (millis > 0) {
-                    expInput = iatResolved + (millis / 1000);
-                }
-            }
-        }
-        expResolved = expInput == null ? 0 : expInput;
+        return issueJwt(resolveClaim(), signingKey);
+    }
+
+    /**
+     * Freeze the current settings into an immutable issuer that can be shared across threads.
+     * The per token sub, name and nats are given to each issue call. When iss has not been set
+     * it is the public key of the signing key. The iat and exp, if set, are frozen as is,
+     * otherwise each token is issued at the current time and expires after the expiresIn.
+     * @param signingKey the key to sign with, it must be safe to sign with from multiple threads
+     * @throws GeneralSecurityException if the public key of the signing key can not be read
+     * @throws IOException if the signing key getPublicKey method throws this exception
+     * @return the frozen issuer
+     */
+    public FrozenClaimIssuer freeze(NKey signingKey) throws GeneralSecurityException, IOException {
+        return new FrozenClaimIssuer(this, signingKey);
+    }
 
-        Claim claim = new Claim(this);
+    static String issueJwt(Claim claim, NKey signingKey) throws GeneralSecurityException, IOException {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        JwtIssueEvent event = new JwtIssueEvent();
+        long start = Metrics.start(metrics, event);
+        long t = start;
 
         // Issue At time is stored in unix seconds
         String initialJson = claim.toJson();
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
 
         // Compute jti, a base32 encoded sha256 hash
         MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
         byte[] encoded = sha256.digest(initialJson.getBytes(StandardCharsets.US_ASCII));
-
         String issueJti = new String(base32Encode(encoded));
-        initialJson = Claim.toJson(claim, issueJti);
+        t = Metrics.lap(metrics, event, DIGEST, t);
 
-        // all three components (header/body/signature) are base64url encoded
-        String encBody = base64UrlEncodeToString(initialJson);
+        initialJson = Claim.toJson(claim, issueJti);
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
+
+        // all three components (header/body/signature) are base64url encoded,
+        // straight into the token, which has room for an ed25519 signature
+        byte[] body = initialJson.getBytes(StandardCharsets.UTF_8);
+        byte[] token = new byte[HEADER.length + 1 + Base64Url.encodedLength(body.length) + 1 + Base64Url.encodedLength(64)];
+        System.arraycopy(HEADER, 0, token, 0, HEADER.length);
+        int pos = HEADER.length;
+        token[pos++] = '.';
+        pos = Base64Url.encode(body, 0, body.length, token, pos);
+        t = Metrics.lap(metrics, event, ENCODE, t);
 
         // compute the signature off of header + body (. included on purpose)
-        byte[] sig = (ENCODED_CLAIM_HEADER + "." + encBody).getBytes(StandardCharsets.UTF_8);
-        String encSig = base64UrlEncodeToString(signingKey.sign(sig));
+        byte[] signature = signingKey.sign(Arrays.copyOf(token, pos));
+        t = Metrics.lap(metrics, event, SIGN, t);
+        if (token.length < pos + 1 + Base64Url.encodedLength(signature.length)) {
+            token = Arrays.copyOf(token, pos + 1 + Base64Url.encodedLength(signature.length));
+        }
 
         // append signature to header and body and return it
-        return ENCODED_CLAIM_HEADER + "." + encBody + "." + encSig;
+        token[pos++] = '.';
+        pos = Base64Url.encode(signature, 0, signature.length, token, pos);
+        String jwt = new String(token, 0, pos, StandardCharsets.US_ASCII);
+        Metrics.lap(metrics, event, ENCODE, t);
+        Metrics.issued(metrics, event, start, claim, jwt.length());
+        return jwt;
+    }
+
+    Claim resolveClaim() {
+        return resolveClaim(aud, jti, iatInput, expInput, expiresInInput, iss, name, nbf, sub, nats);
+    }
+
+    static Claim resolveClaim(String aud, String jti, Long iatInput, Long expInput, Duration expiresIn,
+                              String iss, String name, String nbf, String sub, JsonSerializable nats) {
+        long iat = iatInput == null ? currentTimeSeconds() : iatInput;
+        long exp = 0;
+        if (expInput != null) {
+            exp = expInput;
+        }
+        else if (expiresIn != null) {
+            long millis = expiresIn.toMillis();
+            if (millis > 0) {
+                exp = iat + (millis / 1000);
+            }
+        }
+        return new Claim(aud, jti, iat, iss, exp, name, nbf, sub, nats);
     }
 
     public ClaimIssuer nats(JsonSerializable nats) {
@@ -0,0 +1,205 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+import io.nats.json.JsonWriteUtils;
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.jwt.JwtMetrics.Stage.*;
+import static io.nats.jwt.JwtUtils.currentTimeSeconds;
+import static io.nats.jwt.JwtUtils.getClaimBody;
+import static io.nats.jwt.TokenAssembler.HEADER;
+import static io.nats.nkey.NKeyProviderUtils.base32Encode;
+
+/**
+ * Re-issues a claim with a new iat and exp.
+ * <p>
+ * Only iat, exp and jti change from one renewal to the next, so the claim json is rendered
+ * once, split around those fields, and kept as bytes. A renewal splices the new numbers in,
+ * hashes the result for the jti, and signs. The claim objects, and in particular the
+ * permissions of a user claim, are never serialized again.
+ * <p>
+ * Renewing from a template gives exactly the token that {@link ClaimIssuer#issueJwt(NKey)}
+ * would issue with the same iat and exp. Immutable and thread safe.
+ */
+public class ClaimRenewer {
+    private final Claim claim;
+    private final long lifetime;
+    private final Piece head;
+    private final byte[] hashJti;
+    private final Piece middle;
+    private final Piece tail;
+
+    // a fixed part of the json, the ascii form is what ClaimIssuer hashes for the jti
+    private static class Piece {
+        final byte[] ascii;
+        final byte[] utf8;
+
+        Piece(StringBuilder sb) {
+            String s = sb.toString();
+            ascii = s.getBytes(StandardCharsets.US_ASCII);
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            utf8 = Arrays.equals(ascii, b) ? ascii : b;
+        }
+    }
+
+    /**
+     * Construct a renewer from an issuer. The issuer is copied, changing it afterward has no effect.
+     * The lifetime is the expiresIn, or the difference between the exp and iat if both are set.
+     * @param template the issuer
+     */
+    public ClaimRenewer(ClaimIssuer template) {
+        this(template.resolveClaim(), template.jti);
+    }
+
+    /**
+     * Construct a renewer from an issued token, keeping its lifetime.
+     * The signature of the token is not checked.
+     * @param jwt the token
+     * @throws JsonParseException if the claim json can not be parsed
+     */
+    public ClaimRenewer(String jwt) throws JsonParseException {
+        this(new Claim(getClaimBody(jwt)), null);
+    }
+
+    private ClaimRenewer(Claim claim, String jti) {
+        this.claim = claim;
+        lifetime = claim.exp > 0 ? Math.max(0, claim.exp - claim.iat) : 0;
+
+        // same fields and order as Claim.addFieldsBeforeNats
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addField(sb, "aud", claim.aud);
+        head = new Piece(sb);
+
+        sb = new StringBuilder();
+        JsonWriteUtils.addFieldAlways(sb, "jti", jti);
+        hashJti = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        sb = new StringBuilder();
+        JsonWriteUtils.addField(sb, "iss", claim.iss);
+        JsonWriteUtils.addField(sb, "name", claim.name);
+        JsonWriteUtils.addField(sb, "sub", claim.sub);
+        middle = new Piece(sb);
+
+        // left open, renew closes whichever field comes last
+        sb = new StringBuilder();
+        JsonWriteUtils.addField(sb, "nbf", claim.nbf);
+        JsonWriteUtils.addField(sb, "nats", claim.nats);
+        tail = new Piece(sb);
+    }
+
+    /**
+     * Issue a token at the current time that expires after the lifetime
+     * @param signingKey the key to sign with
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signing key can not be used for signing.
+     * @throws IOException if the signing key sign method throws this exception.
+     * @return the token
+     */
+    public String renew(NKey signingKey) throws GeneralSecurityException, IOException {
+        long iat = currentTimeSeconds();
+        return renew(iat, lifetime == 0 ? 0 : iat + lifetime, signingKey);
+    }
+
+    /**
+     * Issue a token with the given times
+     * @param iat the issued at time in epoch seconds
+     * @param exp the expiration in epoch seconds, 0 or less for none
+     * @param signingKey the key to sign with
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signing key can not be used for signing.
+     * @throws IOException if the signing key sign method throws this exception.
+     * @return the token
+     */
+    public String renew(long iat, long exp, NKey signingKey) throws GeneralSecurityException, IOException {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        JwtIssueEvent event = new JwtIssueEvent();
+        long start = Metrics.start(metrics, event);
+        long t = start;
+
+        StringBuilder sb = new StringBuilder(32);
+        JsonWriteUtils.addField(sb, "iat", iat);
+        byte[] iatField = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        sb.setLength(0);
+        JsonWriteUtils.addFieldWhenGtZero(sb, "exp", exp);
+        byte[] expField = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
+
+        MessageDigest sha256 = TokenAssembler.get().sha256();
+        updateClosed(sha256, head.ascii, hashJti, iatField, middle.ascii, expField, tail.ascii);
+        sb.setLength(0);
+        JsonWriteUtils.addFieldAlways(sb, "jti", new String(base32Encode(sha256.digest())));
+        byte[] jtiField = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        t = Metrics.lap(metrics, event, DIGEST, t);
+
+        byte[] body = new byte[head.utf8.length + jtiField.length + iatField.length + middle.utf8.length + expField.length + tail.utf8.length];
+        int pos = append(head.utf8, body, 0);
+        pos = append(jtiField, body, pos);
+        pos = append(iatField, body, pos);
+        pos = append(middle.utf8, body, pos);
+        pos = append(expField, body, pos);
+        append(tail.utf8, body, pos);
+        body[body.length - 1] = '}'; // every field ends with a comma, iat at least is always there
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
+
+        byte[] token = new byte[HEADER.length + 1 + Base64Url.encodedLength(body.length) + 1 + Base64Url.encodedLength(64)];
+        pos = append(HEADER, token, 0);
+        token[pos++] = '.';
+        pos = Base64Url.encode(body, 0, body.length, token, pos);
+        t = Metrics.lap(metrics, event, ENCODE, t);
+
+        byte[] sig = signingKey.sign(Arrays.copyOf(token, pos));
+        t = Metrics.lap(metrics, event, SIGN, t);
+        if (token.length < pos + 1 + Base64Url.encodedLength(sig.length)) {
+            token = Arrays.copyOf(token, pos + 1 + Base64Url.encodedLength(sig.length));
+        }
+        token[pos++] = '.';
+        pos = Base64Url.encode(sig, 0, sig.length, token, pos);
+        String jwt = new String(token, 0, pos, StandardCharsets.US_ASCII);
+        Metrics.lap(metrics, event, ENCODE, t);
+        Metrics.issued(metrics, event, start, claim, jwt.length());
+        return jwt;
+    }
+
+    // the parts end with the comma after the last field, which is hashed as the closing brace
+    private static void updateClosed(MessageDigest sha256, byte[]... parts) {
+        int last = parts.length - 1;
+        while (parts[last].length == 0) {
+            last--;
+        }
+        for (int x = 0; x < last; x++) {
+            sha256.update(parts[x]);
+        }
+        sha256.update(parts[last], 0, parts[last].length - 1);
+        sha256.update((byte) '}');
+    }
+
+    private static int append(byte[] src, byte[] dst, int pos) {
+        System.arraycopy(src, 0, dst, pos, src.length);
+        return pos + src.length;
+    }
+
+    /**
+     * @return the lifetime in seconds, 0 if the tokens do not expire
+     */
+    public long getLifetime() {
+        return lifetime;
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import org.jspecify.annotations.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a claim, or of the nats of a claim, made with freeze, for instance
+ * {@link UserClaim#freeze()}. The value is copied when the snapshot is made, so later changes
+ * to the original do not show, and its json, utf-8 bytes and hash code are computed once.
+ * {@link #get()} hands out a new copy each time, so changes to it do not show either.
+ * A snapshot can be shared by any number of threads and given as the nats of a {@link ClaimIssuer},
+ * the json is then copied into each token as is.
+ * <p>
+ * Two snapshots are equal when their values are equal.
+ * @param <T> the class of the value
+ */
+public class ClaimSnapshot<T extends JsonSerializable> implements JsonWritable {
+    private final T value;
+    private final byte[] content;
+    private final String json;
+    private final byte[] utf8;
+    private final int hashCode;
+    private ClaimFingerprint fingerprint;
+
+    /**
+     * Take a snapshot of a value
+     * @param value a {@link Claim}, the nats of a claim other than an {@link AccountClaim}, or a {@link Permission}
+     * @param <T> the class of the value
+     * @return the snapshot
+     * @throws IllegalArgumentException if the value is an {@link AccountClaim}, which can not be
+     * encoded without loss yet, or is of any other class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends JsonSerializable> ClaimSnapshot<T> of(@NonNull T value) {
+        if (value instanceof AccountClaim) {
+            throw new IllegalArgumentException("Cannot snapshot a " + value.getClass().getSimpleName() + ".");
+        }
+        ByteSink sink = new ByteSink(256);
+        ClaimCodec.encodeContent(value, sink);
+        byte[] content = sink.toByteArray();
+        JsonSerializable frozen = ClaimCodec.decodeContent(content, 0, content.length, true);
+        if (frozen == null || frozen.getClass() != value.getClass()) {
+            throw new IllegalArgumentException("Cannot snapshot a " + value.getClass().getSimpleName() + ".");
+        }
+        return new ClaimSnapshot<>((T) frozen, content);
+    }
+
+    private ClaimSnapshot(T value, byte[] content) {
+        this.value = value;
+        this.content = content;
+        this.json = value.toJson();
+        this.utf8 = json.getBytes(StandardCharsets.UTF_8);
+        this.hashCode = Arrays.hashCode(content);
+    }
+
+    /**
+     * A new copy of the value, changing it does not change the snapshot
+     * @return the copy
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        return (T) ClaimCodec.decodeContent(content, 0, content.length, false);
+    }
+
+    // the shared value, only for the claims built when issuing, which are never handed out
+    T frozen() {
+        return value;
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        return json;
+    }
+
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.append(utf8, 0, utf8.length);
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return utf8.length;
+    }
+
+    /**
+     * The json as utf-8
+     * @return a copy of the bytes
+     */
+    public byte[] toJsonBytes() {
+        return utf8.clone();
+    }
+
+    /**
+     * The length of the json as utf-8
+     * @return the length in bytes
+     */
+    public int getJsonLength() {
+        return utf8.length;
+    }
+
+    /**
+     * The fingerprint of the value, the same as {@link ClaimFingerprint#of(JsonSerializable)}
+     * gives for it, computed once
+     * @return the fingerprint
+     */
+    public ClaimFingerprint fingerprint() {
+        ClaimFingerprint f = fingerprint;
+        if (f == null) {
+            f = ClaimFingerprint.of(content, 0, content.length);
+            fingerprint = f;
+        }
+        return f;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ClaimSnapshot<?> that = (ClaimSnapshot<?>) o;
+
+        return hashCode == that.hashCode && Arrays.equals(content, that.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
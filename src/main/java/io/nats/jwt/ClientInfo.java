@@ -13,7 +13,6 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
@@ -25,7 +24,7 @@ import java.util.Objects;
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class ClientInfo implements JsonSerializable {
+public class ClientInfo implements JsonWritable {
     public final String host;
     public final long id;
     public final String user;
@@ -37,23 +36,48 @@ public class ClientInfo implements JsonSerializable {
     public final String mqttId;
     public final String nonce;
 
+    // computed on first use, the fields never change
+    private transient int maxJsonSize = -1;
+
     public static ClientInfo optionalInstance(JsonValue jv) {
         return jv == null ? null : new ClientInfo(jv);
     }
 
+    public static ClientInfo optionalInstance(JsonValue jv, Interner interner) {
+        return jv == null ? null : new ClientInfo(jv, interner);
+    }
+
     public ClientInfo(JsonValue jv) {
-        host = JsonValueUtils.readString(jv, "host");
+        this(jv, Interner.NONE);
+    }
+
+    public ClientInfo(JsonValue jv, Interner interner) {
+        host = interner.intern(JsonValueUtils.readString(jv, "host"));
         id = JsonValueUtils.readLong(jv, "id");
-        user = JsonValueUtils.readString(jv, "user");
-        name = JsonValueUtils.readString(jv, "name");
-        tags = JsonValueUtils.readStringListOrEmpty(jv, "tags").toArray(new String[0]);
-        nameTag = JsonValueUtils.readString(jv, "name_tag");
-        kind = JsonValueUtils.readString(jv, "kind");
-        type = JsonValueUtils.readString(jv, "type");
+        user = interner.intern(JsonValueUtils.readString(jv, "user"));
+        name = interner.intern(JsonValueUtils.readString(jv, "name"));
+        tags = interner.intern(JsonValueUtils.readStringListOrEmpty(jv, "tags").toArray(new String[0]));
+        nameTag = interner.intern(JsonValueUtils.readString(jv, "name_tag"));
+        kind = interner.intern(JsonValueUtils.readString(jv, "kind"));
+        type = interner.intern(JsonValueUtils.readString(jv, "type"));
         mqttId = JsonValueUtils.readString(jv, "mqtt_id");
         nonce = JsonValueUtils.readString(jv, "nonce");
     }
 
+    ClientInfo(String host, long id, String user, String name, String[] tags, String nameTag,
+               String kind, String type, String mqttId, String nonce) {
+        this.host = host;
+        this.id = id;
+        this.user = user;
+        this.name = name;
+        this.tags = tags;
+        this.nameTag = nameTag;
+        this.kind = kind;
+        this.type = type;
+        this.mqttId = mqttId;
+        this.nonce = nonce;
+    }
+
     @Override
     @NonNull
     public String toJson() {
@@ -71,6 +95,41 @@ public class ClientInfo implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("host", host);
+        sink.addField("id", id);
+        sink.addField("user", user);
+        sink.addField("name", name);
+        sink.addStrings("tags", tags);
+        sink.addField("name_tag", nameTag);
+        sink.addField("kind", kind);
+        sink.addField("type", type);
+        sink.addField("mqtt_id", mqttId);
+        sink.addField("nonce", nonce);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        int size = maxJsonSize;
+        if (size < 0) {
+            size = ByteSink.objectSize(ByteSink.fieldSize("host", host)
+                + ByteSink.fieldSize("id", id)
+                + ByteSink.fieldSize("user", user)
+                + ByteSink.fieldSize("name", name)
+                + ByteSink.stringsSize("tags", tags)
+                + ByteSink.fieldSize("name_tag", nameTag)
+                + ByteSink.fieldSize("kind", kind)
+                + ByteSink.fieldSize("type", type)
+                + ByteSink.fieldSize("mqtt_id", mqttId)
+                + ByteSink.fieldSize("nonce", nonce));
+            maxJsonSize = size;
+        }
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -13,12 +13,15 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
 import org.jspecify.annotations.NonNull;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -26,24 +29,92 @@ import java.util.stream.Collectors;
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class ClientTls implements JsonSerializable {
+public class ClientTls implements JsonWritable {
     public final String version;
     public final String cipher;
     public final List<String> certs;
     public final List<List<String>> verifiedChains;
 
+    // computed on first use, the fields never change
+    private transient int maxJsonSize = -1;
+    private transient String certFingerprint;
+
     public static ClientTls optionalInstance(JsonValue jv) {
         return jv == null ? null : new ClientTls(jv);
     }
 
+    public static ClientTls optionalInstance(JsonValue jv, Interner interner) {
+        return jv == null ? null : new ClientTls(jv, interner);
+    }
+
     public ClientTls(JsonValue jv) {
-        version = JsonValueUtils.readString(jv, "version");
-        cipher = JsonValueUtils.readString(jv, "cipher");
+        this(jv, Interner.NONE);
+    }
+
+    public ClientTls(JsonValue jv, Interner interner) {
+        version = interner.intern(JsonValueUtils.readString(jv, "version"));
+        cipher = interner.intern(JsonValueUtils.readString(jv, "cipher"));
+        // certificates are large and differ per client, they are not worth interning
         certs = JsonValueUtils.readStringListOrNull(jv, "certs");
         verifiedChains = JsonValueUtils.readArrayOrEmpty(jv, "verified_chains").stream()
             .map(jsonObj -> JsonValueUtils.listOfOrEmpty(jsonObj, JsonValue::toJson)).collect(Collectors.toList());
     }
 
+    ClientTls(String version, String cipher, List<String> certs, List<List<String>> verifiedChains) {
+        this.version = version;
+        this.cipher = cipher;
+        this.certs = certs;
+        this.verifiedChains = verifiedChains;
+    }
+
+    /**
+     * Get the SHA-256 fingerprint of the first certificate, the digest of the DER bytes of its PEM,
+     * in lowercase hex without separators, as openssl x509 -fingerprint -sha256 prints it less the colons.
+     * @return the fingerprint, or null if there is no certificate or it is not PEM
+     */
+    public String getCertFingerprint() {
+        String fp = certFingerprint;
+        if (fp == null && certs != null && !certs.isEmpty() && certs.get(0) != null) {
+            fp = fingerprint(certs.get(0));
+            certFingerprint = fp;
+        }
+        return fp;
+    }
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    static String fingerprint(String pem) {
+        int begin = pem.indexOf("-----BEGIN");
+        int body = begin < 0 ? -1 : pem.indexOf("-----", begin + 10);
+        int end = body < 0 ? -1 : pem.indexOf("-----END", body + 5);
+        if (end < 0) {
+            return null;
+        }
+        byte[] der;
+        try {
+            der = Base64.getMimeDecoder().decode(pem.substring(body + 5, end));
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (der.length == 0) {
+            return null;
+        }
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(der);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] hex = new byte[digest.length * 2];
+        for (int x = 0; x < digest.length; x++) {
+            hex[x * 2] = HEX[(digest[x] >> 4) & 0xF];
+            hex[x * 2 + 1] = HEX[digest[x] & 0xF];
+        }
+        return new String(hex, StandardCharsets.US_ASCII);
+    }
+
     @Override
     @NonNull
     public String toJson() {
@@ -54,6 +125,27 @@ public class ClientTls implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("version", version);
+        sink.addField("protocol", cipher);
+        sink.addStrings("tags", certs);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        int size = maxJsonSize;
+        if (size < 0) {
+            size = ByteSink.objectSize(ByteSink.fieldSize("version", version)
+                + ByteSink.fieldSize("protocol", cipher)
+                + ByteSink.stringsSize("tags", certs));
+            maxJsonSize = size;
+        }
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
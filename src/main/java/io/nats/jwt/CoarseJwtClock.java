@@ -0,0 +1,92 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock that returns a value kept current by a daemon thread instead of reading the
+ * system clock on every call. It is behind the system clock by at most one tick, which
+ * is irrelevant at the second resolution of JWT times. Close it to stop the thread,
+ * after that it reads the system clock.
+ */
+public class CoarseJwtClock implements JwtClock, AutoCloseable {
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    private final long tickNanos;
+    private final Thread ticker;
+    private volatile boolean running;
+    private volatile long seconds;
+
+    /**
+     * Construct and start a clock that ticks every {@link #DEFAULT_TICK}
+     */
+    public CoarseJwtClock() {
+        this(DEFAULT_TICK);
+    }
+
+    /**
+     * Construct and start a clock
+     * @param tick how often the time is updated
+     * @throws IllegalArgumentException if the tick is null, zero or negative
+     */
+    public CoarseJwtClock(Duration tick) {
+        if (tick == null || tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("Tick must be greater than zero.");
+        }
+        tickNanos = tick.toNanos();
+        seconds = SYSTEM.currentTimeSeconds();
+        running = true;
+        ticker = new Thread(this::tick, "jwt-coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private void tick() {
+        while (running) {
+            seconds = SYSTEM.currentTimeSeconds();
+            LockSupport.parkNanos(this, tickNanos);
+        }
+    }
+
+    @Override
+    public long currentTimeSeconds() {
+        return running ? seconds : SYSTEM.currentTimeSeconds();
+    }
+
+    public Duration getTick() {
+        return Duration.ofNanos(tickNanos);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop the background thread and wait briefly for it to end
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -13,7 +13,6 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
@@ -24,7 +23,7 @@ import java.util.Objects;
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class ConnectOpts implements JsonSerializable {
+public class ConnectOpts implements JsonWritable {
     public final String jwt;
     public final String nkey;
     public final String sig;
@@ -36,23 +35,48 @@ public class ConnectOpts implements JsonSerializable {
     public final String version;
     public final int protocol;
 
+    // computed on first use, the fields never change
+    private transient int maxJsonSize = -1;
+
     public static ConnectOpts optionalInstance(JsonValue jv) {
         return jv == null ? null : new ConnectOpts(jv);
     }
 
+    public static ConnectOpts optionalInstance(JsonValue jv, Interner interner) {
+        return jv == null ? null : new ConnectOpts(jv, interner);
+    }
+
     public ConnectOpts(JsonValue jv) {
+        this(jv, Interner.NONE);
+    }
+
+    public ConnectOpts(JsonValue jv, Interner interner) {
         jwt = JsonValueUtils.readString(jv, "jwt");
         nkey = JsonValueUtils.readString(jv, "nkey");
         sig = JsonValueUtils.readString(jv, "sig");
         authToken = JsonValueUtils.readString(jv, "auth_token");
-        user = JsonValueUtils.readString(jv, "user");
+        user = interner.intern(JsonValueUtils.readString(jv, "user"));
         pass = JsonValueUtils.readString(jv, "pass");
-        name = JsonValueUtils.readString(jv, "name");
-        lang = JsonValueUtils.readString(jv, "lang");
-        version = JsonValueUtils.readString(jv, "version");
+        name = interner.intern(JsonValueUtils.readString(jv, "name"));
+        lang = interner.intern(JsonValueUtils.readString(jv, "lang"));
+        version = interner.intern(JsonValueUtils.readString(jv, "version"));
         protocol = JsonValueUtils.readInteger(jv, "protocol", -1);
     }
 
+    ConnectOpts(String jwt, String nkey, String sig, String authToken, String user, String pass,
+                String name, String lang, String version, int protocol) {
+        this.jwt = jwt;
+        this.nkey = nkey;
+        this.sig = sig;
+        this.authToken = authToken;
+        this.user = user;
+        this.pass = pass;
+        this.name = name;
+        this.lang = lang;
+        this.version = version;
+        this.protocol = protocol;
+    }
+
     @Override
     @NonNull
     public String toJson() {
@@ -70,6 +94,41 @@ public class ConnectOpts implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("jwt", jwt);
+        sink.addField("nkey", nkey);
+        sink.addField("sig", sig);
+        sink.addField("auth_token", authToken);
+        sink.addField("user", user);
+        sink.addField("pass", pass);
+        sink.addField("name", name);
+        sink.addField("lang", lang);
+        sink.addField("version", version);
+        sink.addField("protocol", protocol);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        int size = maxJsonSize;
+        if (size < 0) {
+            size = ByteSink.objectSize(ByteSink.fieldSize("jwt", jwt)
+                + ByteSink.fieldSize("nkey", nkey)
+                + ByteSink.fieldSize("sig", sig)
+                + ByteSink.fieldSize("auth_token", authToken)
+                + ByteSink.fieldSize("user", user)
+                + ByteSink.fieldSize("pass", pass)
+                + ByteSink.fieldSize("name", name)
+                + ByteSink.fieldSize("lang", lang)
+                + ByteSink.fieldSize("version", version)
+                + ByteSink.fieldSize("protocol", protocol));
+            maxJsonSize = size;
+        }
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,162 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the user JWT and seed out of creds bytes, in the layout of {@link JwtUtils#NATS_USER_JWT_FORMAT}.
+ * Each value is the first non blank line after a line starting with dashes, the BEGIN line,
+ * and the block ends at the next line starting with dashes, the END line. The bytes are
+ * scanned in place, without regular expressions or intermediate strings, and the seed is
+ * returned as characters so it can be wiped.
+ */
+public abstract class CredsReader {
+    private CredsReader() {} /* ensures cannot be constructed */
+
+    /**
+     * Read creds from a file, the bytes read are wiped afterward
+     * @param file the file
+     * @throws IllegalArgumentException if the file does not contain a jwt and a seed block
+     * @throws IOException if the file can not be read
+     * @return the creds
+     */
+    public static UserCreds read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        try {
+            return read(bytes);
+        }
+        finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Read creds
+     * @param creds the creds bytes
+     * @throws IllegalArgumentException if the bytes do not contain a jwt and a seed block
+     * @return the creds
+     */
+    public static UserCreds read(byte[] creds) {
+        return read(ByteBuffer.wrap(creds));
+    }
+
+    /**
+     * Read one creds starting at the position of the buffer, and move the position past its seed block
+     * @param creds the creds bytes
+     * @throws IllegalArgumentException if the bytes do not contain a jwt and a seed block
+     * @return the creds
+     */
+    public static UserCreds read(ByteBuffer creds) {
+        int[] block = new int[3];
+        if (!block(creds, creds.position(), block)) {
+            throw new IllegalArgumentException("Invalid creds, no jwt block.");
+        }
+        byte[] jwt = new byte[block[1] - block[0]];
+        creds.get(block[0], jwt);
+        if (!block(creds, block[2], block)) {
+            throw new IllegalArgumentException("Invalid creds, no seed block.");
+        }
+        char[] seed = new char[block[1] - block[0]];
+        for (int x = 0; x < seed.length; x++) {
+            seed[x] = (char) (creds.get(block[0] + x) & 0xFF);
+        }
+        creds.position(block[2]);
+        return new UserCreds(new String(jwt, StandardCharsets.US_ASCII), seed);
+    }
+
+    /**
+     * Read every creds in the buffer, as written back to back by {@link CredsWriter#write(String, char[])}
+     * @param archive the creds bytes
+     * @throws IllegalArgumentException if a creds is incomplete
+     * @return the creds in order
+     */
+    public static List<UserCreds> readAll(ByteBuffer archive) {
+        List<UserCreds> list = new ArrayList<>();
+        while (nextDashLine(archive, archive.position()) >= 0) {
+            list.add(read(archive));
+        }
+        return list;
+    }
+
+    /**
+     * Find the next block
+     * @param out set to the start and end of the value and the position after the END line
+     * @return false if there is no complete block
+     */
+    private static boolean block(ByteBuffer b, int pos, int[] out) {
+        int begin = nextDashLine(b, pos);
+        if (begin < 0) {
+            return false;
+        }
+        int p = lineEnd(b, begin);
+        int limit = b.limit();
+        while (p < limit && isWhitespace(b.get(p))) {
+            p++;
+        }
+        if (p == limit || b.get(p) == '-') {
+            return false;
+        }
+        int start = p;
+        while (p < limit && !isWhitespace(b.get(p))) {
+            p++;
+        }
+        int end = nextDashLine(b, p);
+        if (end < 0) {
+            return false;
+        }
+        out[0] = start;
+        out[1] = p;
+        out[2] = lineEnd(b, end);
+        return true;
+    }
+
+    /**
+     * @return the start of the next line, at or after pos, that starts with three dashes, or -1
+     */
+    private static int nextDashLine(ByteBuffer b, int pos) {
+        int limit = b.limit();
+        int p = pos;
+        while (p < limit) {
+            if (p + 3 <= limit && b.get(p) == '-' && b.get(p + 1) == '-' && b.get(p + 2) == '-') {
+                return p;
+            }
+            p = lineEnd(b, p);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the line feed ending the line containing pos, or the limit
+     */
+    private static int lineEnd(ByteBuffer b, int pos) {
+        int limit = b.limit();
+        int p = pos;
+        while (p < limit && b.get(p) != '\n') {
+            p++;
+        }
+        return Math.min(p + 1, limit);
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+}
@@ -0,0 +1,226 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import static io.nats.jwt.JwtUtils.NATS_USER_JWT_FORMAT;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes creds files, byte for byte the same as formatting {@link JwtUtils#NATS_USER_JWT_FORMAT},
+ * through a reusable buffer straight to a channel, without building a string per user.
+ * <p>
+ * Each creds can go to its own file with {@link #writeFile(Path, String, char[])}, or many can be
+ * streamed back to back into a single archive channel with {@link #write(String, char[])},
+ * which {@link CredsReader#readAll(ByteBuffer)} splits again.
+ * The buffer is cleared after each write so no seed is left in it. Not thread safe.
+ */
+public class CredsWriter implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[][] TEMPLATE = template();
+    private static final FileAttribute<?>[] OWNER_ONLY = ownerOnly();
+    private static final Set<OpenOption> FILE_OPTIONS = Set.of(CREATE, TRUNCATE_EXISTING, WRITE);
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private int dirty; // how much of the buffer may hold seed bytes
+
+    /**
+     * Construct a writer for {@link #writeFile(Path, String, char[])} only
+     */
+    public CredsWriter() {
+        this(null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a writer that streams creds into an archive channel
+     * @param channel the channel, closed when the writer is closed
+     */
+    public CredsWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a writer
+     * @param channel the archive channel or null for files only, closed when the writer is closed
+     * @param bufferSize the size of the buffer, creds are flushed whenever it fills
+     * @throws IllegalArgumentException if the buffer size is less than 1024
+     */
+    public CredsWriter(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("Buffer size must be at least 1024.");
+        }
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Append one creds to the archive channel, the bytes may stay buffered until the next flush
+     * @param jwt the user JWT
+     * @param seed the user seed
+     * @throws IllegalStateException if the writer has no archive channel or is closed
+     * @throws IOException if the channel can not be written
+     */
+    public void write(String jwt, char[] seed) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Writer has no archive channel.");
+        }
+        checkOpen();
+        int len = length(jwt, seed);
+        if (buffer.remaining() < len) {
+            flush();
+            ensureCapacity(len);
+        }
+        put(jwt, seed);
+    }
+
+    /**
+     * Append one creds to the archive channel
+     * @param creds the creds
+     * @throws IOException if the channel can not be written
+     */
+    public void write(UserCreds creds) throws IOException {
+        write(creds.getJwt(), creds.getSeed());
+    }
+
+    /**
+     * Write one creds to its own file, replacing the file if it exists.
+     * New files are readable and writable by the owner only where the file system supports it.
+     * @param file the file
+     * @param jwt the user JWT
+     * @param seed the user seed
+     * @throws IOException if the file can not be written
+     */
+    public void writeFile(Path file, String jwt, char[] seed) throws IOException {
+        checkOpen();
+        flush();
+        ensureCapacity(length(jwt, seed));
+        try (FileChannel fc = FileChannel.open(file, FILE_OPTIONS, OWNER_ONLY)) {
+            put(jwt, seed);
+            drain(fc);
+        }
+        finally {
+            wipeBuffer();
+        }
+    }
+
+    /**
+     * Write everything buffered to the archive channel
+     * @throws IOException if the channel can not be written
+     */
+    public void flush() throws IOException {
+        if (channel != null && buffer != null) {
+            try {
+                drain(channel);
+            }
+            finally {
+                wipeBuffer();
+            }
+        }
+    }
+
+    /**
+     * Flush and close the archive channel
+     * @throws IOException if the channel can not be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            try {
+                flush();
+            }
+            finally {
+                buffer = null;
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private void put(String jwt, char[] seed) {
+        buffer.put(TEMPLATE[0]);
+        for (int x = 0; x < jwt.length(); x++) {
+            buffer.put((byte) jwt.charAt(x));
+        }
+        buffer.put(TEMPLATE[1]);
+        for (char c : seed) {
+            buffer.put((byte) c);
+        }
+        buffer.put(TEMPLATE[2]);
+        dirty = Math.max(dirty, buffer.position());
+    }
+
+    private void drain(WritableByteChannel ch) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+    }
+
+    private void wipeBuffer() {
+        buffer.clear();
+        for (int x = 0; x < dirty; x++) {
+            buffer.put(x, (byte) 0);
+        }
+        dirty = 0;
+    }
+
+    private void ensureCapacity(int len) {
+        if (buffer.capacity() < len) {
+            wipeBuffer();
+            buffer = ByteBuffer.allocateDirect(len);
+        }
+    }
+
+    private void checkOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("Writer is closed.");
+        }
+    }
+
+    private static int length(String jwt, char[] seed) {
+        return TEMPLATE[0].length + jwt.length() + TEMPLATE[1].length + seed.length + TEMPLATE[2].length;
+    }
+
+    private static byte[][] template() {
+        String[] parts = NATS_USER_JWT_FORMAT.split("%s", -1);
+        byte[][] template = new byte[parts.length][];
+        for (int x = 0; x < parts.length; x++) {
+            template[x] = parts[x].getBytes(StandardCharsets.US_ASCII);
+        }
+        return template;
+    }
+
+    private static FileAttribute<?>[] ownerOnly() {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+        }
+        return new FileAttribute<?>[0];
+    }
+}
@@ -0,0 +1,257 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Resolves accounts from a directory of account JWTs, one per file ending in {@code .jwt},
+ * either directly in the directory or one level down, as sharded by the server's directory resolver.
+ * <p>
+ * The accounts are held in an immutable map that is replaced whole on every change, so lookups
+ * never lock and always see a consistent index. {@link #watch()} starts a daemon thread that
+ * applies file changes as a {@link WatchService} reports them, batching the events that arrive
+ * together into a single swap. A file that can not be read or parsed, say one caught part way
+ * through being written, is skipped, and the account keeps its previous JWT if it had one.
+ * Signatures are not checked.
+ */
+public class DirectoryAccountResolver implements AutoCloseable {
+    public static final String JWT_SUFFIX = ".jwt";
+
+    private static final Logger LOG = Logger.getLogger(DirectoryAccountResolver.class.getName());
+
+    private final Path directory;
+    private volatile Map<String, ResolvedAccount> accounts = Collections.emptyMap();
+    private final Map<Path, ResolvedAccount> files = new HashMap<>(); // guarded by this
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Construct a resolver and load the directory
+     * @param directory the directory
+     * @throws IOException if the directory can not be listed
+     */
+    public DirectoryAccountResolver(Path directory) throws IOException {
+        this.directory = directory;
+        reload();
+    }
+
+    /**
+     * Get an account, never locks
+     * @param accountId the account public key
+     * @return the account or null if not known
+     */
+    public ResolvedAccount get(String accountId) {
+        return accounts.get(accountId);
+    }
+
+    /**
+     * @return an immutable snapshot of all the accounts by account public key
+     */
+    public Map<String, ResolvedAccount> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Read the whole directory again and swap in the result
+     * @throws IOException if the directory can not be listed
+     */
+    public synchronized void reload() throws IOException {
+        Map<Path, ResolvedAccount> previous = new HashMap<>(files);
+        files.clear();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                if (isJwtFile(p)) {
+                    ResolvedAccount account = load(p);
+                    if (account == null) {
+                        account = previous.get(p);
+                    }
+                    if (account != null) {
+                        files.put(p, account);
+                    }
+                }
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Apply changes to some files and swap in the result
+     * @param changed the files that were created, modified or deleted
+     */
+    synchronized void update(Collection<Path> changed) {
+        for (Path p : changed) {
+            if (Files.exists(p)) {
+                ResolvedAccount account = load(p);
+                if (account != null) {
+                    files.put(p, account);
+                }
+            }
+            else {
+                files.remove(p);
+            }
+        }
+        publish();
+    }
+
+    // guarded by this, when two files hold the same account the latest issued wins
+    private void publish() {
+        Map<String, ResolvedAccount> map = new HashMap<>();
+        for (ResolvedAccount account : files.values()) {
+            map.merge(account.getAccountId(), account, (a, b) -> a.getClaim().iat >= b.getClaim().iat ? a : b);
+        }
+        accounts = Collections.unmodifiableMap(map);
+    }
+
+    private static boolean isJwtFile(Path p) {
+        return p.getFileName().toString().endsWith(JWT_SUFFIX) && Files.isRegularFile(p);
+    }
+
+    private static ResolvedAccount load(Path p) {
+        try {
+            return new ResolvedAccount(Files.readString(p, StandardCharsets.US_ASCII).trim());
+        }
+        catch (IOException | IllegalArgumentException e) {
+            // unreadable, not json (JsonParseException is an IOException) or not an account
+            return null;
+        }
+    }
+
+    /**
+     * Start watching the directory, does nothing if already watching
+     * @throws IOException if the watch service can not be created or the directory registered
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        register(directory);
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(p)) {
+                    register(p);
+                }
+            }
+        }
+        // anything changed before the registration is picked up here
+        reload();
+        WatchService ws = watchService;
+        watcher = new Thread(() -> watchLoop(ws), "jwt-account-resolver");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // guarded by this
+    private void register(Path dir) throws IOException {
+        if (watchService != null) {
+            dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        }
+    }
+
+    private void watchLoop(WatchService ws) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = ws.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Set<Path> changed = new HashSet<>();
+            boolean rescan = false;
+            try {
+                do {
+                    try {
+                        Path dir = (Path) key.watchable();
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            if (event.kind() == OVERFLOW) {
+                                rescan = true;
+                                continue;
+                            }
+                            Path p = dir.resolve((Path) event.context());
+                            if (event.kind() == ENTRY_CREATE && dir.equals(directory) && Files.isDirectory(p)) {
+                                synchronized (this) {
+                                    register(p);
+                                }
+                                rescan = true;
+                            }
+                            else if (p.getFileName().toString().endsWith(JWT_SUFFIX)) {
+                                changed.add(p);
+                            }
+                        }
+                    }
+                    finally {
+                        // a key that is not reset is never signalled again
+                        key.reset();
+                    }
+                }
+                while ((key = ws.poll()) != null);
+
+                if (rescan) {
+                    reload();
+                }
+                else {
+                    update(changed);
+                }
+            }
+            catch (ClosedWatchServiceException e) {
+                return;
+            }
+            catch (IOException ignore) {
+                // keep the current index, the next event tries again
+            }
+            catch (RuntimeException e) {
+                // the watcher must outlive a bad batch, keep the current index
+                LOG.log(Level.WARNING, "Failed to apply account jwt changes in " + directory, e);
+            }
+        }
+    }
+
+    public synchronized boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * Stop watching, the accounts stay available
+     * @throws IOException if the watch service can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        Thread t;
+        synchronized (this) {
+            if (watchService == null) {
+                return;
+            }
+            watchService.close();
+            watchService = null;
+            t = watcher;
+            watcher = null;
+        }
+        try {
+            t.join(2000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.List;
+import java.util.Objects;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+
+public class Export implements JsonSerializable {
+    public static final String STREAM = "stream";
+    public static final String SERVICE = "service";
+
+    public String name;
+    public String subject;
+    public String type;
+    public boolean tokenReq;
+    public String responseType;
+    public int accountTokenPosition;
+    public boolean advertise;
+    public String description;
+    public String infoUrl;
+
+    public static List<Export> optionalListOf(JsonValue jv) {
+        return JsonValueUtils.listOfOrNull(jv, Export::new);
+    }
+
+    public Export() {}
+
+    public Export(JsonValue jv) {
+        name = JsonValueUtils.readString(jv, "name");
+        subject = JsonValueUtils.readString(jv, "subject");
+        type = JsonValueUtils.readString(jv, "type");
+        tokenReq = JsonValueUtils.readBoolean(jv, "token_req", false);
+        responseType = JsonValueUtils.readString(jv, "response_type");
+        accountTokenPosition = JsonValueUtils.readInteger(jv, "account_token_position", 0);
+        advertise = JsonValueUtils.readBoolean(jv, "advertise", false);
+        description = JsonValueUtils.readString(jv, "description");
+        infoUrl = JsonValueUtils.readString(jv, "info_url");
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addField(sb, "name", name);
+        JsonWriteUtils.addField(sb, "subject", subject);
+        JsonWriteUtils.addField(sb, "type", type);
+        JsonWriteUtils.addField(sb, "token_req", tokenReq);
+        JsonWriteUtils.addField(sb, "response_type", responseType);
+        if (accountTokenPosition > 0) {
+            JsonWriteUtils.addField(sb, "account_token_position", accountTokenPosition);
+        }
+        JsonWriteUtils.addField(sb, "advertise", advertise);
+        JsonWriteUtils.addField(sb, "description", description);
+        JsonWriteUtils.addField(sb, "info_url", infoUrl);
+        return endJson(sb).toString();
+    }
+
+    public Export name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public Export subject(String subject) {
+        this.subject = subject;
+        return this;
+    }
+
+    public Export type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public Export tokenReq(boolean tokenReq) {
+        this.tokenReq = tokenReq;
+        return this;
+    }
+
+    public Export responseType(String responseType) {
+        this.responseType = responseType;
+        return this;
+    }
+
+    public Export accountTokenPosition(int accountTokenPosition) {
+        this.accountTokenPosition = accountTokenPosition;
+        return this;
+    }
+
+    public Export advertise(boolean advertise) {
+        this.advertise = advertise;
+        return this;
+    }
+
+    public Export description(String description) {
+        this.description = description;
+        return this;
+    }
+
+    public Export infoUrl(String infoUrl) {
+        this.infoUrl = infoUrl;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Export export = (Export) o;
+
+        if (tokenReq != export.tokenReq) return false;
+        if (accountTokenPosition != export.accountTokenPosition) return false;
+        if (advertise != export.advertise) return false;
+        if (!Objects.equals(name, export.name)) return false;
+        if (!Objects.equals(subject, export.subject)) return false;
+        if (!Objects.equals(type, export.type)) return false;
+        if (!Objects.equals(responseType, export.responseType)) return false;
+        if (!Objects.equals(description, export.description)) return false;
+        return Objects.equals(infoUrl, export.infoUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (subject != null ? subject.hashCode() : 0);
+        result = 31 * result + (type != null ? type.hashCode() : 0);
+        result = 31 * result + (tokenReq ? 1 : 0);
+        result = 31 * result + (responseType != null ? responseType.hashCode() : 0);
+        result = 31 * result + accountTokenPosition;
+        result = 31 * result + (advertise ? 1 : 0);
+        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + (infoUrl != null ? infoUrl.hashCode() : 0);
+        return result;
+    }
+}
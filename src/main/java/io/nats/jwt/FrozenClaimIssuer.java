@@ -0,0 +1,95 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+/**
+ * An immutable issuer made with {@link ClaimIssuer#freeze(NKey)}. It holds the settings that are
+ * the same for every token, the issuer, audience, not before, expiration and signing key, and takes
+ * the subject, name and nats of each token as arguments. Nothing is shared between calls,
+ * so one instance can be used by any number of threads without locking.
+ */
+public class FrozenClaimIssuer {
+    private final String aud;
+    private final String jti;
+    private final Long iat;
+    private final Long exp;
+    private final Duration expiresIn;
+    private final String iss;
+    private final String nbf;
+    private final NKey signingKey;
+
+    FrozenClaimIssuer(ClaimIssuer issuer, NKey signingKey) throws GeneralSecurityException, IOException {
+        this.aud = issuer.aud;
+        this.jti = issuer.jti;
+        this.iat = issuer.iatInput;
+        this.exp = issuer.expInput;
+        this.expiresIn = issuer.expiresInInput;
+        this.iss = issuer.iss == null ? new String(signingKey.getPublicKey()) : issuer.iss;
+        this.nbf = issuer.nbf;
+        this.signingKey = signingKey;
+    }
+
+    /**
+     * Issue a JWT
+     * @param sub the subject, for instance the public user key
+     * @param nats the nats claim
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return a JWT
+     */
+    public String issueJwt(String sub, JsonSerializable nats) throws GeneralSecurityException, IOException {
+        return issueJwt(sub, null, nats);
+    }
+
+    /**
+     * Issue a JWT
+     * @param sub the subject, for instance the public user key
+     * @param name optional human-readable name
+     * @param nats the nats claim
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return a JWT
+     */
+    public String issueJwt(String sub, String name, JsonSerializable nats) throws GeneralSecurityException, IOException {
+        Claim claim = ClaimIssuer.resolveClaim(aud, jti, iat, exp, expiresIn, iss, name, nbf, sub, nats);
+        return ClaimIssuer.issueJwt(claim, signingKey);
+    }
+
+    public String getIss() {
+        return iss;
+    }
+
+    public String getAud() {
+        return aud;
+    }
+
+    public String getNbf() {
+        return nbf;
+    }
+
+    public Duration getExpiresIn() {
+        return expiresIn;
+    }
+
+    public NKey getSigningKey() {
+        return signingKey;
+    }
+}
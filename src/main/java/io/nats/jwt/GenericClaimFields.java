@@ -60,6 +60,18 @@ public abstract class GenericClaimFields<B> implements JsonSerializable {
         JsonWriteUtils.addField(sb, "version", version);
     }
 
+    protected int baseJsonSize() {
+        return ByteSink.stringsSize("tags", tags)
+            + ByteSink.fieldSize("type", type)
+            + ByteSink.fieldSize("version", version);
+    }
+
+    protected void baseJson(ByteSink sink) {
+        sink.addStrings("tags", tags);
+        sink.addField("type", type);
+        sink.addField("version", version);
+    }
+
     protected abstract B getThis();
 
     public B tags(String... tags) {
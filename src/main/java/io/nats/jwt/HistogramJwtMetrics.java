@@ -0,0 +1,200 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A dependency free {@link JwtMetrics} that records into lock free histograms,
+ * one per stage, one for issued token size and one for parsed json size per claim type,
+ * plus hit and miss counters per cache. Read it from a reporting thread at any time,
+ * or use it as a template for publishing to another metrics system.
+ */
+public class HistogramJwtMetrics implements JwtMetrics {
+    /**
+     * The claim type used for claims that have none
+     */
+    public static final String UNKNOWN_TYPE = "unknown";
+
+    private final Histogram[] stages;
+    private final Map<String, Histogram> issuedSizes = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> parsedSizes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cacheHits = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cacheMisses = new ConcurrentHashMap<>();
+
+    public HistogramJwtMetrics() {
+        stages = new Histogram[Stage.values().length];
+        for (int x = 0; x < stages.length; x++) {
+            stages[x] = new Histogram();
+        }
+    }
+
+    @Override
+    public void stage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void issued(String claimType, int tokenLength) {
+        histogram(issuedSizes, claimType).record(tokenLength);
+    }
+
+    @Override
+    public void parsed(String claimType, int jsonLength) {
+        histogram(parsedSizes, claimType).record(jsonLength);
+    }
+
+    @Override
+    public void cacheHit(String cache) {
+        cacheHits.computeIfAbsent(cache, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void cacheMiss(String cache) {
+        cacheMisses.computeIfAbsent(cache, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Get the timings of a stage, in nanoseconds
+     * @param stage the stage
+     * @return the histogram
+     */
+    public Histogram getStage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Get the sizes of issued tokens
+     * @param claimType the claim type, null for {@link #UNKNOWN_TYPE}
+     * @return the histogram, empty if no token of that type was issued
+     */
+    public Histogram getIssuedSizes(String claimType) {
+        return histogram(issuedSizes, claimType);
+    }
+
+    /**
+     * Get the sizes of parsed claim json
+     * @param claimType the claim type, null for {@link #UNKNOWN_TYPE}
+     * @return the histogram, empty if no claim of that type was parsed
+     */
+    public Histogram getParsedSizes(String claimType) {
+        return histogram(parsedSizes, claimType);
+    }
+
+    public long getCacheHits(String cache) {
+        LongAdder a = cacheHits.get(cache);
+        return a == null ? 0 : a.sum();
+    }
+
+    public long getCacheMisses(String cache) {
+        LongAdder a = cacheMisses.get(cache);
+        return a == null ? 0 : a.sum();
+    }
+
+    private static Histogram histogram(Map<String, Histogram> map, String claimType) {
+        return map.computeIfAbsent(claimType == null ? UNKNOWN_TYPE : claimType, k -> new Histogram());
+    }
+
+    /**
+     * A histogram with power of 2 buckets. Bucket 0 counts values up to 0,
+     * bucket b counts values from 2^(b-1) to 2^b - 1, so percentiles are accurate to within 2x,
+     * which is plenty to see which stage dominates or when something regresses.
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public Histogram() {
+            for (int x = 0; x < BUCKETS; x++) {
+                buckets[x] = new LongAdder();
+            }
+        }
+
+        /**
+         * Record a value, negative values are recorded as 0
+         * @param value the value
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets[BUCKETS - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long c = count.sum();
+            return c == 0 ? 0 : (double) sum.sum() / c;
+        }
+
+        /**
+         * Get the counts of each bucket
+         * @return the counts, index b counts values below 2^b
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKETS];
+            for (int x = 0; x < BUCKETS; x++) {
+                counts[x] = buckets[x].sum();
+            }
+            return counts;
+        }
+
+        /**
+         * Estimate a percentile
+         * @param percentile the percentile, from 0 to 100
+         * @return the upper bound of the bucket holding the percentile, never more than the max, 0 if empty
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    long upper = b == 0 ? 0 : (1L << b) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+}
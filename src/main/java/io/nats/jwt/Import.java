@@ -0,0 +1,129 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.List;
+import java.util.Objects;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+
+public class Import implements JsonSerializable {
+    public String name;
+    public String subject;
+    public String account;
+    public String token;
+    public String localSubject;
+    public String type;
+    public boolean share;
+
+    public static List<Import> optionalListOf(JsonValue jv) {
+        return JsonValueUtils.listOfOrNull(jv, Import::new);
+    }
+
+    public Import() {}
+
+    public Import(JsonValue jv) {
+        name = JsonValueUtils.readString(jv, "name");
+        subject = JsonValueUtils.readString(jv, "subject");
+        account = JsonValueUtils.readString(jv, "account");
+        token = JsonValueUtils.readString(jv, "token");
+        localSubject = JsonValueUtils.readString(jv, "local_subject");
+        type = JsonValueUtils.readString(jv, "type");
+        share = JsonValueUtils.readBoolean(jv, "share", false);
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addField(sb, "name", name);
+        JsonWriteUtils.addField(sb, "subject", subject);
+        JsonWriteUtils.addField(sb, "account", account);
+        JsonWriteUtils.addField(sb, "token", token);
+        JsonWriteUtils.addField(sb, "local_subject", localSubject);
+        JsonWriteUtils.addField(sb, "type", type);
+        JsonWriteUtils.addField(sb, "share", share);
+        return endJson(sb).toString();
+    }
+
+    public Import name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public Import subject(String subject) {
+        this.subject = subject;
+        return this;
+    }
+
+    public Import account(String account) {
+        this.account = account;
+        return this;
+    }
+
+    public Import token(String token) {
+        this.token = token;
+        return this;
+    }
+
+    public Import localSubject(String localSubject) {
+        this.localSubject = localSubject;
+        return this;
+    }
+
+    public Import type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public Import share(boolean share) {
+        this.share = share;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Import that = (Import) o;
+
+        if (share != that.share) return false;
+        if (!Objects.equals(name, that.name)) return false;
+        if (!Objects.equals(subject, that.subject)) return false;
+        if (!Objects.equals(account, that.account)) return false;
+        if (!Objects.equals(token, that.token)) return false;
+        if (!Objects.equals(localSubject, that.localSubject)) return false;
+        return Objects.equals(type, that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (subject != null ? subject.hashCode() : 0);
+        result = 31 * result + (account != null ? account.hashCode() : 0);
+        result = 31 * result + (token != null ? token.hashCode() : 0);
+        result = 31 * result + (localSubject != null ? localSubject.hashCode() : 0);
+        result = 31 * result + (type != null ? type.hashCode() : 0);
+        result = 31 * result + (share ? 1 : 0);
+        return result;
+    }
+}
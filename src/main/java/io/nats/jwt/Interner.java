@@ -0,0 +1,149 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.List;
+
+import static io.nats.jwt.JwtMetrics.INTERNER_CACHE;
+
+/**
+ * A bounded intern table for values that repeat across many parsed claims,
+ * for instance the server name, host and version or the client kind and lang
+ * that appear in every authorization request.
+ * <p>
+ * The table is direct mapped: a value hashes to exactly one slot and replaces whatever
+ * different value was there, so memory stays fixed no matter how many distinct values are seen.
+ * Only immutable values are stored, so the unsynchronized slot writes are benign and the
+ * instance can be shared by any number of parsing threads.
+ * <p>
+ * Only values with few distinct instances are interned, such as the server name, host and version,
+ * or the client kind, type and lang. Values that are secrets (passwords, tokens, signatures), unique
+ * per request or client (nonces, nkeys, mqtt ids) or large (certificates and verified chains) are not,
+ * they would only evict the values that do repeat.
+ * <p>
+ * Lookups are reported to {@link JwtMetrics} as hits and misses of {@link JwtMetrics#INTERNER_CACHE}.
+ */
+public class Interner {
+    /**
+     * An interner that does not intern, every value is returned as is.
+     */
+    public static final Interner NONE = new Interner(null, null);
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int MIN_SERVER_ID_CAPACITY = 16;
+
+    private final String[] strings;
+    private final ServerId[] serverIds;
+
+    private Interner(String[] strings, ServerId[] serverIds) {
+        this.strings = strings;
+        this.serverIds = serverIds;
+    }
+
+    /**
+     * Construct an interner with the default capacity
+     */
+    public Interner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct an interner
+     * @param capacity the number of string slots, rounded up to a power of 2
+     */
+    public Interner(int capacity) {
+        this(new String[tableSize(capacity)], new ServerId[tableSize(Math.max(MIN_SERVER_ID_CAPACITY, capacity / 64))]);
+    }
+
+    private static int tableSize(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Interner capacity must be greater than zero.");
+        }
+        return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static int slot(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    /**
+     * Get the canonical instance of a string
+     * @param s the string, may be null
+     * @return an equal string already in the table, or s
+     */
+    public String intern(String s) {
+        if (s == null || strings == null) {
+            return s;
+        }
+        int slot = slot(s.hashCode(), strings.length);
+        String existing = strings[slot];
+        if (s.equals(existing)) {
+            Metrics.cacheHit(INTERNER_CACHE);
+            return existing;
+        }
+        strings[slot] = s;
+        Metrics.cacheMiss(INTERNER_CACHE);
+        return s;
+    }
+
+    /**
+     * Replace every element of a list with its canonical instance
+     * @param list the list, may be null, must be modifiable if not empty
+     * @return the same list
+     */
+    public List<String> intern(List<String> list) {
+        if (list != null && strings != null) {
+            for (int x = 0; x < list.size(); x++) {
+                list.set(x, intern(list.get(x)));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Replace every element of an array with its canonical instance
+     * @param array the array, may be null
+     * @return the same array
+     */
+    public String[] intern(String[] array) {
+        if (array != null && strings != null) {
+            for (int x = 0; x < array.length; x++) {
+                array[x] = intern(array[x]);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Get the canonical instance of a server id, so that callers can
+     * key per server state by identity instead of deep equality.
+     * @param serverId the server id, may be null
+     * @return an equal server id already in the table, or serverId
+     */
+    public ServerId intern(ServerId serverId) {
+        if (serverId == null || serverIds == null) {
+            return serverId;
+        }
+        int slot = slot(serverId.hashCode(), serverIds.length);
+        ServerId existing = serverIds[slot];
+        if (serverId.equals(existing)) {
+            Metrics.cacheHit(INTERNER_CACHE);
+            return existing;
+        }
+        serverIds[slot] = serverId;
+        Metrics.cacheMiss(INTERNER_CACHE);
+        return serverId;
+    }
+}
@@ -0,0 +1,515 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import static io.nats.jwt.JwtUtils.currentTimeSeconds;
+import static io.nats.jwt.JwtUtils.getClaimBody;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An embedded, append-only store of issued JWTs, indexed by jti and by the latest token of each subject.
+ * <p>
+ * Tokens are appended to memory mapped segment files in a directory. Each record is
+ * <pre>
+ * int    record length, 0 marks the end of the segment
+ * int    crc32c of the rest of the record
+ * long   iat
+ * long   exp, 0 for none
+ * short  subject length, then the utf-8 subject
+ * short  jti length, then the utf-8 jti
+ *        the token, to the end of the record
+ * </pre>
+ * Appends only copy into the mapping, {@link #sync()} makes them durable. Concurrent syncs
+ * are grouped: a caller that finds its records already forced by another caller returns
+ * without forcing again. Lookups return read only views of the mapped token, no bytes are copied.
+ * <p>
+ * The index is in memory and is rebuilt when the store is opened by scanning the record
+ * headers, stopping at the first record that is torn or fails its crc.
+ * {@link #compact()} deletes sealed segments whose tokens have all expired and rewrites the
+ * live tokens of mostly expired ones. Views of a deleted segment stay readable, the mapping
+ * lives until the view is collected.
+ */
+public class IssuedJwtStore implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".jwts";
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final int CRC_START = 8;
+    private static final int MIN_SEGMENT_SIZE = 4096;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> byJti = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> bySubject = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private Segment active; // guarded by appendLock
+    private volatile long end; // the location after the last append, written under appendLock
+    private long synced; // guarded by syncLock
+    private volatile boolean closed;
+
+    private static class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        volatile int limit;
+        int syncedTo; // guarded by syncLock
+
+        Segment(int id, Path path, int size) throws IOException {
+            this.id = id;
+            this.path = path;
+            channel = FileChannel.open(path, CREATE, READ, WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    /**
+     * A view of one record
+     */
+    private static class Record {
+        final int length;
+        final long iat;
+        final long exp;
+        final String subject;
+        final String jti;
+        final int tokenOffset;
+
+        Record(ByteBuffer b, int pos) {
+            length = b.getInt(pos);
+            iat = b.getLong(pos + 8);
+            exp = b.getLong(pos + 16);
+            int p = pos + HEADER_SIZE;
+            int subLen = b.getShort(p) & 0xFFFF;
+            subject = subLen == 0 ? null : string(b, p + 2, subLen);
+            p += 2 + subLen;
+            int jtiLen = b.getShort(p) & 0xFFFF;
+            jti = string(b, p + 2, jtiLen);
+            tokenOffset = p + 2 + jtiLen;
+        }
+
+        boolean isLive(long now) {
+            return exp <= 0 || exp > now;
+        }
+    }
+
+    /**
+     * Open or create a store with {@link #DEFAULT_SEGMENT_SIZE} segments
+     * @param directory the directory of the segment files, created if needed
+     * @throws IOException if the directory or a segment can not be read or created
+     */
+    public IssuedJwtStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open or create a store
+     * @param directory the directory of the segment files, created if needed
+     * @param segmentSize the size of new segment files, which is also the largest record
+     * @throws IllegalArgumentException if the segment size is less than 4096
+     * @throws IOException if the directory or a segment can not be read or created
+     */
+    public IssuedJwtStore(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + ".");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                try {
+                    found.put(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), p);
+                }
+                catch (NumberFormatException ignore) {
+                    // not one of ours
+                }
+            }
+        }
+        for (Map.Entry<Integer, Path> e : found.entrySet()) {
+            Segment s = new Segment(e.getKey(), e.getValue(), 0);
+            segments.put(s.id, s);
+            rebuild(s);
+            active = s;
+        }
+        if (active == null) {
+            active = newSegment(0);
+        }
+        end = location(active.id, active.limit);
+    }
+
+    private void rebuild(Segment s) {
+        ByteBuffer b = s.buffer;
+        int cap = b.capacity();
+        int pos = 0;
+        while (pos + HEADER_SIZE <= cap) {
+            int len = b.getInt(pos);
+            if (len == 0) {
+                break;
+            }
+            if (len < HEADER_SIZE + 4 || len > cap - pos || crc(b, pos, len) != b.getInt(pos + 4)) {
+                // a torn append, new appends overwrite it and the crc rejects whatever is left of it
+                break;
+            }
+            index(new Record(b, pos), location(s.id, pos));
+            pos += len;
+        }
+        s.limit = pos;
+        s.syncedTo = pos;
+    }
+
+    private void index(Record r, long loc) {
+        byJti.put(r.jti, loc);
+        if (r.subject != null) {
+            bySubject.merge(r.subject, loc, (prev, cur) -> iat(prev) > r.iat ? prev : cur);
+        }
+    }
+
+    /**
+     * Append an issued token, parsing it for its jti, subject, iat and exp
+     * @param jwt the token
+     * @throws JsonParseException if the claim json can not be parsed
+     * @throws IOException if a new segment can not be created
+     * @return the location of the record
+     */
+    public long append(String jwt) throws JsonParseException, IOException {
+        return append(jwt, new Claim(getClaimBody(jwt)));
+    }
+
+    /**
+     * Append an issued token whose claim is already known
+     * @param jwt the token
+     * @param claim the claim of the token
+     * @throws IllegalArgumentException if the claim has no jti, or the record does not fit in a segment
+     * @throws IOException if a new segment can not be created
+     * @return the location of the record
+     */
+    public long append(String jwt, Claim claim) throws IOException {
+        if (claim.jti == null) {
+            throw new IllegalArgumentException("Claim must have a jti.");
+        }
+        byte[] sub = claim.sub == null ? new byte[0] : claim.sub.getBytes(StandardCharsets.UTF_8);
+        byte[] jti = claim.jti.getBytes(StandardCharsets.UTF_8);
+        int len = HEADER_SIZE + 2 + sub.length + 2 + jti.length + jwt.length();
+        if (len > segmentSize || sub.length > 0xFFFF || jti.length > 0xFFFF) {
+            throw new IllegalArgumentException("Token is too large for the store.");
+        }
+        long exp = Math.max(0, claim.exp);
+        synchronized (appendLock) {
+            checkOpen();
+            Segment s = active;
+            if (s.buffer.capacity() - s.limit < len) {
+                s = roll();
+            }
+            ByteBuffer b = s.buffer;
+            int pos = s.limit;
+            b.putLong(pos + 8, claim.iat);
+            b.putLong(pos + 16, exp);
+            int p = pos + HEADER_SIZE;
+            b.putShort(p, (short) sub.length);
+            b.put(p + 2, sub);
+            p += 2 + sub.length;
+            b.putShort(p, (short) jti.length);
+            b.put(p + 2, jti);
+            p += 2 + jti.length;
+            for (int x = 0; x < jwt.length(); x++) {
+                b.put(p + x, (byte) jwt.charAt(x));
+            }
+            b.putInt(pos, len);
+            b.putInt(pos + 4, crc(b, pos, len));
+            s.limit = pos + len;
+            end = location(s.id, s.limit);
+
+            long loc = location(s.id, pos);
+            byJti.put(claim.jti, loc);
+            if (claim.sub != null) {
+                bySubject.merge(claim.sub, loc, (prev, cur) -> iat(prev) > claim.iat ? prev : cur);
+            }
+            return loc;
+        }
+    }
+
+    // guarded by appendLock
+    private Segment roll() throws IOException {
+        Segment sealed = active;
+        synchronized (syncLock) {
+            forceSegment(sealed);
+        }
+        active = newSegment(sealed.id + 1);
+        return active;
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment s = new Segment(id, directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), segmentSize);
+        s.limit = 0;
+        segments.put(id, s);
+        return s;
+    }
+
+    /**
+     * Force everything appended so far to storage. Callers that arrive while another caller
+     * is forcing wait for it and return without forcing again if it covered their appends.
+     * @throws IOException if the segment can not be forced
+     */
+    public void sync() throws IOException {
+        // never takes appendLock, the lock order is appendLock then syncLock
+        long target = end;
+        synchronized (syncLock) {
+            if (synced >= target) {
+                return;
+            }
+            // segments before the one at the end were forced when they were rolled
+            long current = end;
+            Segment s = segments.get(segmentId(current));
+            if (s != null) {
+                forceSegment(s);
+            }
+            synced = current;
+        }
+    }
+
+    // guarded by syncLock
+    private void forceSegment(Segment s) {
+        int limit = s.limit;
+        if (limit > s.syncedTo) {
+            s.buffer.force(s.syncedTo, limit - s.syncedTo);
+            s.syncedTo = limit;
+        }
+    }
+
+    /**
+     * Get a read only view of a token, without copying it
+     * @param jti the jti of the token
+     * @return the token as ascii bytes or null if not found
+     */
+    public ByteBuffer getToken(String jti) {
+        return token(byJti.get(jti));
+    }
+
+    /**
+     * Get a read only view of the token of the subject with the latest iat, without copying it
+     * @param subject the subject, usually a user public key
+     * @return the token as ascii bytes or null if not found
+     */
+    public ByteBuffer getLatestToken(String subject) {
+        return token(bySubject.get(subject));
+    }
+
+    /**
+     * @param jti the jti of the token
+     * @return the token or null if not found
+     */
+    public String getJwt(String jti) {
+        return string(getToken(jti));
+    }
+
+    /**
+     * @param subject the subject, usually a user public key
+     * @return the token of the subject with the latest iat or null if not found
+     */
+    public String getLatestJwt(String subject) {
+        return string(getLatestToken(subject));
+    }
+
+    private ByteBuffer token(Long loc) {
+        if (loc == null) {
+            return null;
+        }
+        Segment s = segments.get(segmentId(loc));
+        if (s == null) {
+            return null;
+        }
+        int pos = offset(loc);
+        Record r = new Record(s.buffer, pos);
+        return s.buffer.slice(r.tokenOffset, pos + r.length - r.tokenOffset).asReadOnlyBuffer();
+    }
+
+    private long iat(long loc) {
+        Segment s = segments.get(segmentId(loc));
+        return s == null ? Long.MIN_VALUE : s.buffer.getLong(offset(loc) + 8);
+    }
+
+    /**
+     * @return the number of tokens indexed by jti
+     */
+    public int size() {
+        return byJti.size();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Remove expired tokens, as of {@link JwtUtils#currentTimeSeconds()}, from the sealed segments.
+     * A segment with no live tokens is deleted, one where live tokens take less than half the
+     * used space has them appended again and is then deleted.
+     * @throws IOException if a segment can not be deleted or a new one created
+     * @return the number of segments deleted
+     */
+    public synchronized int compact() throws IOException {
+        long now = currentTimeSeconds();
+        List<Segment> sealed = new ArrayList<>();
+        synchronized (appendLock) {
+            checkOpen();
+            for (Segment s : segments.values()) {
+                if (s != active) {
+                    sealed.add(s);
+                }
+            }
+        }
+        int deleted = 0;
+        for (Segment s : sealed) {
+            ByteBuffer b = s.buffer;
+            List<Record> records = new ArrayList<>();
+            long liveBytes = 0;
+            for (int pos = 0; pos < s.limit; ) {
+                Record r = new Record(b, pos);
+                records.add(r);
+                if (r.isLive(now)) {
+                    liveBytes += r.length;
+                }
+                pos += r.length;
+            }
+            if (s.limit > 0 && liveBytes * 2 >= s.limit) {
+                continue;
+            }
+            int pos = 0;
+            for (Record r : records) {
+                long loc = location(s.id, pos);
+                if (r.isLive(now)) {
+                    long moved = copy(b, pos, r);
+                    byJti.replace(r.jti, loc, moved);
+                    if (r.subject != null) {
+                        bySubject.replace(r.subject, loc, moved);
+                    }
+                }
+                else {
+                    byJti.remove(r.jti, loc);
+                    if (r.subject != null) {
+                        bySubject.remove(r.subject, loc);
+                    }
+                }
+                pos += r.length;
+            }
+            // the copies must be durable before the only other copy is deleted
+            synchronized (appendLock) {
+                synchronized (syncLock) {
+                    forceSegment(active);
+                }
+            }
+            segments.remove(s.id);
+            s.channel.close();
+            Files.deleteIfExists(s.path);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    private long copy(ByteBuffer src, int pos, Record r) throws IOException {
+        synchronized (appendLock) {
+            checkOpen();
+            Segment s = active;
+            if (s.buffer.capacity() - s.limit < r.length) {
+                s = roll();
+            }
+            int at = s.limit;
+            s.buffer.put(at, src, pos, r.length);
+            s.limit = at + r.length;
+            end = location(s.id, s.limit);
+            return location(s.id, at);
+        }
+    }
+
+    /**
+     * Sync and close the segment files
+     * @throws IOException if a segment can not be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (syncLock) {
+                for (Segment s : segments.values()) {
+                    forceSegment(s);
+                    s.channel.close();
+                }
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store is closed.");
+        }
+    }
+
+    private static int crc(ByteBuffer b, int pos, int len) {
+        CRC32C crc = new CRC32C();
+        crc.update(b.slice(pos + CRC_START, len - CRC_START));
+        return (int) crc.getValue();
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentId(long loc) {
+        return (int) (loc >>> 32);
+    }
+
+    private static int offset(long loc) {
+        return (int) loc;
+    }
+
+    private static String string(ByteBuffer b, int pos, int len) {
+        byte[] bytes = new byte[len];
+        b.get(pos, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer token) {
+        return token == null ? null : string(token, 0, token.remaining());
+    }
+}
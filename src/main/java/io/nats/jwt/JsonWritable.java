@@ -0,0 +1,35 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonSerializable;
+
+/**
+ * A {@link JsonSerializable} that can also write its json as utf-8 straight into a {@link ByteSink}.
+ * Nested values write into the same sink, so no intermediate strings are made.
+ */
+public interface JsonWritable extends JsonSerializable {
+    /**
+     * Write exactly the utf-8 bytes of {@link #toJson()} to the sink
+     * @param sink the sink
+     */
+    void writeJson(ByteSink sink);
+
+    /**
+     * The exact size of the utf-8 json, or a tight upper bound, computed without serializing,
+     * so a buffer can be allocated once at the right size. See the size methods of {@link ByteSink}.
+     * @return the size in bytes
+     */
+    int maxJsonSize();
+}
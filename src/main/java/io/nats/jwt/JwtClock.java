@@ -0,0 +1,36 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+/**
+ * The source of time for everything in the library that depends on it: the iat of issued JWTs,
+ * exp from expiresIn, expiration checks and signing key overlaps.
+ * Install one with {@link JwtUtils#setClock(JwtClock)}.
+ * <p>
+ * {@link #SYSTEM} reads the system clock every time. {@link CoarseJwtClock} reads a value a
+ * background thread keeps current, for services issuing at high rates, and {@link ManualJwtClock}
+ * only moves when told to, for deterministic tests and replays.
+ */
+public interface JwtClock {
+    /**
+     * The system clock
+     */
+    JwtClock SYSTEM = () -> System.currentTimeMillis() / 1000;
+
+    /**
+     * Get the current time
+     * @return the time in seconds since epoch
+     */
+    long currentTimeSeconds();
+}
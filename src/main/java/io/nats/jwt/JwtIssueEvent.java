@@ -0,0 +1,70 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for issuing a JWT, emitted by {@link ClaimIssuer#issueJwt}
+ * and {@link CalloutResponder}. The event duration is the whole issue, the stage fields
+ * split it up. Configure it as io.nats.jwt.Issue like any other event, for instance with a
+ * threshold so that only slow issues are recorded.
+ */
+@Name("io.nats.jwt.Issue")
+@Label("JWT Issue")
+@Category({"NATS", "JWT"})
+@Description("A JWT was issued and signed")
+@StackTrace(false)
+class JwtIssueEvent extends Event {
+    @Label("Claim Type")
+    String claimType;
+
+    @Label("Issuer")
+    String issuer;
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Token Size")
+    @DataAmount
+    int tokenSize;
+
+    @Label("Serialize")
+    @Timespan
+    long serializeTime;
+
+    @Label("Digest")
+    @Timespan
+    long digestTime;
+
+    @Label("Encode")
+    @Timespan
+    long encodeTime;
+
+    @Label("Sign")
+    @Timespan
+    long signTime;
+
+    // not recorded, true when the event or JwtMetrics was on at the start
+    transient boolean started;
+
+    void stage(JwtMetrics.Stage stage, long nanos) {
+        switch (stage) {
+            case SERIALIZE: serializeTime += nanos; break;
+            case DIGEST: digestTime += nanos; break;
+            case ENCODE: encodeTime += nanos; break;
+            case SIGN: signTime += nanos; break;
+        }
+    }
+}
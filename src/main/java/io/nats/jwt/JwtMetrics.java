@@ -0,0 +1,100 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+/**
+ * Receives timings, sizes and cache events from the hot paths of the library.
+ * Install an implementation with {@link JwtUtils#setMetrics(JwtMetrics)}.
+ * <p>
+ * Every method has an empty default, so an implementation only overrides what it publishes.
+ * When {@link #NONE} is installed, the default, nothing is measured at all: no clock is read
+ * and no method is called, so the cost is one field read per operation.
+ * <p>
+ * Methods are called on the thread doing the work, so they must be thread safe and fast,
+ * for instance recording into a histogram. {@link HistogramJwtMetrics} is a dependency free
+ * example. Publishing to a metrics library is just as short, for instance with Micrometer:
+ * <pre>
+ * JwtUtils.setMetrics(new JwtMetrics() {
+ *     public void stage(Stage stage, long nanos) {
+ *         registry.timer("nats.jwt.stage", "stage", stage.name()).record(nanos, TimeUnit.NANOSECONDS);
+ *     }
+ *     public void issued(String claimType, int tokenLength) {
+ *         registry.summary("nats.jwt.issued.size", "type", claimType).record(tokenLength);
+ *     }
+ * });
+ * </pre>
+ */
+public interface JwtMetrics {
+    /**
+     * A step of issuing or reading a JWT. A stage can be reported more than once for one token,
+     * for instance the claim is serialized once to compute the jti and again to encode it.
+     */
+    enum Stage {
+        /** Building claim json */
+        SERIALIZE,
+        /** The SHA-256 and base32 of the jti */
+        DIGEST,
+        /** The utf-8 and base64url encoding of the token parts */
+        ENCODE,
+        /** Ed25519 signing */
+        SIGN,
+        /** Parsing claim json into objects */
+        PARSE,
+        /** Ed25519 signature verification */
+        VERIFY
+    }
+
+    /**
+     * The cache name reported by {@link Interner}
+     */
+    String INTERNER_CACHE = "interner";
+
+    /**
+     * Metrics that are not collected
+     */
+    JwtMetrics NONE = new JwtMetrics() {};
+
+    /**
+     * A stage of an operation completed
+     * @param stage the stage
+     * @param nanos the elapsed time in nanoseconds
+     */
+    default void stage(Stage stage, long nanos) {}
+
+    /**
+     * A JWT was issued
+     * @param claimType the nats type of the claim, for instance user, may be null
+     * @param tokenLength the length of the token
+     */
+    default void issued(String claimType, int tokenLength) {}
+
+    /**
+     * A claim was parsed
+     * @param claimType the nats type of the claim, may be null
+     * @param jsonLength the length of the claim json
+     */
+    default void parsed(String claimType, int jsonLength) {}
+
+    /**
+     * A lookup found its value in a cache
+     * @param cache the cache name
+     */
+    default void cacheHit(String cache) {}
+
+    /**
+     * A lookup did not find its value in a cache
+     * @param cache the cache name
+     */
+    default void cacheMiss(String cache) {}
+}
@@ -0,0 +1,41 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for parsing claim json, emitted by the Claim constructors that
+ * take json text. The event duration is the parse time. Configure it as io.nats.jwt.Parse.
+ * It is only made while a recording has it enabled, parses are too frequent to allocate it otherwise.
+ */
+@Name("io.nats.jwt.Parse")
+@Label("JWT Parse")
+@Category({"NATS", "JWT"})
+@Description("Claim json was parsed")
+@StackTrace(false)
+class JwtParseEvent extends Event {
+    @Label("Claim Type")
+    String claimType;
+
+    @Label("Issuer")
+    String issuer;
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Json Size")
+    @DataAmount
+    int jsonSize;
+}
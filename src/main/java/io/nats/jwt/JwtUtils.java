@@ -19,8 +19,11 @@ import io.nats.nkey.NKeyProvider;
 import io.nats.nkey.NKeyType;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.Base64;
 
 import static io.nats.json.Encoding.base64UrlDecodeToString;
 import static io.nats.json.Encoding.base64UrlEncodeToString;
@@ -29,16 +32,39 @@ public abstract class JwtUtils {
     public static final String USER_CLAIM_TYPE = "user";
     public static final String AUTH_REQUEST_CLAIM_TYPE = "authorization_request";
     public static final String AUTH_RESPONSE_CLAIM_TYPE = "authorization_response";
+    public static final String ACCOUNT_CLAIM_TYPE = "account";
+    public static final String OPERATOR_CLAIM_TYPE = "operator";
+    public static final String ACTIVATION_CLAIM_TYPE = "activation";
     public static final String ENCODED_CLAIM_HEADER = base64UrlEncodeToString("{\"typ\":\"JWT\", \"alg\":\"ed25519-nkey\"}");
     public static final long NO_LIMIT = -1;
+    public static final int DEFAULT_WARM_UP_CYCLES = 2_000;
 
     private JwtUtils() {} /* ensures cannot be constructed */
 
-    private static NKeyProvider PROVIDER;
+    static NKeyProvider PROVIDER;
     static {
         PROVIDER = NKeyProvider.getProvider();
     }
 
+    private static volatile JwtMetrics METRICS = JwtMetrics.NONE;
+    private static volatile JwtClock CLOCK = JwtClock.SYSTEM;
+
+    /**
+     * Install the metrics that receive timings and events from issuing and parsing
+     * @param metrics the metrics, null for {@link JwtMetrics#NONE}
+     */
+    public static void setMetrics(JwtMetrics metrics) {
+        METRICS = metrics == null ? JwtMetrics.NONE : metrics;
+    }
+
+    /**
+     * Get the installed metrics
+     * @return the metrics, never null
+     */
+    public static JwtMetrics getMetrics() {
+        return METRICS;
+    }
+
     /**
      * Format string with `%s` placeholder for the JWT token followed
      * by the user NKey seed. This can be directly used as such:
@@ -49,6 +75,8 @@ public abstract class JwtUtils {
      * String jwt = issueUserJWT(signingKey, accountId, new String(userKey.getPublicKey()));
      * String.format(JwtUtils.NATS_USER_JWT_FORMAT, jwt, new String(userKey.getSeed()));
      * </pre>
+     * To write many creds, or to keep the seed out of strings, use {@link CredsWriter}
+     * and {@link CredsReader}.
      */
     public static final String NATS_USER_JWT_FORMAT = """
         -----BEGIN NATS USER JWT-----
@@ -67,11 +95,27 @@ public abstract class JwtUtils {
         """;
 
     /**
-     * Get the current time in seconds since epoch. Used for issue time.
+     * Get the current time in seconds since epoch from the installed {@link JwtClock}. Used for issue time.
      * @return the time
      */
     public static long currentTimeSeconds() {
-        return System.currentTimeMillis() / 1000;
+        return CLOCK.currentTimeSeconds();
+    }
+
+    /**
+     * Install the clock used for issue times, expiration and expiration checks
+     * @param clock the clock, null for {@link JwtClock#SYSTEM}
+     */
+    public static void setClock(JwtClock clock) {
+        CLOCK = clock == null ? JwtClock.SYSTEM : clock;
+    }
+
+    /**
+     * Get the installed clock
+     * @return the clock, never null
+     */
+    public static JwtClock getClock() {
+        return CLOCK;
     }
 
     /**
@@ -207,15 +251,22 @@ public abstract class JwtUtils {
             throw new IllegalArgumentException("issueUserJWT requires an account key for the accountId parameter, but got " + accountKey.getType());
         }
         // Validate the publicUserKey:
+        validateUserKey(publicUserKey);
+
+        String accSigningKeyPub = new String(signingKey.getPublicKey());
+
+        return issueValidatedUserJWT(signingKey, accSigningKeyPub, publicUserKey, name, expiration, issuedAt, audience, nats);
+    }
+
+    static void validateUserKey(String publicUserKey) {
         NKey userKey = PROVIDER.fromPublicKey(publicUserKey.toCharArray());
         if (userKey.getType() != NKeyType.USER) {
             throw new IllegalArgumentException("issueUserJWT requires a user key for the publicUserKey parameter, but got " + userKey.getType());
         }
+    }
 
-        String accSigningKeyPub = new String(signingKey.getPublicKey());
-
+    static String issueValidatedUserJWT(NKey signingKey, String accSigningKeyPub, String publicUserKey, String name, Duration expiration, Long issuedAt, String audience, UserClaim nats) throws GeneralSecurityException, IOException {
         String claimName = name == null || name.trim().isEmpty() ? publicUserKey : name;
-
         return issueJWT(signingKey, publicUserKey, claimName, expiration, issuedAt, accSigningKeyPub, audience, nats);
     }
 
@@ -263,6 +314,97 @@ public abstract class JwtUtils {
             .issueJwt(signingKey);
     }
 
+    /**
+     * Verify the signature of a JWT. Only the signature is checked, not the claims,
+     * for instance not whether the token has expired.
+     * @param jwt the encoded jwt string
+     * @param publicKey the key of the issuer, for instance from the public key in the iss claim
+     * @throws IllegalArgumentException if the jwt is not three dot separated parts or the signature is not base64url
+     * @throws GeneralSecurityException if the key can not be used for verifying.
+     * @throws IOException if the key verify method throws this exception.
+     * @return true if the signature is valid
+     */
+    public static boolean verifySignature(String jwt, NKey publicKey) throws GeneralSecurityException, IOException {
+        JwtMetrics metrics = METRICS;
+        JwtVerifyEvent event = new JwtVerifyEvent();
+        long start = Metrics.start(metrics, event);
+
+        int dot = jwt.lastIndexOf('.');
+        if (dot < 0 || jwt.indexOf('.') == dot) {
+            throw new IllegalArgumentException("Invalid JWT, expected header.body.signature");
+        }
+        byte[] signed = jwt.substring(0, dot).getBytes(StandardCharsets.US_ASCII);
+        byte[] signature = Base64.getUrlDecoder().decode(jwt.substring(dot + 1));
+        boolean valid = publicKey.verify(signed, signature);
+
+        Metrics.verified(metrics, event, start, publicKey, jwt.length(), valid);
+        return valid;
+    }
+
+    /**
+     * Warm up with {@link #DEFAULT_WARM_UP_CYCLES} cycles. See {@link #warmUp(int)}
+     * @throws GeneralSecurityException if a provider is missing or broken
+     * @throws IOException if the key provider throws this exception
+     * @return how long the warm-up took
+     */
+    public static Duration warmUp() throws GeneralSecurityException, IOException {
+        return warmUp(DEFAULT_WARM_UP_CYCLES);
+    }
+
+    /**
+     * Initialize the key and digest providers and run representative cycles of issuing,
+     * parsing and verifying user, authorization request and authorization response claims,
+     * so that class loading, provider lookup and JIT compilation happen before real traffic.
+     * Call it during startup, before reporting ready.
+     * <p>
+     * The cycles use throwaway keys created for the call and are reported to {@link JwtMetrics} and
+     * flight recorder like any other work, so call it before installing metrics
+     * if warm-up should not show up in them.
+     * @param cycles the number of cycles, 0 to only initialize the providers
+     * @throws GeneralSecurityException if a provider is missing or broken
+     * @throws IOException if the key provider throws this exception
+     * @throws IllegalStateException if a warm-up token does not verify, which means the key provider is broken
+     * @return how long the warm-up took
+     */
+    public static Duration warmUp(int cycles) throws GeneralSecurityException, IOException {
+        long start = System.nanoTime();
+
+        MessageDigest.getInstance("SHA-256");
+        NKey accountKey = PROVIDER.createAccount();
+        NKey userKey = PROVIDER.createUser();
+        String accountPub = new String(accountKey.getPublicKey());
+        String userPub = new String(userKey.getPublicKey());
+        NKey verifyKey = PROVIDER.fromPublicKey(accountPub.toCharArray());
+
+        UserClaim userClaim = new UserClaim(accountPub)
+            .pub(new Permission().allow("warm-up.>", "_INBOX.>").deny("warm-up.deny"))
+            .sub(new Permission().allow("_INBOX.>"))
+            .tags("warm-up");
+        AuthorizationRequest request = new AuthorizationRequest()
+            .userNkey(userPub)
+            .requestNonce("warm-up");
+        ClaimIssuer requestIssuer = new ClaimIssuer().aud("nats-authorization-request").iss(accountPub).sub(accountPub).nats(request);
+        ClaimIssuer userIssuer = new ClaimIssuer().aud(accountPub).iss(accountPub).sub(userPub).expiresIn(Duration.ofMinutes(1)).nats(userClaim);
+        ClaimIssuer responseIssuer = new ClaimIssuer().aud(accountPub).iss(accountPub).sub(userPub).nats(new AuthorizationResponse());
+
+        for (int x = 0; x < cycles; x++) {
+            String userJwt = issueUserJWT(accountKey, userPub, "warm-up", Duration.ofMinutes(1), null, null, userClaim);
+            new Claim(getClaimBody(userJwt));
+
+            String requestJwt = requestIssuer.issueJwt(accountKey);
+            new Claim(getClaimBody(requestJwt));
+
+            String responseJwt = new String(CalloutResponder.respond(userIssuer, accountKey, responseIssuer, accountKey), StandardCharsets.UTF_8);
+            new Claim(getClaimBody(responseJwt));
+
+            if (!verifySignature(userJwt, verifyKey) || !verifySignature(responseJwt, verifyKey)) {
+                throw new IllegalStateException("Warm-up token did not verify.");
+            }
+        }
+
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
     /**
      * Get the claim body from a JWT
      * @param jwt the encoded jwt string
@@ -0,0 +1,41 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for checking the signature of a JWT, emitted by
+ * {@link JwtUtils#verifySignature}. The event duration is the verify time.
+ * Configure it as io.nats.jwt.Verify.
+ */
+@Name("io.nats.jwt.Verify")
+@Label("JWT Verify")
+@Category({"NATS", "JWT"})
+@Description("The signature of a JWT was verified")
+@StackTrace(false)
+class JwtVerifyEvent extends Event {
+    @Label("Issuer")
+    String issuer;
+
+    @Label("Token Size")
+    @DataAmount
+    int tokenSize;
+
+    @Label("Valid")
+    boolean valid;
+
+    // not recorded, true when the event or JwtMetrics was on at the start
+    transient boolean started;
+}
@@ -0,0 +1,57 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only changes when it is set or advanced, for deterministic tests
+ * and for replaying recorded load at its original times.
+ */
+public class ManualJwtClock implements JwtClock {
+    private final AtomicLong seconds;
+
+    /**
+     * Construct a clock
+     * @param seconds the time in seconds since epoch
+     */
+    public ManualJwtClock(long seconds) {
+        this.seconds = new AtomicLong(seconds);
+    }
+
+    @Override
+    public long currentTimeSeconds() {
+        return seconds.get();
+    }
+
+    /**
+     * Set the time
+     * @param seconds the time in seconds since epoch
+     * @return this clock
+     */
+    public ManualJwtClock set(long seconds) {
+        this.seconds.set(seconds);
+        return this;
+    }
+
+    /**
+     * Move the time, whole seconds only
+     * @param amount the amount, may be negative
+     * @return the new time in seconds since epoch
+     */
+    public long advance(Duration amount) {
+        return seconds.addAndGet(amount.getSeconds());
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import static io.nats.jwt.JwtMetrics.NONE;
+
+/**
+ * Timing helpers for the instrumented code paths, feeding both the installed
+ * {@link JwtMetrics} and the flight recorder events. An issue or verify event is marked
+ * started when either was on when the operation started, otherwise nothing is measured
+ * or reported. A parse only makes its event while a recording has it enabled.
+ */
+abstract class Metrics {
+    private Metrics() {} /* ensures cannot be constructed */
+
+    private static final EventType PARSE_EVENT = EventType.getEventType(JwtParseEvent.class);
+
+    private static boolean begin(JwtMetrics metrics, Event event) {
+        if (event.isEnabled()) {
+            event.begin();
+            return true;
+        }
+        return metrics != NONE;
+    }
+
+    static long start(JwtMetrics metrics, JwtIssueEvent event) {
+        event.started = begin(metrics, event);
+        return event.started ? System.nanoTime() : 0;
+    }
+
+    static long start(JwtMetrics metrics, JwtVerifyEvent event) {
+        event.started = begin(metrics, event);
+        return event.started ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Report a stage that started at start
+     * @return the start of the next stage
+     */
+    static long lap(JwtMetrics metrics, JwtIssueEvent event, JwtMetrics.Stage stage, long start) {
+        if (!event.started) {
+            return start;
+        }
+        long now = System.nanoTime();
+        metrics.stage(stage, now - start);
+        event.stage(stage, now - start);
+        return now;
+    }
+
+    static void issued(JwtMetrics metrics, JwtIssueEvent event, long start, Claim claim, int tokenLength) {
+        if (event.started) {
+            metrics.issued(claim.type, tokenLength);
+            if (event.shouldCommit()) {
+                event.claimType = claim.type;
+                event.issuer = claim.iss;
+                event.subject = claim.sub;
+                event.tokenSize = tokenLength;
+                event.commit();
+            }
+        }
+    }
+
+    static void cacheHit(String cache) {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        if (metrics != NONE) {
+            metrics.cacheHit(cache);
+        }
+    }
+
+    static void cacheMiss(String cache) {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        if (metrics != NONE) {
+            metrics.cacheMiss(cache);
+        }
+    }
+
+    /**
+     * @return a started parse event, or null if no recording has it enabled
+     */
+    static JwtParseEvent startParse() {
+        if (!PARSE_EVENT.isEnabled()) {
+            return null;
+        }
+        JwtParseEvent event = new JwtParseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void parsed(long start, JwtParseEvent event, Claim claim, int jsonLength) {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        if (metrics != NONE) {
+            metrics.stage(JwtMetrics.Stage.PARSE, System.nanoTime() - start);
+            metrics.parsed(claim.type, jsonLength);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.claimType = claim.type;
+            event.issuer = claim.iss;
+            event.subject = claim.sub;
+            event.jsonSize = jsonLength;
+            event.commit();
+        }
+    }
+
+    static void verified(JwtMetrics metrics, JwtVerifyEvent event, long start, NKey key, int tokenLength, boolean valid) throws GeneralSecurityException, IOException {
+        if (event.started) {
+            metrics.stage(JwtMetrics.Stage.VERIFY, System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.issuer = new String(key.getPublicKey());
+                event.tokenSize = tokenLength;
+                event.valid = valid;
+                event.commit();
+            }
+        }
+    }
+}
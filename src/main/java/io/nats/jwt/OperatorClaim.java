@@ -0,0 +1,146 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonValue;
+import io.nats.json.JsonValueUtils;
+import io.nats.json.JsonWriteUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static io.nats.json.JsonWriteUtils.beginJson;
+import static io.nats.json.JsonWriteUtils.endJson;
+import static io.nats.jwt.JwtUtils.OPERATOR_CLAIM_TYPE;
+
+public class OperatorClaim extends GenericClaimFields<OperatorClaim> {
+    public List<String> signingKeys;            // Operator
+    public String accountServerUrl;             // Operator
+    public List<String> operatorServiceUrls;    // Operator
+    public String systemAccount;                // Operator
+    public String assertServerVersion;          // Operator
+    public boolean strictSigningKeyUsage;       // Operator
+
+    public OperatorClaim() {
+        super(OPERATOR_CLAIM_TYPE, 2);
+    }
+
+    public OperatorClaim(JsonValue jv) {
+        super(jv, OPERATOR_CLAIM_TYPE, 2);
+        signingKeys = JsonValueUtils.readStringListOrNull(jv, "signing_keys");
+        accountServerUrl = JsonValueUtils.readString(jv, "account_server_url");
+        operatorServiceUrls = JsonValueUtils.readStringListOrNull(jv, "operator_service_urls");
+        systemAccount = JsonValueUtils.readString(jv, "system_account");
+        assertServerVersion = JsonValueUtils.readString(jv, "assert_server_version");
+        strictSigningKeyUsage = JsonValueUtils.readBoolean(jv, "strict_signing_key_usage", false);
+    }
+
+    @Override
+    protected OperatorClaim getThis() {
+        return this;
+    }
+
+    @Override
+    @NonNull
+    public String toJson() {
+        StringBuilder sb = beginJson();
+        JsonWriteUtils.addStrings(sb, "signing_keys", signingKeys);
+        JsonWriteUtils.addField(sb, "account_server_url", accountServerUrl);
+        JsonWriteUtils.addStrings(sb, "operator_service_urls", operatorServiceUrls);
+        JsonWriteUtils.addField(sb, "system_account", systemAccount);
+        JsonWriteUtils.addField(sb, "assert_server_version", assertServerVersion);
+        JsonWriteUtils.addField(sb, "strict_signing_key_usage", strictSigningKeyUsage);
+        baseJson(sb);
+        return endJson(sb).toString();
+    }
+
+    public OperatorClaim signingKeys(String... signingKeys) {
+        this.signingKeys = new ArrayList<>(Arrays.asList(signingKeys));
+        return this;
+    }
+
+    public OperatorClaim signingKeys(List<String> signingKeys) {
+        this.signingKeys = signingKeys;
+        return this;
+    }
+
+    public OperatorClaim accountServerUrl(String accountServerUrl) {
+        this.accountServerUrl = accountServerUrl;
+        return this;
+    }
+
+    public OperatorClaim operatorServiceUrls(String... operatorServiceUrls) {
+        this.operatorServiceUrls = new ArrayList<>(Arrays.asList(operatorServiceUrls));
+        return this;
+    }
+
+    public OperatorClaim operatorServiceUrls(List<String> operatorServiceUrls) {
+        this.operatorServiceUrls = operatorServiceUrls;
+        return this;
+    }
+
+    public OperatorClaim systemAccount(String systemAccount) {
+        this.systemAccount = systemAccount;
+        return this;
+    }
+
+    public OperatorClaim assertServerVersion(String assertServerVersion) {
+        this.assertServerVersion = assertServerVersion;
+        return this;
+    }
+
+    public OperatorClaim strictSigningKeyUsage(boolean strictSigningKeyUsage) {
+        this.strictSigningKeyUsage = strictSigningKeyUsage;
+        return this;
+    }
+
+    /**
+     * Take an immutable snapshot of this OperatorClaim
+     * @return the snapshot
+     */
+    public ClaimSnapshot<OperatorClaim> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        OperatorClaim that = (OperatorClaim) o;
+
+        if (strictSigningKeyUsage != that.strictSigningKeyUsage) return false;
+        if (!Objects.equals(signingKeys, that.signingKeys)) return false;
+        if (!Objects.equals(accountServerUrl, that.accountServerUrl)) return false;
+        if (!Objects.equals(operatorServiceUrls, that.operatorServiceUrls)) return false;
+        if (!Objects.equals(systemAccount, that.systemAccount)) return false;
+        return Objects.equals(assertServerVersion, that.assertServerVersion);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (signingKeys != null ? signingKeys.hashCode() : 0);
+        result = 31 * result + (accountServerUrl != null ? accountServerUrl.hashCode() : 0);
+        result = 31 * result + (operatorServiceUrls != null ? operatorServiceUrls.hashCode() : 0);
+        result = 31 * result + (systemAccount != null ? systemAccount.hashCode() : 0);
+        result = 31 * result + (assertServerVersion != null ? assertServerVersion.hashCode() : 0);
+        result = 31 * result + (strictSigningKeyUsage ? 1 : 0);
+        return result;
+    }
+}
@@ -13,7 +13,6 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
@@ -26,7 +25,7 @@ import java.util.Objects;
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class Permission implements JsonSerializable {
+public class Permission implements JsonWritable {
     public List<String> allow;
     public List<String> deny;
 
@@ -70,6 +69,28 @@ public class Permission implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addStrings("allow", allow);
+        sink.addStrings("deny", deny);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.stringsSize("allow", allow)
+            + ByteSink.stringsSize("deny", deny));
+    }
+
+    /**
+     * Take an immutable snapshot of this Permission
+     * @return the snapshot
+     */
+    public ClaimSnapshot<Permission> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,87 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+/**
+ * The authorization request attributes a {@link PolicyRule} can match on.
+ * Every attribute except {@link #CLIENT_TAG} has a single value per request.
+ */
+public enum PolicyAttribute {
+    CLIENT_HOST,
+    CLIENT_KIND,
+    CLIENT_TYPE,
+    /**
+     * Matches when any of the client tags equals the rule value
+     */
+    CLIENT_TAG,
+    CONNECT_USER,
+    CONNECT_NAME,
+    CONNECT_LANG,
+    /**
+     * The SHA-256 fingerprint of the first certificate the client presented, in lowercase hex,
+     * see {@link ClientTls#getCertFingerprint()}
+     */
+    TLS_CERT;
+
+    /**
+     * Get the value of a single valued attribute from a request
+     * @param request the request
+     * @return the value or null if the request does not have it
+     */
+    String value(AuthorizationRequest request) {
+        ClientInfo ci = request.clientInfo;
+        ConnectOpts co = request.connectOpts;
+        switch (this) {
+            case CLIENT_HOST: return ci == null ? null : ci.host;
+            case CLIENT_KIND: return ci == null ? null : ci.kind;
+            case CLIENT_TYPE: return ci == null ? null : ci.type;
+            case CONNECT_USER: return co == null ? null : co.user;
+            case CONNECT_NAME: return co == null ? null : co.name;
+            case CONNECT_LANG: return co == null ? null : co.lang;
+            case TLS_CERT: return request.clientTls == null ? null : request.clientTls.getCertFingerprint();
+        }
+        return null;
+    }
+
+    /**
+     * Get the values of a multi valued attribute from a request
+     * @param request the request
+     * @return the values or null if the request does not have any
+     */
+    String[] values(AuthorizationRequest request) {
+        return request.clientInfo == null ? null : request.clientInfo.tags;
+    }
+
+    /**
+     * Check a request against a rule value, any of the values for a multi valued attribute
+     */
+    boolean matches(AuthorizationRequest request, String condition) {
+        if (isMultiValued()) {
+            String[] values = values(request);
+            if (values != null) {
+                for (String v : values) {
+                    if (condition.equals(v)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        return condition.equals(value(request));
+    }
+
+    boolean isMultiValued() {
+        return this == CLIENT_TAG;
+    }
+}
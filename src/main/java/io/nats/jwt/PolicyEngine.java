@@ -0,0 +1,65 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the current {@link UserClaimPolicy} and allows it to be replaced at any time.
+ * A reload compiles the new rules first and then swaps them in with a single volatile write,
+ * so requests already being evaluated finish against the policy they started with
+ * and no request is ever paused.
+ * @param <T> the profile type
+ */
+public class PolicyEngine<T> {
+    private volatile UserClaimPolicy<T> policy;
+
+    public PolicyEngine() {
+        this(Collections.emptyList());
+    }
+
+    public PolicyEngine(List<PolicyRule<T>> rules) {
+        policy = UserClaimPolicy.compile(rules);
+    }
+
+    /**
+     * Compile and atomically install a new set of rules
+     * @param rules the rules in priority order
+     * @return the policy that was replaced
+     */
+    public synchronized UserClaimPolicy<T> reload(List<PolicyRule<T>> rules) {
+        UserClaimPolicy<T> compiled = UserClaimPolicy.compile(rules);
+        UserClaimPolicy<T> previous = policy;
+        policy = compiled;
+        return previous;
+    }
+
+    /**
+     * Select the profile of the first rule that matches the request
+     * @param request the authorization request
+     * @return the profile or null if no rule matches
+     */
+    public T select(AuthorizationRequest request) {
+        return policy.select(request);
+    }
+
+    /**
+     * Get the current policy, use it directly when several selections must see the same rules
+     * @return the policy
+     */
+    public UserClaimPolicy<T> getPolicy() {
+        return policy;
+    }
+}
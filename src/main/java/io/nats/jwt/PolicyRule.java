@@ -0,0 +1,68 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A declarative rule mapping authorization request attributes to a profile,
+ * for instance a UserClaim or a factory that builds one.
+ * A rule matches when every attribute it constrains is exactly equal to the rule value.
+ * Attributes not constrained match anything, so a rule with no conditions is a catch-all.
+ * @param <T> the profile type
+ */
+public class PolicyRule<T> {
+    private static final PolicyAttribute[] ATTRIBUTES = PolicyAttribute.values();
+
+    final T profile;
+    final String[] conditions = new String[PolicyAttribute.values().length];
+
+    public PolicyRule(T profile) {
+        this.profile = Objects.requireNonNull(profile, "profile");
+    }
+
+    /**
+     * Constrain an attribute. Setting the same attribute again replaces the value.
+     * A {@link PolicyAttribute#TLS_CERT} fingerprint may be given with colons and in either case.
+     * @param attribute the attribute
+     * @param value the exact value to match, null to remove the condition
+     * @return the rule
+     */
+    public PolicyRule<T> when(PolicyAttribute attribute, String value) {
+        if (attribute == PolicyAttribute.TLS_CERT && value != null) {
+            value = value.replace(":", "").toLowerCase(Locale.ROOT);
+        }
+        conditions[attribute.ordinal()] = value;
+        return this;
+    }
+
+    boolean matches(AuthorizationRequest request) {
+        for (PolicyAttribute attribute : ATTRIBUTES) {
+            String condition = conditions[attribute.ordinal()];
+            if (condition != null && !attribute.matches(request, condition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public T getProfile() {
+        return profile;
+    }
+
+    public String getCondition(PolicyAttribute attribute) {
+        return conditions[attribute.ordinal()];
+    }
+}
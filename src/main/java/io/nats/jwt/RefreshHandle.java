@@ -0,0 +1,100 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import static io.nats.jwt.JwtUtils.currentTimeSeconds;
+
+/**
+ * An entry tracked by a {@link RefreshScheduler}, holding the claim template as a
+ * {@link ClaimRenewer}, the signing key and the token most recently issued from them.
+ */
+public class RefreshHandle {
+    private final RefreshScheduler scheduler;
+    private final ClaimRenewer renewer;
+    private final String sub;
+    private final NKey signingKey;
+    final RefreshListener listener;
+    final TimingWheel.Node<RefreshHandle> node = new TimingWheel.Node<>(this);
+
+    private volatile String jwt;
+    private volatile long issuedAt;
+    private volatile long expiresAt;
+    volatile long refreshAt;
+    boolean cancelled; // guarded by the scheduler
+
+    RefreshHandle(RefreshScheduler scheduler, ClaimIssuer template, NKey signingKey, RefreshListener listener) {
+        this.scheduler = scheduler;
+        renewer = new ClaimRenewer(template);
+        sub = template.sub;
+        this.signingKey = signingKey;
+        this.listener = listener;
+    }
+
+    String issue() throws GeneralSecurityException, IOException {
+        long iat = currentTimeSeconds();
+        long exp = iat + renewer.getLifetime();
+        String token = renewer.renew(iat, exp, signingKey);
+        issuedAt = iat;
+        expiresAt = exp;
+        jwt = token;
+        return token;
+    }
+
+    /**
+     * Stop refreshing, the current token stays valid until it expires
+     */
+    public void cancel() {
+        scheduler.cancel(this);
+    }
+
+    public String getJwt() {
+        return jwt;
+    }
+
+    public String getSubject() {
+        return sub;
+    }
+
+    /**
+     * @return the iat of the current token, in epoch seconds
+     */
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    /**
+     * @return the exp of the current token, in epoch seconds
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return when the next token will be issued, in epoch seconds
+     */
+    public long getRefreshAt() {
+        return refreshAt;
+    }
+
+    public boolean isCancelled() {
+        synchronized (scheduler) {
+            return cancelled;
+        }
+    }
+}
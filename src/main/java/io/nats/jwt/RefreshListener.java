@@ -0,0 +1,34 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+/**
+ * Receives the tokens re-issued by a {@link RefreshScheduler}.
+ * Called on the scheduler thread, so it should hand off anything slow.
+ */
+public interface RefreshListener {
+    /**
+     * A new token was issued
+     * @param handle the handle of the tracked entry
+     * @param jwt the new token
+     */
+    void refreshed(RefreshHandle handle, String jwt);
+
+    /**
+     * Issuing a new token failed, it will be tried again before the current token expires
+     * @param handle the handle of the tracked entry
+     * @param e the exception
+     */
+    default void failed(RefreshHandle handle, Exception e) {}
+}
@@ -0,0 +1,248 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.nats.jwt.JwtUtils.currentTimeSeconds;
+
+/**
+ * Keeps issued JWTs fresh by re-issuing each tracked (claim template, signing key) entry
+ * once a fraction of its lifetime has passed, and delivering the new token to a listener.
+ * <p>
+ * Entries are kept in a hierarchical timing wheel, so tracking, cancelling and refreshing are
+ * constant time regardless of how many entries there are, and a tick only touches the
+ * entries that are due. Each refresh time is pulled earlier by a random jitter, so entries
+ * tracked at the same time, say at startup, do not all come due in the same second.
+ * <p>
+ * Time comes from {@link JwtUtils#currentTimeSeconds()}. Either call {@link #start()} to refresh
+ * from a daemon thread, or call {@link #runDue()} directly, for instance with a {@link ManualJwtClock}.
+ */
+public class RefreshScheduler implements AutoCloseable {
+    public static final double DEFAULT_REFRESH_FRACTION = 0.8;
+    public static final double DEFAULT_JITTER_FRACTION = 0.1;
+
+    private final double refreshFraction;
+    private final double jitterFraction;
+    private final TimingWheel<RefreshHandle> wheel;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Construct a scheduler that refreshes at {@link #DEFAULT_REFRESH_FRACTION} of the lifetime,
+     * pulled earlier by up to {@link #DEFAULT_JITTER_FRACTION} of the lifetime
+     */
+    public RefreshScheduler() {
+        this(DEFAULT_REFRESH_FRACTION, DEFAULT_JITTER_FRACTION);
+    }
+
+    /**
+     * Construct a scheduler
+     * @param refreshFraction the fraction of the lifetime after which a token is re-issued
+     * @param jitterFraction up to this fraction of the lifetime is randomly taken off the refresh time
+     * @throws IllegalArgumentException if the refresh fraction is not between 0 and 1 exclusive,
+     * or the jitter fraction is negative or not less than the refresh fraction
+     */
+    public RefreshScheduler(double refreshFraction, double jitterFraction) {
+        if (!(refreshFraction > 0 && refreshFraction < 1)) {
+            throw new IllegalArgumentException("Refresh fraction must be between 0 and 1.");
+        }
+        if (!(jitterFraction >= 0 && jitterFraction < refreshFraction)) {
+            throw new IllegalArgumentException("Jitter fraction must be at least 0 and less than the refresh fraction.");
+        }
+        this.refreshFraction = refreshFraction;
+        this.jitterFraction = jitterFraction;
+        wheel = new TimingWheel<>(currentTimeSeconds());
+    }
+
+    /**
+     * Issue the first token for a template and track it for refresh. The template is copied,
+     * changing it afterward has no effect. The first token is not delivered to the listener,
+     * get it from the handle.
+     * @param template the issuer, with an expiresIn and without a fixed iat or exp
+     * @param signingKey the key to sign with
+     * @param listener receives each new token
+     * @throws IllegalArgumentException if the template has no expiresIn of at least one second, or sets iat or exp
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signing key can not be used for signing.
+     * @throws IOException if the signing key sign method throws this exception.
+     * @return the handle
+     */
+    public RefreshHandle track(ClaimIssuer template, NKey signingKey, RefreshListener listener) throws GeneralSecurityException, IOException {
+        Duration expiresIn = template.expiresInInput;
+        if (expiresIn == null || expiresIn.getSeconds() < 1) {
+            throw new IllegalArgumentException("Tracked template must expire in at least one second.");
+        }
+        if (template.iatInput != null || template.expInput != null) {
+            throw new IllegalArgumentException("Tracked template must not set iat or exp.");
+        }
+        if (signingKey == null || listener == null) {
+            throw new IllegalArgumentException("Signing key and listener are required.");
+        }
+        RefreshHandle handle = new RefreshHandle(this, template, signingKey, listener);
+        handle.issue();
+        handle.refreshAt = refreshTime(handle.getIssuedAt(), handle.getExpiresAt());
+        synchronized (this) {
+            wheel.jumpTo(currentTimeSeconds());
+            wheel.add(handle.node, handle.refreshAt);
+        }
+        return handle;
+    }
+
+    /**
+     * Refresh every entry that is due at the current time
+     * @return the number of entries that were due
+     */
+    public int runDue() {
+        List<RefreshHandle> due = new ArrayList<>();
+        synchronized (this) {
+            long now = currentTimeSeconds();
+            wheel.jumpTo(now);
+            while (wheel.getCurrent() < now) {
+                TimingWheel.Node<RefreshHandle> n = wheel.tick();
+                while (n != null) {
+                    TimingWheel.Node<RefreshHandle> next = n.next;
+                    n.next = null;
+                    due.add(n.value);
+                    n = next;
+                }
+            }
+        }
+        int x = 0;
+        try {
+            for (; x < due.size(); x++) {
+                refresh(due.get(x));
+            }
+        }
+        finally {
+            if (x < due.size()) {
+                // an error escaped, keep the entries that were not refreshed
+                synchronized (this) {
+                    for (; x < due.size(); x++) {
+                        RefreshHandle handle = due.get(x);
+                        if (!handle.cancelled && !handle.node.isScheduled()) {
+                            wheel.add(handle.node, handle.refreshAt);
+                        }
+                    }
+                }
+            }
+        }
+        return due.size();
+    }
+
+    private void refresh(RefreshHandle handle) {
+        String jwt = null;
+        try {
+            jwt = handle.issue();
+            handle.refreshAt = refreshTime(handle.getIssuedAt(), handle.getExpiresAt());
+        }
+        catch (Exception e) {
+            long now = currentTimeSeconds();
+            handle.refreshAt = now + Math.max(1, (handle.getExpiresAt() - now) / 4);
+            notify(() -> handle.listener.failed(handle, e));
+        }
+        synchronized (this) {
+            if (!handle.cancelled) {
+                wheel.add(handle.node, handle.refreshAt);
+            }
+        }
+        if (jwt != null) {
+            String token = jwt;
+            notify(() -> handle.listener.refreshed(handle, token));
+        }
+    }
+
+    private static void notify(Runnable r) {
+        try {
+            r.run();
+        }
+        catch (RuntimeException ignore) {
+            // a listener must not stop the other entries from being refreshed
+        }
+    }
+
+    private long refreshTime(long iat, long exp) {
+        long lifetime = exp - iat;
+        double fraction = refreshFraction;
+        if (jitterFraction > 0) {
+            fraction -= ThreadLocalRandom.current().nextDouble(jitterFraction);
+        }
+        return iat + Math.max(1, (long) (lifetime * fraction));
+    }
+
+    synchronized void cancel(RefreshHandle handle) {
+        handle.cancelled = true;
+        wheel.remove(handle.node);
+    }
+
+    /**
+     * @return the number of tracked entries
+     */
+    public synchronized int size() {
+        return wheel.size();
+    }
+
+    /**
+     * Start a daemon thread that calls {@link #runDue()} every second, does nothing if already started
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "jwt-refresh-scheduler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            runDue();
+            LockSupport.parkNanos(this, 1_000_000_000L - (System.currentTimeMillis() % 1000) * 1_000_000L);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop the thread started by {@link #start()} and wait briefly for it to end.
+     * Tracked entries are kept, they are refreshed again if the scheduler is restarted.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(2000);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.json.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.nats.jwt.JwtUtils.ACCOUNT_CLAIM_TYPE;
+import static io.nats.jwt.JwtUtils.getClaimBody;
+
+/**
+ * An account JWT as loaded by a {@link DirectoryAccountResolver}: the token and its parsed claim,
+ * whose {@link AccountClaim} holds the signing keys of the account.
+ * The signing keys are copied when the account is loaded, so changes to the claim do not change them.
+ */
+public class ResolvedAccount {
+    private final String accountId;
+    private final String jwt;
+    private final Claim claim;
+    private final List<String> signingKeys;
+    private final Set<String> signingKeySet;
+
+    /**
+     * Parse an account JWT. The signature is not checked.
+     * @param jwt the account JWT
+     * @throws JsonParseException if the claim json can not be parsed
+     * @throws IllegalArgumentException if the jwt is malformed, or the claim is not an account claim or has no subject
+     */
+    public ResolvedAccount(String jwt) throws JsonParseException {
+        int dot = jwt.indexOf('.');
+        if (dot < 0 || jwt.indexOf('.', dot + 1) < 0) {
+            throw new IllegalArgumentException("Jwt must have a header, body and signature.");
+        }
+        this.jwt = jwt;
+        claim = new Claim(getClaimBody(jwt));
+        if (!ACCOUNT_CLAIM_TYPE.equals(claim.type) || claim.sub == null) {
+            throw new IllegalArgumentException("Jwt is not an account jwt.");
+        }
+        accountId = claim.sub;
+        signingKeys = Collections.unmodifiableList(new ArrayList<>(claim.accountClaim.getSigningKeys()));
+        signingKeySet = new HashSet<>(signingKeys);
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getJwt() {
+        return jwt;
+    }
+
+    public Claim getClaim() {
+        return claim;
+    }
+
+    public AccountClaim getAccountClaim() {
+        return claim.accountClaim;
+    }
+
+    public List<String> getSigningKeys() {
+        return signingKeys;
+    }
+
+    /**
+     * Check whether a key may issue user JWTs for this account
+     * @param publicKey the public key
+     * @return true if it is the account key or one of its signing keys
+     */
+    public boolean isSigningKey(String publicKey) {
+        return accountId.equals(publicKey) || signingKeySet.contains(publicKey);
+    }
+}
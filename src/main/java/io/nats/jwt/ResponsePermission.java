@@ -13,7 +13,6 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import org.jspecify.annotations.NonNull;
@@ -23,7 +22,7 @@ import java.util.Objects;
 
 import static io.nats.json.JsonWriteUtils.*;
 
-public class ResponsePermission implements JsonSerializable {
+public class ResponsePermission implements JsonWritable {
     public int max;
     public Duration expires;
 
@@ -62,6 +61,20 @@ public class ResponsePermission implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("max", max);
+        sink.addFieldAsNanos("ttl", expires);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.fieldSize("max", max)
+            + ByteSink.fieldSizeAsNanos("ttl", expires));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
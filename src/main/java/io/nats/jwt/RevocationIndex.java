@@ -0,0 +1,392 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The user revocations of many accounts, as carried in account JWTs: a user public key,
+ * or {@link #ALL_USERS}, mapped to a cutoff time. A user JWT is revoked when its account
+ * has a cutoff for its subject, or for all users, that is at or after its iat.
+ * <p>
+ * Each account has its own open addressing table of primitive arrays. A key is stored as the
+ * 32 bytes of the public key it encodes, in 4 longs, next to its cutoff in a long, so an entry
+ * costs about 54 bytes at the highest load, and millions of revocations need no objects at all.
+ * A check is one hash probe sequence, usually a single slot.
+ * <p>
+ * Checks never lock. Updates of an account are serialized with each other, a key is written
+ * before its cutoff is published, and a table that has to grow is rebuilt and published together
+ * with the all users cutoff as one immutable state, so a check sees either the state before or
+ * after any update. Removing an account marks it dead under its lock, and an update that finds
+ * a dead account starts over with the current one, so no update is lost to a removed account.
+ */
+public class RevocationIndex {
+    /**
+     * The revocation key that revokes every user of an account issued at or before the cutoff
+     */
+    public static final String ALL_USERS = "*";
+
+    private static final VarHandle CUTOFFS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long REMOVED = Long.MIN_VALUE + 1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 28;
+
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+    private static class Account {
+        volatile State state = new State(new Table(MIN_CAPACITY), EMPTY);
+        boolean dead; // written and read under the account lock
+    }
+
+    private static class State {
+        final Table table;
+        final long all;
+
+        State(Table table, long all) {
+            this.table = table;
+            this.all = all;
+        }
+    }
+
+    private static class Table {
+        final long[] keys; // 4 longs per slot
+        final long[] cutoffs; // EMPTY, REMOVED or the cutoff
+        final int mask;
+        int used; // slots ever filled, removed included
+        int size;
+
+        Table(int capacity) {
+            keys = new long[capacity * 4];
+            cutoffs = new long[capacity];
+            Arrays.fill(cutoffs, EMPTY);
+            mask = capacity - 1;
+        }
+
+        int find(long k0, long k1, long k2, long k3) {
+            int slot = hash(k0, k1) & mask;
+            while (true) {
+                long c = (long) CUTOFFS.getAcquire(cutoffs, slot);
+                if (c == EMPTY) {
+                    return -1 - slot;
+                }
+                int b = slot << 2;
+                if (keys[b] == k0 && keys[b + 1] == k1 && keys[b + 2] == k2 && keys[b + 3] == k3) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        long get(long[] k) {
+            int slot = find(k[0], k[1], k[2], k[3]);
+            return slot < 0 ? EMPTY : (long) CUTOFFS.getAcquire(cutoffs, slot);
+        }
+
+        boolean hasRoomForOneMore() {
+            return (used + 1) * 4L <= (mask + 1) * 3L;
+        }
+
+        // the caller must hold the account lock and have checked hasRoomForOneMore
+        void put(long[] k, long cutoff) {
+            int slot = find(k[0], k[1], k[2], k[3]);
+            if (slot < 0) {
+                slot = -1 - slot;
+                int b = slot << 2;
+                keys[b] = k[0];
+                keys[b + 1] = k[1];
+                keys[b + 2] = k[2];
+                keys[b + 3] = k[3];
+                used++;
+                size++;
+            }
+            else if (cutoffs[slot] == REMOVED) {
+                size++;
+            }
+            CUTOFFS.setRelease(cutoffs, slot, cutoff);
+        }
+
+        boolean remove(long[] k) {
+            int slot = find(k[0], k[1], k[2], k[3]);
+            if (slot < 0 || cutoffs[slot] == REMOVED) {
+                return false;
+            }
+            CUTOFFS.setRelease(cutoffs, slot, REMOVED);
+            size--;
+            return true;
+        }
+
+        Table resize(int entries) {
+            Table t = new Table(capacityFor(entries));
+            long[] k = new long[4];
+            for (int slot = 0; slot <= mask; slot++) {
+                long c = cutoffs[slot];
+                if (c != EMPTY && c != REMOVED) {
+                    System.arraycopy(keys, slot << 2, k, 0, 4);
+                    t.put(k, c);
+                }
+            }
+            return t;
+        }
+    }
+
+    private static int capacityFor(int entries) {
+        long wanted = Math.max(MIN_CAPACITY, entries * 2L);
+        if (wanted > MAX_CAPACITY) {
+            throw new IllegalStateException("Too many revocations for one account.");
+        }
+        return Integer.highestOneBit((int) wanted - 1) << 1;
+    }
+
+    private static int hash(long k0, long k1) {
+        // the key bytes are an ed25519 public key, already uniformly distributed
+        long h = k0 ^ (k1 * 0x9E3779B97F4A7C15L);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Replace all the revocations of an account, for instance from a new version of its JWT.
+     * The new set is built aside and swapped in at once.
+     * @param account the public key of the account
+     * @param revocations user public keys, or {@link #ALL_USERS}, mapped to cutoffs in epoch seconds
+     * @throws IllegalArgumentException if a key is not a public key
+     */
+    public void load(String account, Map<String, Long> revocations) {
+        Table t = new Table(capacityFor(revocations.size()));
+        long all = EMPTY;
+        long[] k = new long[4];
+        for (Map.Entry<String, Long> e : revocations.entrySet()) {
+            if (ALL_USERS.equals(e.getKey())) {
+                all = e.getValue();
+            }
+            else {
+                t.put(decodeOrThrow(e.getKey(), k), e.getValue());
+            }
+        }
+        State state = new State(t, all);
+        while (true) {
+            Account a = accounts.computeIfAbsent(account, x -> new Account());
+            synchronized (a) {
+                if (!a.dead) {
+                    a.state = state;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add or replace one revocation
+     * @param account the public key of the account
+     * @param userKey the user public key or {@link #ALL_USERS}
+     * @param cutoff the cutoff in epoch seconds, JWTs issued at or before it are revoked
+     * @throws IllegalArgumentException if the user key is not a public key
+     */
+    public void revoke(String account, String userKey, long cutoff) {
+        long[] k = ALL_USERS.equals(userKey) ? null : decodeOrThrow(userKey, new long[4]);
+        while (true) {
+            Account a = accounts.computeIfAbsent(account, x -> new Account());
+            synchronized (a) {
+                if (a.dead) {
+                    continue;
+                }
+                State s = a.state;
+                if (k == null) {
+                    a.state = new State(s.table, cutoff);
+                    return;
+                }
+                Table t = s.table;
+                if (!t.hasRoomForOneMore()) {
+                    t = t.resize(t.size + 1);
+                    t.put(k, cutoff);
+                    a.state = new State(t, s.all);
+                    return;
+                }
+                t.put(k, cutoff);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove one revocation
+     * @param account the public key of the account
+     * @param userKey the user public key or {@link #ALL_USERS}
+     * @return true if there was a revocation to remove
+     */
+    public boolean remove(String account, String userKey) {
+        Account a = accounts.get(account);
+        if (a == null) {
+            return false;
+        }
+        if (ALL_USERS.equals(userKey)) {
+            synchronized (a) {
+                State s = a.state;
+                if (a.dead || s.all == EMPTY) {
+                    return false;
+                }
+                a.state = new State(s.table, EMPTY);
+                return true;
+            }
+        }
+        long[] k = new long[4];
+        if (!decode(userKey, k)) {
+            return false;
+        }
+        synchronized (a) {
+            return !a.dead && a.state.table.remove(k);
+        }
+    }
+
+    /**
+     * Remove all the revocations of an account
+     * @param account the public key of the account
+     */
+    public void removeAccount(String account) {
+        Account a = accounts.get(account);
+        if (a != null) {
+            synchronized (a) {
+                a.dead = true;
+                accounts.remove(account, a);
+            }
+        }
+    }
+
+    /**
+     * Check a user against the revocations of an account
+     * @param account the public key of the account
+     * @param userKey the user public key
+     * @param iat the issue time of the user JWT in epoch seconds
+     * @return true if revoked
+     */
+    public boolean isRevoked(String account, String userKey, long iat) {
+        Account a = accounts.get(account);
+        if (a == null) {
+            return false;
+        }
+        State s = a.state;
+        if (s.all != EMPTY && s.all >= iat) {
+            return true;
+        }
+        long[] k = new long[4];
+        if (!decode(userKey, k)) {
+            return false;
+        }
+        long cutoff = s.table.get(k);
+        return cutoff != EMPTY && cutoff != REMOVED && cutoff >= iat;
+    }
+
+    /**
+     * Check a user claim. The account is the issuer_account of the user claim,
+     * or the iss when the JWT was signed with the account key itself.
+     * @param claim the claim
+     * @return true if revoked, false if not or if it is not a user claim
+     */
+    public boolean isRevoked(Claim claim) {
+        if (claim.userClaim == null) {
+            return false;
+        }
+        String account = claim.userClaim.issuerAccount == null ? claim.iss : claim.userClaim.issuerAccount;
+        return account != null && isRevoked(account, claim.sub, claim.iat);
+    }
+
+    /**
+     * Get a revocation
+     * @param account the public key of the account
+     * @param userKey the user public key or {@link #ALL_USERS}
+     * @return the cutoff or null if there is none
+     */
+    public Long getRevocation(String account, String userKey) {
+        Account a = accounts.get(account);
+        if (a == null) {
+            return null;
+        }
+        State s = a.state;
+        long cutoff;
+        if (ALL_USERS.equals(userKey)) {
+            cutoff = s.all;
+        }
+        else {
+            long[] k = new long[4];
+            cutoff = decode(userKey, k) ? s.table.get(k) : EMPTY;
+        }
+        return cutoff == EMPTY || cutoff == REMOVED ? null : cutoff;
+    }
+
+    /**
+     * Get the number of user revocations of an account, not counting {@link #ALL_USERS}
+     * @param account the public key of the account
+     * @return the number
+     */
+    public int size(String account) {
+        Account a = accounts.get(account);
+        if (a == null) {
+            return 0;
+        }
+        synchronized (a) {
+            return a.dead ? 0 : a.state.table.size;
+        }
+    }
+
+    private static long[] decodeOrThrow(String key, long[] k) {
+        if (!decode(key, k)) {
+            throw new IllegalArgumentException("Revocations require a public key, but got " + key);
+        }
+        return k;
+    }
+
+    /**
+     * Decode the 32 key bytes of a 56 character base32 public key,
+     * skipping the prefix byte and the 2 checksum bytes
+     */
+    static boolean decode(String key, long[] k) {
+        if (key == null || key.length() != 56) {
+            return false;
+        }
+        k[0] = k[1] = k[2] = k[3] = 0;
+        long acc = 0;
+        int bits = 0;
+        int index = 0;
+        for (int x = 0; x < 56; x++) {
+            char c = key.charAt(x);
+            int v;
+            if (c >= 'A' && c <= 'Z') {
+                v = c - 'A';
+            }
+            else if (c >= '2' && c <= '7') {
+                v = c - '2' + 26;
+            }
+            else {
+                return false;
+            }
+            acc = (acc << 5) | v;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                int b = (int) (acc >>> bits) & 0xff;
+                if (index >= 1 && index <= 32) {
+                    int i = (index - 1) >> 3;
+                    k[i] = (k[i] << 8) | b;
+                }
+                index++;
+            }
+        }
+        return true;
+    }
+}
@@ -13,19 +13,19 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
 import org.jspecify.annotations.NonNull;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class ServerId implements JsonSerializable {
+public class ServerId implements JsonWritable {
     public final String name;
     public final String host;
     public final String id;
@@ -34,18 +34,44 @@ public class ServerId implements JsonSerializable {
     public final List<String> tags;
     public final String xKey;
 
+    // computed on first use, the fields never change
+    private transient int maxJsonSize = -1;
+
     public static ServerId optionalInstance(JsonValue jv) {
         return jv == null ? null : new ServerId(jv);
     }
 
+    public static ServerId optionalInstance(JsonValue jv, Interner interner) {
+        return jv == null ? null : interner.intern(new ServerId(jv, interner));
+    }
+
     public ServerId(JsonValue jv) {
-        name = JsonValueUtils.readString(jv, "name");
-        host = JsonValueUtils.readString(jv, "host");
-        id = JsonValueUtils.readString(jv, "id");
-        version = JsonValueUtils.readString(jv, "version");
-        cluster = JsonValueUtils.readString(jv, "cluster");
-        tags = JsonValueUtils.readStringListOrNull(jv, "tags");
-        xKey = JsonValueUtils.readString(jv, "xKey");
+        this(jv, Interner.NONE);
+    }
+
+    public ServerId(JsonValue jv, Interner interner) {
+        name = interner.intern(JsonValueUtils.readString(jv, "name"));
+        host = interner.intern(JsonValueUtils.readString(jv, "host"));
+        id = interner.intern(JsonValueUtils.readString(jv, "id"));
+        version = interner.intern(JsonValueUtils.readString(jv, "version"));
+        cluster = interner.intern(JsonValueUtils.readString(jv, "cluster"));
+        tags = unmodifiable(interner.intern(JsonValueUtils.readStringListOrNull(jv, "tags")));
+        xKey = interner.intern(JsonValueUtils.readString(jv, "xKey"));
+    }
+
+    ServerId(String name, String host, String id, String version, String cluster, List<String> tags, String xKey) {
+        this.name = name;
+        this.host = host;
+        this.id = id;
+        this.version = version;
+        this.cluster = cluster;
+        this.tags = unmodifiable(tags);
+        this.xKey = xKey;
+    }
+
+    // an interned server id is shared by every claim that carries it, so its tags can not change
+    private static List<String> unmodifiable(List<String> tags) {
+        return tags == null ? null : Collections.unmodifiableList(tags);
     }
 
     @Override
@@ -62,6 +88,35 @@ public class ServerId implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("name", name);
+        sink.addField("host", host);
+        sink.addField("id", id);
+        sink.addField("version", version);
+        sink.addField("cluster", cluster);
+        sink.addStrings("tags", tags);
+        sink.addField("xKey", xKey);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        int size = maxJsonSize;
+        if (size < 0) {
+            size = ByteSink.objectSize(ByteSink.fieldSize("name", name)
+                + ByteSink.fieldSize("host", host)
+                + ByteSink.fieldSize("id", id)
+                + ByteSink.fieldSize("version", version)
+                + ByteSink.fieldSize("cluster", cluster)
+                + ByteSink.stringsSize("tags", tags)
+                + ByteSink.fieldSize("xKey", xKey));
+            maxJsonSize = size;
+        }
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,216 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The signing keys of many accounts, keyed by issuer account, for services that issue on behalf of all of them.
+ * <p>
+ * Each account maps to an immutable entry that is only ever replaced whole, so a lookup is a single
+ * lock free map read and never waits on a rotation. Registering and rotating only contend with
+ * other updates of the same account.
+ * <p>
+ * A rotation makes the new key current at once, new JWTs are signed with it, and keeps the replaced key
+ * valid for an overlap window, so that a service checking signing keys with {@link #isValid(String, String)}
+ * accepts tokens from both while the account JWT is updated everywhere. Each replaced key keeps its own
+ * window, so rotating again during an overlap does not cut short the window of an earlier key.
+ */
+public class SigningKeyRegistry {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private static final AccountSigningKey[] NO_KEYS = new AccountSigningKey[0];
+        private static final long[] NO_TIMES = new long[0];
+
+        final AccountSigningKey current;
+        final AccountSigningKey[] previous; // most recently replaced first
+        final long[] validUntil; // epoch seconds, for each previous key
+
+        Entry(AccountSigningKey current) {
+            this(current, NO_KEYS, NO_TIMES);
+        }
+
+        private Entry(AccountSigningKey current, AccountSigningKey[] previous, long[] validUntil) {
+            this.current = current;
+            this.previous = previous;
+            this.validUntil = validUntil;
+        }
+
+        /**
+         * A new entry with key current, this current key valid until the given time,
+         * and the previous keys whose window is not over yet
+         */
+        Entry rotate(AccountSigningKey key, long now, long until) {
+            AccountSigningKey[] keys = new AccountSigningKey[previous.length + 1];
+            long[] times = new long[previous.length + 1];
+            int count = 0;
+            if (now < until && !sameKey(current, key)) {
+                keys[count] = current;
+                times[count++] = until;
+            }
+            for (int x = 0; x < previous.length; x++) {
+                if (now < validUntil[x] && !sameKey(previous[x], key)) {
+                    keys[count] = previous[x];
+                    times[count++] = validUntil[x];
+                }
+            }
+            return new Entry(key, Arrays.copyOf(keys, count), Arrays.copyOf(times, count));
+        }
+
+        AccountSigningKey previous(long now) {
+            for (int x = 0; x < previous.length; x++) {
+                if (now < validUntil[x]) {
+                    return previous[x];
+                }
+            }
+            return null;
+        }
+
+        boolean isPrevious(String publicKey, long now) {
+            for (int x = 0; x < previous.length; x++) {
+                if (now < validUntil[x] && previous[x].getPublicKey().equals(publicKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean sameKey(AccountSigningKey a, AccountSigningKey b) {
+            return a.getPublicKey().equals(b.getPublicKey());
+        }
+    }
+
+    /**
+     * Register the signing key of an account, replacing any key it had without an overlap
+     * @param issuerAccount the public key of the account
+     * @param signingKey the account key or one of its signing keys
+     * @throws IllegalArgumentException if the issuerAccount is not an account public key or the signingKey is not an account key
+     * @throws GeneralSecurityException if the public key of the signing key can not be read
+     * @throws IOException if the signing key getPublicKey method throws this exception
+     * @return the registered key
+     */
+    public AccountSigningKey register(String issuerAccount, NKey signingKey) throws GeneralSecurityException, IOException {
+        AccountSigningKey key = new AccountSigningKey(issuerAccount, signingKey);
+        entries.put(issuerAccount, new Entry(key));
+        return key;
+    }
+
+    /**
+     * Make a new key current for an account. The key it replaces stays valid for the overlap,
+     * keys replaced earlier stay valid until their own overlap is over.
+     * If the account has no key yet this is the same as {@link #register(String, NKey)}.
+     * @param issuerAccount the public key of the account
+     * @param signingKey the new signing key
+     * @param overlap how long the replaced key stays valid, zero or null for not at all
+     * @throws IllegalArgumentException if the issuerAccount is not an account public key or the signingKey is not an account key
+     * @throws GeneralSecurityException if the public key of the signing key can not be read
+     * @throws IOException if the signing key getPublicKey method throws this exception
+     * @return the new current key
+     */
+    public AccountSigningKey rotate(String issuerAccount, NKey signingKey, Duration overlap) throws GeneralSecurityException, IOException {
+        AccountSigningKey key = new AccountSigningKey(issuerAccount, signingKey);
+        long now = JwtUtils.currentTimeSeconds();
+        long validUntil = now + (overlap == null || overlap.isNegative() ? 0 : overlap.getSeconds());
+        entries.compute(issuerAccount, (k, existing) ->
+            existing == null ? new Entry(key) : existing.rotate(key, now, validUntil));
+        return key;
+    }
+
+    /**
+     * Remove an account and all its keys
+     * @param issuerAccount the public key of the account
+     * @return true if the account was registered
+     */
+    public boolean remove(String issuerAccount) {
+        return entries.remove(issuerAccount) != null;
+    }
+
+    /**
+     * Get the key to sign with for an account
+     * @param issuerAccount the public key of the account
+     * @return the current key or null if the account is not registered
+     */
+    public AccountSigningKey get(String issuerAccount) {
+        Entry e = entries.get(issuerAccount);
+        return e == null ? null : e.current;
+    }
+
+    /**
+     * Get the most recently replaced key of an account whose overlap is not over
+     * @param issuerAccount the public key of the account
+     * @return the previous key or null if there is none or all overlaps are over
+     */
+    public AccountSigningKey getPrevious(String issuerAccount) {
+        Entry e = entries.get(issuerAccount);
+        return e == null ? null : e.previous(JwtUtils.currentTimeSeconds());
+    }
+
+    /**
+     * Check whether a public signing key is valid for an account, either the current key
+     * or a previous key during its overlap
+     * @param issuerAccount the public key of the account
+     * @param publicSigningKey the public key to check, for instance the iss of a JWT
+     * @return true if valid
+     */
+    public boolean isValid(String issuerAccount, String publicSigningKey) {
+        Entry e = entries.get(issuerAccount);
+        if (e == null || publicSigningKey == null) {
+            return false;
+        }
+        if (e.current.getPublicKey().equals(publicSigningKey)) {
+            return true;
+        }
+        return e.isPrevious(publicSigningKey, JwtUtils.currentTimeSeconds());
+    }
+
+    /**
+     * Get the registered accounts
+     * @return an unmodifiable view of the accounts
+     */
+    public Set<String> getAccounts() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Issue a user JWT with the current key of the account in the user claim issuer_account.
+     * See {@link JwtUtils#issueUserJWT(NKey, String, String, Duration, Long, String, UserClaim)}
+     * @param publicUserKey a mandatory public user nkey. Will throw error when not set or not user nkey.
+     * @param name optional human-readable name. When absent, default to publicUserKey.
+     * @param expiration optional but recommended duration, when the generated jwt needs to expire. If not set, JWT will not expire.
+     * @param issuedAt the current epoch seconds, null for now.
+     * @param audience the optional audience
+     * @param nats the user claim
+     * @throws IllegalArgumentException if the account is not registered or the publicUserKey is not a valid user public key
+     * @throws GeneralSecurityException if SHA-256 MessageDigest is missing, or if the signingKey can not be used for signing.
+     * @throws IOException if signingKey sign method throws this exception.
+     * @return a JWT
+     */
+    public String issueUserJWT(String publicUserKey, String name, Duration expiration, Long issuedAt, String audience, UserClaim nats) throws GeneralSecurityException, IOException {
+        AccountSigningKey key = get(nats.issuerAccount);
+        if (key == null) {
+            throw new IllegalArgumentException("No signing key is registered for account " + nats.issuerAccount);
+        }
+        JwtUtils.validateUserKey(publicUserKey);
+        return JwtUtils.issueValidatedUserJWT(key.getSigningKey(), key.getPublicKey(), publicUserKey, name, expiration, issuedAt, audience, nats);
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Subjects, possibly with * and &gt; wildcards, mapped to values, matched against literal subjects
+ * one token at a time. Not thread safe for adds, safe for concurrent matches once built.
+ * @param <T> the value type
+ */
+class SubjectTrie<T> {
+    private static class Node<T> {
+        final Map<String, Node<T>> children = new HashMap<>();
+        Node<T> star;
+        List<T> values;   // subjects ending here
+        List<T> rest;     // subjects ending here with >
+    }
+
+    private final Node<T> root = new Node<>();
+
+    void add(String subject, T value) {
+        Node<T> node = root;
+        for (String token : subject.split("\\.", -1)) {
+            if (token.equals(">")) {
+                node.rest = add(node.rest, value);
+                return;
+            }
+            if (token.equals("*")) {
+                if (node.star == null) {
+                    node.star = new Node<>();
+                }
+                node = node.star;
+            }
+            else {
+                node = node.children.computeIfAbsent(token, t -> new Node<>());
+            }
+        }
+        node.values = add(node.values, value);
+    }
+
+    private static <T> List<T> add(List<T> list, T value) {
+        List<T> l = list == null ? new ArrayList<>(1) : list;
+        l.add(value);
+        return l;
+    }
+
+    /**
+     * @param subject a literal subject
+     * @return the values of every subject that matches it, empty if none
+     */
+    List<T> match(String subject) {
+        List<T> out = new ArrayList<>();
+        match(root, subject.split("\\.", -1), 0, out);
+        return out;
+    }
+
+    private void match(Node<T> node, String[] tokens, int index, List<T> out) {
+        if (index == tokens.length) {
+            if (node.values != null) {
+                out.addAll(node.values);
+            }
+            return;
+        }
+        // > needs at least one more token
+        if (node.rest != null) {
+            out.addAll(node.rest);
+        }
+        Node<T> child = node.children.get(tokens[index]);
+        if (child != null) {
+            match(child, tokens, index + 1, out);
+        }
+        if (node.star != null) {
+            match(node.star, tokens, index + 1, out);
+        }
+    }
+}
@@ -13,7 +13,6 @@
 
 package io.nats.jwt;
 
-import io.nats.json.JsonSerializable;
 import io.nats.json.JsonValue;
 import io.nats.json.JsonValueUtils;
 import io.nats.json.JsonWriteUtils;
@@ -25,7 +24,7 @@ import java.util.Objects;
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
 
-public class TimeRange implements JsonSerializable {
+public class TimeRange implements JsonWritable {
     public String start;
     public String end;
 
@@ -52,6 +51,20 @@ public class TimeRange implements JsonSerializable {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("start", start);
+        sink.addField("end", end);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.fieldSize("start", start)
+            + ByteSink.fieldSize("end", end));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
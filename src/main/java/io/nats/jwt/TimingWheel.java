@@ -0,0 +1,162 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+/**
+ * A hierarchical timing wheel with one second ticks. Each level has 64 slots and each slot
+ * of a level spans all 64 slots of the level below it, so 11 levels cover any epoch second.
+ * A node sits in the slot of the highest 6 bit digit in which its due time differs from the
+ * current time, and moves down a level each time the wheel reaches that slot, so adding and
+ * removing are constant time and advancing a tick only touches the nodes that are due,
+ * plus the rare cascades.
+ * Nodes are linked into their slot through their own fields, so the wheel allocates nothing
+ * per node. Each value owns its node. Not thread safe.
+ * @param <T> the class of the values
+ */
+class TimingWheel<T> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 11;
+
+    static class Node<T> {
+        final T value;
+        long due;
+        Node<T> prev;
+        Node<T> next;
+        int level = -1; // -1 when not in the wheel
+        int slot;
+
+        Node(T value) {
+            this.value = value;
+        }
+
+        boolean isScheduled() {
+            return level >= 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final Node<T>[][] heads = new Node[LEVELS][SLOTS];
+    private long current;
+    private int size;
+
+    TimingWheel(long current) {
+        this.current = current;
+    }
+
+    long getCurrent() {
+        return current;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a node, a due time that is not after the current time is due at the next tick
+     */
+    void add(Node<T> node, long due) {
+        node.due = Math.max(due, current + 1);
+        place(node);
+        size++;
+    }
+
+    void remove(Node<T> node) {
+        if (node.isScheduled()) {
+            unlink(node);
+            size--;
+        }
+    }
+
+    /**
+     * Advance one tick
+     * @return the nodes that became due, linked through next, removed from the wheel
+     */
+    Node<T> tick() {
+        current++;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((current & ((1L << (level * BITS)) - 1)) != 0) {
+                break;
+            }
+            Node<T> n = detach(level, (int) (current >>> (level * BITS)) & MASK);
+            while (n != null) {
+                Node<T> next = n.next;
+                place(n);
+                n = next;
+            }
+        }
+        Node<T> due = detach(0, (int) current & MASK);
+        for (Node<T> n = due; n != null; n = n.next) {
+            size--;
+        }
+        return due;
+    }
+
+    /**
+     * Move the current time without ticking, only allowed when the wheel is empty
+     */
+    void jumpTo(long time) {
+        if (size == 0 && time > current) {
+            current = time;
+        }
+    }
+
+    private void place(Node<T> node) {
+        int level;
+        int slot;
+        if (node.due <= current) {
+            // only when cascading, the level 0 slot of the current tick is handled right after
+            level = 0;
+            slot = (int) current & MASK;
+        }
+        else {
+            level = (63 - Long.numberOfLeadingZeros(node.due ^ current)) / BITS;
+            slot = (int) (node.due >>> (level * BITS)) & MASK;
+        }
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = heads[level][slot];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        heads[level][slot] = node;
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.prev == null) {
+            heads[node.level][node.slot] = node.next;
+        }
+        else {
+            node.prev.next = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.level = -1;
+    }
+
+    private Node<T> detach(int level, int slot) {
+        Node<T> n = heads[level][slot];
+        heads[level][slot] = null;
+        for (Node<T> x = n; x != null; x = x.next) {
+            x.level = -1;
+            x.prev = null;
+        }
+        return n;
+    }
+}
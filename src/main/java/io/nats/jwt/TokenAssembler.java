@@ -0,0 +1,173 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import io.nats.nkey.NKey;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static io.nats.jwt.JwtMetrics.Stage.*;
+import static io.nats.jwt.JwtUtils.ENCODED_CLAIM_HEADER;
+import static io.nats.nkey.NKeyProviderUtils.base32Encode;
+
+/**
+ * Per thread scratch state for assembling tokens in reusable buffers.
+ * Produces exactly the same bytes as ClaimIssuer.issueJwt, but the json is written as utf-8
+ * straight into a {@link ByteSink}, and the encoded body and the token are built in place
+ * instead of through a chain of intermediate strings.
+ * Not thread safe, only ever used through {@link #get()}.
+ */
+class TokenAssembler {
+    private static final ThreadLocal<TokenAssembler> LOCAL = ThreadLocal.withInitial(TokenAssembler::new);
+
+    static final byte[] HEADER = ENCODED_CLAIM_HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NATS_JWT = "\"nats\":{\"jwt\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteSink body = new ByteSink();
+    private final ByteSink ascii = new ByteSink();
+    final ByteSink inner = new ByteSink();
+    final ByteSink outer = new ByteSink();
+    private MessageDigest sha256;
+
+    static TokenAssembler get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Issue a token into a sink
+     * @param claim the resolved claim
+     * @param signingKey the key to sign with
+     * @param jwt when not null, the claim nats must be an AuthorizationResponse and
+     *            this token is written as its jwt, whatever the response jwt field holds
+     * @param out the sink to write the token to
+     */
+    void issue(Claim claim, NKey signingKey, ByteSink jwt, ByteSink out) throws GeneralSecurityException, IOException {
+        JwtMetrics metrics = JwtUtils.getMetrics();
+        JwtIssueEvent event = new JwtIssueEvent();
+        long start = Metrics.start(metrics, event);
+        long t = start;
+
+        MessageDigest sha256 = sha256();
+
+        // size the body once, only the jti differs between the two renders
+        int natsSize = natsSize(claim, jwt);
+
+        // Compute jti, a base32 encoded sha256 hash of the json without it
+        render(claim, claim.jti, jwt, natsSize);
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
+        ByteSink digested = toAscii(body);
+        sha256.update(digested.bytes, 0, digested.length);
+        String jti = new String(base32Encode(sha256.digest()));
+        t = Metrics.lap(metrics, event, DIGEST, t);
+
+        render(claim, jti, jwt, natsSize);
+        t = Metrics.lap(metrics, event, SERIALIZE, t);
+
+        // header.body, the part that is signed, and room for an ed25519 signature
+        out.reset();
+        out.ensureCapacity(HEADER.length + 1 + Base64Url.encodedLength(body.length) + 1 + Base64Url.encodedLength(64));
+        System.arraycopy(HEADER, 0, out.bytes, 0, HEADER.length);
+        int pos = HEADER.length;
+        out.bytes[pos++] = '.';
+        pos = Base64Url.encode(body.bytes, 0, body.length, out.bytes, pos);
+        t = Metrics.lap(metrics, event, ENCODE, t);
+
+        byte[] sig = signingKey.sign(Arrays.copyOf(out.bytes, pos));
+        t = Metrics.lap(metrics, event, SIGN, t);
+        out.ensureCapacity(pos + 1 + Base64Url.encodedLength(sig.length));
+        out.bytes[pos++] = '.';
+        out.length = Base64Url.encode(sig, 0, sig.length, out.bytes, pos);
+        Metrics.lap(metrics, event, ENCODE, t);
+        Metrics.issued(metrics, event, start, claim, out.length);
+    }
+
+    MessageDigest sha256() throws GeneralSecurityException {
+        if (sha256 == null) {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        }
+        return sha256;
+    }
+
+    void trim() {
+        body.trim();
+        ascii.trim();
+        inner.trim();
+        outer.trim();
+    }
+
+    /**
+     * The most bytes the "nats" field can take, 0 when that is not known without
+     * serializing it, then the body grows as it is written instead.
+     */
+    private static int natsSize(Claim claim, ByteSink jwt) {
+        if (jwt != null) {
+            // "nats":{"jwt":"<jwt>",...}
+            return NATS_JWT.length + jwt.length + 3 + ((AuthorizationResponse) claim.nats).sizeAfterJwt();
+        }
+        if (claim.nats instanceof JsonWritable) {
+            return ByteSink.fieldSize("nats", claim.nats);
+        }
+        return 0;
+    }
+
+    private void render(Claim claim, String jti, ByteSink jwt, int natsSize) {
+        body.reset();
+        body.ensureCapacity(ByteSink.objectSize(Claim.sizeBeforeNats(claim, jti) + natsSize));
+        body.beginJson();
+        Claim.addFieldsBeforeNats(body, claim, jti);
+        if (jwt == null) {
+            body.addField("nats", claim.nats);
+        }
+        else {
+            // a token is only base64url characters and dots, nothing to escape
+            body.append(NATS_JWT, 0, NATS_JWT.length);
+            body.append(jwt.bytes, 0, jwt.length);
+            body.append((byte) '"').append((byte) ',');
+            ((AuthorizationResponse) claim.nats).addFieldsAfterJwt(body);
+            body.endJson().append((byte) ',');
+        }
+        body.endJson();
+    }
+
+    /**
+     * The jti is the hash of the json as US_ASCII, where each character that is not
+     * ascii became a '?'. For utf-8 that is each lead byte, the continuation bytes are dropped.
+     * @return the sink itself when it was all ascii
+     */
+    private ByteSink toAscii(ByteSink utf8) {
+        int x = 0;
+        while (x < utf8.length && utf8.bytes[x] >= 0) {
+            x++;
+        }
+        if (x == utf8.length) {
+            return utf8;
+        }
+        ascii.reset();
+        ascii.append(utf8.bytes, 0, x);
+        for (; x < utf8.length; x++) {
+            byte b = utf8.bytes[x];
+            if (b >= 0) {
+                ascii.append(b);
+            }
+            else if ((b & 0xC0) != 0x80) {
+                ascii.append((byte) '?');
+            }
+        }
+        return ascii;
+    }
+}
@@ -28,7 +28,7 @@ import static io.nats.json.JsonWriteUtils.endJson;
 import static io.nats.jwt.JwtUtils.NO_LIMIT;
 import static io.nats.jwt.JwtUtils.USER_CLAIM_TYPE;
 
-public class UserClaim extends GenericClaimFields<UserClaim> {
+public class UserClaim extends GenericClaimFields<UserClaim> implements JsonWritable {
     public String issuerAccount;            // User
     public Permission pub;                  // User/UserPermissionLimits/Permissions
     public Permission sub;                  // User/UserPermissionLimits/Permissions
@@ -92,6 +92,42 @@ public class UserClaim extends GenericClaimFields<UserClaim> {
         return endJson(sb).toString();
     }
 
+    @Override
+    public void writeJson(ByteSink sink) {
+        sink.beginJson();
+        sink.addField("issuer_account", issuerAccount);
+        baseJson(sink);
+        sink.addField("pub", pub);
+        sink.addField("sub", sub);
+        sink.addField("resp", resp);
+        sink.addStrings("src", src);
+        sink.addJsons("times", timeRanges);
+        sink.addField("times_location", locale);
+        sink.addFieldWhenGteMinusOne("subs", subs);
+        sink.addFieldWhenGteMinusOne("data", data);
+        sink.addFieldWhenGteMinusOne("payload", payload);
+        sink.addField("bearer_token", bearerToken);
+        sink.addStrings("allowed_connection_types", allowedConnectionTypes);
+        sink.endJson();
+    }
+
+    @Override
+    public int maxJsonSize() {
+        return ByteSink.objectSize(ByteSink.fieldSize("issuer_account", issuerAccount)
+            + baseJsonSize()
+            + ByteSink.fieldSize("pub", pub)
+            + ByteSink.fieldSize("sub", sub)
+            + ByteSink.fieldSize("resp", resp)
+            + ByteSink.stringsSize("src", src)
+            + ByteSink.jsonsSize("times", timeRanges)
+            + ByteSink.fieldSize("times_location", locale)
+            + ByteSink.fieldSizeWhenGteMinusOne("subs", subs)
+            + ByteSink.fieldSizeWhenGteMinusOne("data", data)
+            + ByteSink.fieldSizeWhenGteMinusOne("payload", payload)
+            + ByteSink.fieldSize("bearer_token", bearerToken)
+            + ByteSink.stringsSize("allowed_connection_types", allowedConnectionTypes));
+    }
+
     public UserClaim issuerAccount(String issuerAccount) {
         this.issuerAccount = issuerAccount;
         return this;
@@ -162,6 +198,14 @@ public class UserClaim extends GenericClaimFields<UserClaim> {
         return this;
     }
 
+    /**
+     * Take an immutable snapshot of this UserClaim
+     * @return the snapshot
+     */
+    public ClaimSnapshot<UserClaim> freeze() {
+        return ClaimSnapshot.of(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
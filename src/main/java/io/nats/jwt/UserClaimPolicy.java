@@ -0,0 +1,318 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.*;
+
+/**
+ * An immutable set of {@link PolicyRule}s compiled into a decision graph.
+ * Rules are prioritized by their order, the first matching rule wins.
+ * <p>
+ * Each node of the graph tests one attribute, so selection costs one hash lookup per
+ * constrained attribute regardless of the number of rules. The only exception is
+ * {@link PolicyAttribute#CLIENT_TAG}, which is looked up once for each tag on the request.
+ * Identical sub graphs are shared, and a node whose best remaining rule has no further
+ * conditions becomes a leaf, which keeps typical rule sets compact.
+ * <p>
+ * Rule sets that mix many values of many attributes can still need a graph that grows with
+ * the product of their values. Compiling stops at a limit on the number of nodes, and such
+ * a policy checks its rules one by one in order instead.
+ * @param <T> the profile type
+ */
+public class UserClaimPolicy<T> {
+    /**
+     * The default limit on the number of nodes of the decision graph
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 16;
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<PolicyRule<T>> rules;
+    private final Node root;
+    private final boolean compiled; // false when the graph would have had too many nodes
+
+    private UserClaimPolicy(List<PolicyRule<T>> rules, int maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("The maximum number of nodes cannot be negative.");
+        }
+        List<PolicyRule<T>> copy = new ArrayList<>(rules.size());
+        for (PolicyRule<T> rule : rules) {
+            PolicyRule<T> r = new PolicyRule<>(rule.profile);
+            System.arraycopy(rule.conditions, 0, r.conditions, 0, r.conditions.length);
+            copy.add(r);
+        }
+        this.rules = Collections.unmodifiableList(copy);
+
+        List<PolicyAttribute> used = new ArrayList<>();
+        for (PolicyAttribute attribute : PolicyAttribute.values()) {
+            for (PolicyRule<T> r : copy) {
+                if (r.conditions[attribute.ordinal()] != null) {
+                    used.add(attribute);
+                    break;
+                }
+            }
+        }
+
+        int[] all = new int[copy.size()];
+        for (int x = 0; x < all.length; x++) {
+            all[x] = x;
+        }
+        Node graph = null;
+        boolean built = false;
+        try {
+            graph = new Compiler(used.toArray(new PolicyAttribute[0]), maxNodes).build(0, all);
+            built = true;
+        }
+        catch (TooManyNodes e) {
+            // the rules are checked one by one
+        }
+        root = graph;
+        compiled = built;
+    }
+
+    /**
+     * Compile a list of rules, with at most {@link #DEFAULT_MAX_NODES} nodes
+     * @param rules the rules in priority order
+     * @return the compiled policy
+     * @param <T> the profile type
+     */
+    public static <T> UserClaimPolicy<T> compile(List<PolicyRule<T>> rules) {
+        return new UserClaimPolicy<>(rules, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Compile a list of rules
+     * @param rules the rules in priority order
+     * @param maxNodes the most nodes the decision graph may have, the rules are checked one by one when it would need more
+     * @return the compiled policy
+     * @param <T> the profile type
+     * @throws IllegalArgumentException if maxNodes is negative
+     */
+    public static <T> UserClaimPolicy<T> compile(List<PolicyRule<T>> rules, int maxNodes) {
+        return new UserClaimPolicy<>(rules, maxNodes);
+    }
+
+    /**
+     * Select the profile of the first rule that matches the request
+     * @param request the authorization request
+     * @return the profile or null if no rule matches
+     */
+    public T select(AuthorizationRequest request) {
+        int rule = compiled ? find(root, request) : scan(request);
+        return rule == NO_MATCH ? null : rules.get(rule).profile;
+    }
+
+    public List<PolicyRule<T>> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return true if the rules were compiled into a decision graph, false if they are checked one by one
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    private int scan(AuthorizationRequest request) {
+        for (int x = 0; x < rules.size(); x++) {
+            if (rules.get(x).matches(request)) {
+                return x;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    private static int find(Node node, AuthorizationRequest request) {
+        while (node != null && node.attribute != null) {
+            if (node.attribute.isMultiValued()) {
+                int best = find(node.any, request);
+                String[] values = node.attribute.values(request);
+                if (values != null) {
+                    for (String v : values) {
+                        Node child = node.children.get(v);
+                        if (child != null) {
+                            best = Math.min(best, find(child, request));
+                        }
+                    }
+                }
+                return best;
+            }
+            String value = node.attribute.value(request);
+            Node child = value == null ? null : node.children.get(value);
+            node = child == null ? node.any : child;
+        }
+        return node == null ? NO_MATCH : node.rule;
+    }
+
+    private static class Node {
+        final PolicyAttribute attribute; // null for a leaf
+        final Map<String, Node> children;
+        final Node any;
+        final int rule;
+
+        Node(int rule) {
+            this.attribute = null;
+            this.children = null;
+            this.any = null;
+            this.rule = rule;
+        }
+
+        Node(PolicyAttribute attribute, Map<String, Node> children, Node any) {
+            this.attribute = attribute;
+            this.children = children;
+            this.any = any;
+            this.rule = NO_MATCH;
+        }
+    }
+
+    // a level and the candidate rules left at it, the same pair always builds the same subtree
+    private static class MemoKey {
+        final int level;
+        final int[] candidates;
+        final int hashCode;
+
+        MemoKey(int level, int[] candidates) {
+            this.level = level;
+            this.candidates = candidates;
+            hashCode = 31 * level + Arrays.hashCode(candidates);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            MemoKey that = (MemoKey) o;
+
+            return level == that.level && Arrays.equals(candidates, that.candidates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class TooManyNodes extends RuntimeException {
+        TooManyNodes() {
+            super(null, null, false, false);
+        }
+    }
+
+    private class Compiler {
+        final PolicyAttribute[] attributes;
+        final int maxNodes;
+        final Map<MemoKey, Node> memo = new HashMap<>();
+        int nodes;
+
+        Compiler(PolicyAttribute[] attributes, int maxNodes) {
+            this.attributes = attributes;
+            this.maxNodes = maxNodes;
+        }
+
+        Node counted(Node node) {
+            if (++nodes > maxNodes) {
+                throw new TooManyNodes();
+            }
+            return node;
+        }
+
+        String condition(int rule, int level) {
+            return rules.get(rule).conditions[attributes[level].ordinal()];
+        }
+
+        boolean unconstrainedFrom(int rule, int level) {
+            for (int l = level; l < attributes.length; l++) {
+                if (condition(rule, l) != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Node build(int level, int[] candidates) {
+            // every candidate after the first one that can no longer fail is unreachable
+            for (int x = 0; x < candidates.length; x++) {
+                if (unconstrainedFrom(candidates[x], level)) {
+                    if (x == 0) {
+                        return counted(new Node(candidates[0]));
+                    }
+                    candidates = Arrays.copyOf(candidates, x + 1);
+                    break;
+                }
+            }
+            if (candidates.length == 0) {
+                return null;
+            }
+
+            // skip attributes none of the candidates constrain
+            while (allUnconstrained(level, candidates)) {
+                level++;
+            }
+
+            MemoKey key = new MemoKey(level, candidates);
+            Node node = memo.get(key);
+            if (node == null) {
+                node = buildNode(level, candidates);
+                memo.put(key, node);
+            }
+            return node;
+        }
+
+        boolean allUnconstrained(int level, int[] candidates) {
+            for (int c : candidates) {
+                if (condition(c, level) != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Node buildNode(int level, int[] candidates) {
+            Set<String> values = new LinkedHashSet<>();
+            int anyCount = 0;
+            for (int c : candidates) {
+                String v = condition(c, level);
+                if (v == null) {
+                    anyCount++;
+                }
+                else {
+                    values.add(v);
+                }
+            }
+
+            int[] any = new int[anyCount];
+            int a = 0;
+            for (int c : candidates) {
+                if (condition(c, level) == null) {
+                    any[a++] = c;
+                }
+            }
+
+            Map<String, Node> children = new HashMap<>(values.size() * 4 / 3 + 1);
+            for (String v : values) {
+                int[] subset = new int[candidates.length];
+                int s = 0;
+                for (int c : candidates) {
+                    String cv = condition(c, level);
+                    if (cv == null || cv.equals(v)) {
+                        subset[s++] = c;
+                    }
+                }
+                children.put(v, build(level + 1, Arrays.copyOf(subset, s)));
+            }
+            return counted(new Node(attributes[level], children, build(level + 1, any)));
+        }
+    }
+}
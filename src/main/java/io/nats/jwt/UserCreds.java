@@ -0,0 +1,56 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.jwt;
+
+import java.util.Arrays;
+
+/**
+ * The contents of a creds file, a user JWT and the user seed.
+ * The seed is kept as characters so it can be wiped once it is no longer needed.
+ */
+public class UserCreds {
+    private final String jwt;
+    private final char[] seed;
+
+    /**
+     * Construct creds, the seed is not copied
+     * @param jwt the user JWT
+     * @param seed the user seed
+     */
+    public UserCreds(String jwt, char[] seed) {
+        if (jwt == null || seed == null) {
+            throw new IllegalArgumentException("Jwt and seed are required.");
+        }
+        this.jwt = jwt;
+        this.seed = seed;
+    }
+
+    public String getJwt() {
+        return jwt;
+    }
+
+    /**
+     * @return the seed itself, not a copy
+     */
+    public char[] getSeed() {
+        return seed;
+    }
+
+    /**
+     * Overwrite the seed with zeros
+     */
+    public void wipe() {
+        Arrays.fill(seed, '\0');
+    }
+}
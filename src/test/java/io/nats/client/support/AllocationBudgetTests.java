@@ -0,0 +1,144 @@
+// Copyright 2021-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.support;
+
+import io.nats.json.JsonParser;
+import io.nats.json.JsonValue;
+import io.nats.json.MapBuilder;
+import io.nats.jwt.*;
+import io.nats.nkey.NKey;
+import io.nats.nkey.NKeyProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static io.nats.jwt.JwtUtils.getClaimBody;
+import static io.nats.nkey.NKeyConstants.NKEY_PROVIDER_CLASS_SYSTEM_PROPERTY;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when a hot path allocates more per operation than its budget.
+ * <p>
+ * Each operation is run enough times for the JIT to settle, then the bytes allocated by
+ * the current thread over a batch of runs are averaged. The budgets leave a few times headroom
+ * over what the paths allocate today, so JVM and provider differences pass but a change that,
+ * say, copies the claim json a few more times does not. When a change legitimately needs more,
+ * raise the budget in the same change and say why in its review.
+ */
+public class AllocationBudgetTests {
+    // issue: two renderings of the claim json, the base64url body, the signed bytes,
+    // the signature and the token strings, plus whatever the ed25519 provider allocates
+    static final long ISSUE_JWT_BUDGET = 64 * 1024;
+
+    // one StringBuilder that grows to the json size plus the final string
+    static final long USER_CLAIM_TO_JSON_BUDGET = 8 * 1024;
+
+    // the json tree plus the claim objects built from it
+    static final long CLAIM_PARSE_BUDGET = 32 * 1024;
+
+    // the request objects only, the json is already parsed
+    static final long AUTHORIZATION_REQUEST_BUDGET = 4 * 1024;
+
+    static final int WARMUP = 20_000;
+    static final int RUNS = 2_000;
+
+    static NKey USER_KEY;
+    static NKey SIGNING_KEY;
+    static UserClaim USER_CLAIM;
+    static ClaimIssuer ISSUER;
+    static String CLAIM_BODY;
+    static JsonValue AUTHORIZATION_REQUEST;
+    static com.sun.management.ThreadMXBean THREADS;
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        NKeyProvider.clearInstance();
+        System.setProperty(NKEY_PROVIDER_CLASS_SYSTEM_PROPERTY, "io.nats.nkey.LtsNKeyProvider");
+        NKeyProvider provider = NKeyProvider.getProvider();
+        USER_KEY = provider.fromSeed("SUAGL3KX4ZBBD53BNNLSHGAAGCMXSEYZ6NTYUBUCPZQGHYNK3ZRQBUDPRY".toCharArray());
+        SIGNING_KEY = provider.fromSeed("SAANJIBNEKGCRUWJCPIWUXFBFJLR36FJTFKGBGKAT7AQXH2LVFNQWZJMQU".toCharArray());
+
+        // the same shape as JwtUtilsTests.issueUserJWTSuccessCustom
+        USER_CLAIM = new UserClaim("ACXZRALIL22WRETDRXYKOYDB7XC3E7MBSVUSUMFACO6OM5VPRNFMOOO6")
+            .pub(new Permission().allow("pub-allow-subject").deny("pub-deny-subject"))
+            .sub(new Permission().allow("sub-allow-subject").deny("sub-deny-subject"))
+            .tags("tag1", "tag\\two");
+        ISSUER = new ClaimIssuer()
+            .iat(1633043378L)
+            .iss(new String(SIGNING_KEY.getPublicKey()))
+            .name("custom")
+            .sub(new String(USER_KEY.getPublicKey()))
+            .nats(USER_CLAIM);
+        CLAIM_BODY = getClaimBody(ISSUER.issueJwt(SIGNING_KEY));
+
+        // the same shape as JwtUtilsTests.testInterner
+        AUTHORIZATION_REQUEST = JsonParser.parse(new AuthorizationRequest()
+            .serverId(new ServerId(MapBuilder.instance().put("name", "server").put("host", "host").put("version", "2.10.0").jv))
+            .userNkey(new String(USER_KEY.getPublicKey()))
+            .clientInformation(new ClientInfo(MapBuilder.instance().put("host", "127.0.0.1").put("id", 42).put("kind", "Client").put("type", "nats").jv))
+            .connectOptions(new ConnectOpts(MapBuilder.instance().put("lang", "java").put("version", "2.20.5").jv))
+            .requestNonce("requestNonce")
+            .toJson());
+
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        }
+    }
+
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    private static void assertBudget(String name, long budget, Operation op) throws Exception {
+        assumeTrue(THREADS != null && THREADS.isThreadAllocatedMemorySupported(), "thread allocation is not measurable on this JVM");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        // keep results reachable so nothing is optimized away
+        int sink = 0;
+        for (int x = 0; x < WARMUP; x++) {
+            sink += op.run().hashCode();
+        }
+
+        long tid = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(tid);
+        for (int x = 0; x < RUNS; x++) {
+            sink += op.run().hashCode();
+        }
+        long perOp = (THREADS.getThreadAllocatedBytes(tid) - before) / RUNS;
+
+        assertTrue(perOp <= budget, name + " allocated " + perOp + " bytes per operation, the budget is " + budget + " (" + sink + ")");
+    }
+
+    @Test
+    public void testIssueJwt() throws Exception {
+        assertBudget("ClaimIssuer.issueJwt", ISSUE_JWT_BUDGET, () -> ISSUER.issueJwt(SIGNING_KEY));
+    }
+
+    @Test
+    public void testUserClaimToJson() throws Exception {
+        assertBudget("UserClaim.toJson", USER_CLAIM_TO_JSON_BUDGET, USER_CLAIM::toJson);
+    }
+
+    @Test
+    public void testClaimParse() throws Exception {
+        assertBudget("new Claim(String)", CLAIM_PARSE_BUDGET, () -> new Claim(CLAIM_BODY));
+    }
+
+    @Test
+    public void testAuthorizationRequestParse() throws Exception {
+        assertBudget("new AuthorizationRequest(JsonValue)", AUTHORIZATION_REQUEST_BUDGET, () -> new AuthorizationRequest(AUTHORIZATION_REQUEST));
+    }
+}
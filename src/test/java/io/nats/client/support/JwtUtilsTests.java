@@ -17,13 +17,26 @@ import io.nats.json.*;
 import io.nats.jwt.*;
 import io.nats.nkey.NKey;
 import io.nats.nkey.NKeyProvider;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import org.jspecify.annotations.NonNull;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static io.nats.json.JsonWriteUtils.beginJson;
 import static io.nats.json.JsonWriteUtils.endJson;
@@ -423,6 +436,1487 @@ public class JwtUtilsTests {
         assertNull(ResponsePermission.optionalInstance(null));
     }
 
+    @Test
+    public void testCalloutResponder() throws Exception {
+        _testCalloutResponder("name", new UserClaim(ACCOUNT_ID).pub(getTestFullPub()).sub(getTestFullSub()));
+        _testCalloutResponder("n\u00e4me \u2603", new UserClaim(ACCOUNT_ID).tags("t\u00e4g", "tag/two"));
+
+        ClaimIssuer notResponse = new ClaimIssuer().nats(new UserClaim(ACCOUNT_ID));
+        assertThrows(IllegalArgumentException.class,
+            () -> CalloutResponder.respond(notResponse, SIGNING_KEY, notResponse, SIGNING_KEY));
+    }
+
+    private static void _testCalloutResponder(String name, UserClaim userClaim) throws Exception {
+        String userKey = new String(USER_KEY.getPublicKey());
+        String signingKeyPub = new String(SIGNING_KEY.getPublicKey());
+
+        ClaimIssuer userIssuer = new ClaimIssuer().aud("APP").iat(1633043378L).iss(signingKeyPub)
+            .name(name).sub(userKey).expiresIn(Duration.ofMinutes(5)).nats(userClaim);
+        ClaimIssuer responseIssuer = new ClaimIssuer().aud("server-id").iat(1633043378L).iss(signingKeyPub)
+            .sub(userKey).nats(new AuthorizationResponse().issuerAccount(ACCOUNT_ID));
+        byte[] fused = CalloutResponder.respond(userIssuer, SIGNING_KEY, responseIssuer, SIGNING_KEY);
+
+        String userJwt = new ClaimIssuer().aud("APP").iat(1633043378L).iss(signingKeyPub)
+            .name(name).sub(userKey).expiresIn(Duration.ofMinutes(5)).nats(userClaim)
+            .issueJwt(SIGNING_KEY);
+        String expected = new ClaimIssuer().aud("server-id").iat(1633043378L).iss(signingKeyPub)
+            .sub(userKey).nats(new AuthorizationResponse().issuerAccount(ACCOUNT_ID).jwt(userJwt))
+            .issueJwt(SIGNING_KEY);
+
+        assertEquals(expected, new String(fused, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testInterner() throws Exception {
+        ServerId si = new ServerId(MapBuilder.instance().put("name", "server").put("host", "host").put("version", "2.10.0").jv);
+        ClientInfo ci = new ClientInfo(MapBuilder.instance().put("kind", "Client").put("type", "nats").jv);
+        ConnectOpts co = new ConnectOpts(MapBuilder.instance().put("lang", "java").jv);
+        JsonValue jv = new AuthorizationRequest()
+            .serverId(si)
+            .clientInformation(ci)
+            .connectOptions(co)
+            .toJsonValue();
+
+        Interner interner = new Interner(64);
+        AuthorizationRequest ar1 = new AuthorizationRequest(jv, interner);
+        AuthorizationRequest ar2 = new AuthorizationRequest(jv, interner);
+        assertEquals(ar1, ar2);
+        assertSame(ar1.serverId, ar2.serverId);
+        assertSame(ar1.clientInfo.kind, ar2.clientInfo.kind);
+        assertSame(ar1.connectOpts.lang, ar2.connectOpts.lang);
+        assertNotSame(ar1.clientInfo, ar2.clientInfo);
+
+        AuthorizationRequest ar3 = new AuthorizationRequest(jv);
+        AuthorizationRequest ar4 = new AuthorizationRequest(jv, Interner.NONE);
+        assertEquals(ar1, ar3);
+        assertNotSame(ar3.serverId, ar4.serverId);
+
+        // the shared server id can not be changed, per client values are not interned
+        String tlsJson = "{\"server_id\":{\"name\":\"server\",\"host\":\"host\",\"tags\":[\"a\",\"b\"]}"
+            + ",\"client_info\":{\"kind\":\"Client\",\"type\":\"mqtt\",\"mqtt_id\":\"mqtt-1\"},\"connect_opts\":{\"nkey\":\"UKEY\",\"lang\":\"java\"}"
+            + ",\"client_tls\":{\"version\":\"1.3\",\"certs\":[\"PEM1\"],\"verified_chains\":[[\"PEM1\",\"PEM2\"]]},\"type\":\"" + AUTH_REQUEST_CLAIM_TYPE + "\",\"version\":2}";
+        AuthorizationRequest tls1 = new AuthorizationRequest(JsonParser.parse(tlsJson), interner);
+        AuthorizationRequest tls2 = new AuthorizationRequest(JsonParser.parse(tlsJson), interner);
+        assertEquals(tls1, tls2);
+        assertSame(tls1.serverId, tls2.serverId);
+        assertEquals(Arrays.asList("a", "b"), tls1.serverId.tags);
+        assertThrows(UnsupportedOperationException.class, () -> tls1.serverId.tags.add("c"));
+        assertThrows(UnsupportedOperationException.class, () -> new ServerId(JsonParser.parse(tlsJson).map.get("server_id")).tags.clear());
+        assertSame(tls1.clientTls.version, tls2.clientTls.version);
+        assertSame(tls1.clientInfo.kind, tls2.clientInfo.kind);
+        assertEquals(Collections.singletonList("PEM1"), tls1.clientTls.certs);
+        assertNotSame(tls1.clientTls.certs.get(0), tls2.clientTls.certs.get(0));
+        assertEquals(1, tls1.clientTls.verifiedChains.size());
+        assertEquals(2, tls1.clientTls.verifiedChains.get(0).size());
+        assertEquals(tls1.clientTls.verifiedChains, tls2.clientTls.verifiedChains);
+        assertNotSame(tls1.clientTls.verifiedChains.get(0).get(1), tls2.clientTls.verifiedChains.get(0).get(1));
+        assertNotSame(tls1.connectOpts.nkey, tls2.connectOpts.nkey);
+        assertNotSame(tls1.clientInfo.mqttId, tls2.clientInfo.mqttId);
+
+        assertNull(interner.intern((String) null));
+        assertNull(interner.intern((ServerId) null));
+        assertThrows(IllegalArgumentException.class, () -> new Interner(0));
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        assertSame(JwtMetrics.NONE, getMetrics());
+        HistogramJwtMetrics metrics = new HistogramJwtMetrics();
+        setMetrics(metrics);
+        try {
+            String signingKeyPub = new String(SIGNING_KEY.getPublicKey());
+            String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey()), "name");
+            assertEquals(jwt.length(), metrics.getIssuedSizes(USER_CLAIM_TYPE).getMax());
+            Claim claim = new Claim(getClaimBody(jwt));
+            assertEquals(USER_CLAIM_TYPE, claim.type);
+
+            ClaimIssuer userIssuer = new ClaimIssuer().iat(1633043378L).iss(signingKeyPub)
+                .sub(new String(USER_KEY.getPublicKey())).nats(new UserClaim(ACCOUNT_ID));
+            ClaimIssuer responseIssuer = new ClaimIssuer().iat(1633043378L).iss(signingKeyPub)
+                .sub(new String(USER_KEY.getPublicKey())).nats(new AuthorizationResponse());
+            byte[] reply = CalloutResponder.respond(userIssuer, SIGNING_KEY, responseIssuer, SIGNING_KEY);
+
+            assertEquals(1, metrics.getParsedSizes(USER_CLAIM_TYPE).getCount());
+            assertEquals(getClaimBody(jwt).length(), metrics.getParsedSizes(USER_CLAIM_TYPE).getMax());
+            assertEquals(2, metrics.getIssuedSizes(USER_CLAIM_TYPE).getCount());
+            assertEquals(reply.length, metrics.getIssuedSizes(AUTH_RESPONSE_CLAIM_TYPE).getMax());
+            assertEquals(0, metrics.getIssuedSizes("nope").getCount());
+            assertEquals(3, metrics.getStage(JwtMetrics.Stage.SIGN).getCount());
+            assertEquals(3, metrics.getStage(JwtMetrics.Stage.DIGEST).getCount());
+            assertEquals(6, metrics.getStage(JwtMetrics.Stage.SERIALIZE).getCount());
+            assertEquals(1, metrics.getStage(JwtMetrics.Stage.PARSE).getCount());
+            assertEquals(0, metrics.getStage(JwtMetrics.Stage.VERIFY).getCount());
+
+            Interner interner = new Interner(64);
+            interner.intern("a");
+            interner.intern("a");
+            interner.intern(new String("a"));
+            assertEquals(2, metrics.getCacheHits(JwtMetrics.INTERNER_CACHE));
+            assertEquals(1, metrics.getCacheMisses(JwtMetrics.INTERNER_CACHE));
+            assertEquals(0, metrics.getCacheHits("other"));
+        }
+        finally {
+            setMetrics(null);
+        }
+        assertSame(JwtMetrics.NONE, getMetrics());
+
+        HistogramJwtMetrics.Histogram h = new HistogramJwtMetrics.Histogram();
+        assertEquals(0, h.getPercentile(50));
+        assertEquals(0.0, h.getMean());
+        for (long v = 1; v <= 100; v++) {
+            h.record(v);
+        }
+        h.record(-5);
+        assertEquals(101, h.getCount());
+        assertEquals(5050, h.getSum());
+        assertEquals(100, h.getMax());
+        assertEquals(1, h.getBucketCounts()[0]);
+        assertEquals(63, h.getPercentile(50));
+        assertEquals(100, h.getPercentile(100));
+        assertEquals(0, h.getPercentile(0));
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        String userKey = new String(USER_KEY.getPublicKey());
+        Path file = Files.createTempFile("jwt", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.nats.jwt.Issue");
+            recording.enable("io.nats.jwt.Parse");
+            recording.start();
+            String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, userKey, "name");
+            new Claim(getClaimBody(jwt));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent issue = events.stream().filter(e -> e.getEventType().getName().equals("io.nats.jwt.Issue")).findFirst().orElseThrow();
+            assertEquals(USER_CLAIM_TYPE, issue.getString("claimType"));
+            assertEquals(new String(SIGNING_KEY.getPublicKey()), issue.getString("issuer"));
+            assertEquals(userKey, issue.getString("subject"));
+            assertEquals(jwt.length(), issue.getInt("tokenSize"));
+            assertTrue(issue.getLong("signTime") > 0);
+
+            RecordedEvent parse = events.stream().filter(e -> e.getEventType().getName().equals("io.nats.jwt.Parse")).findFirst().orElseThrow();
+            assertEquals(USER_CLAIM_TYPE, parse.getString("claimType"));
+            assertEquals(getClaimBody(jwt).length(), parse.getInt("jsonSize"));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testVerifySignature() throws Exception {
+        String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey()), "name");
+        NKey issuerKey = PROVIDER.fromPublicKey(new Claim(getClaimBody(jwt)).iss.toCharArray());
+        assertTrue(verifySignature(jwt, issuerKey));
+        assertTrue(verifySignature(jwt, SIGNING_KEY));
+
+        int dot = jwt.lastIndexOf('.');
+        String other = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey()), "other");
+        assertFalse(verifySignature(other.substring(0, other.lastIndexOf('.')) + jwt.substring(dot), issuerKey));
+        assertFalse(verifySignature(jwt, USER_KEY));
+
+        assertThrows(IllegalArgumentException.class, () -> verifySignature("no-dots", issuerKey));
+        assertThrows(IllegalArgumentException.class, () -> verifySignature("one.dot", issuerKey));
+        assertThrows(IllegalArgumentException.class, () -> verifySignature(jwt.substring(0, dot) + ".not*base64", issuerKey));
+
+        HistogramJwtMetrics metrics = new HistogramJwtMetrics();
+        setMetrics(metrics);
+        try {
+            verifySignature(jwt, issuerKey);
+            assertEquals(1, metrics.getStage(JwtMetrics.Stage.VERIFY).getCount());
+        }
+        finally {
+            setMetrics(null);
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        assertFalse(warmUp(0).isNegative());
+        assertFalse(warmUp(3).isNegative());
+    }
+
+    @Test
+    public void testClaimIssuerIsReusable() throws Exception {
+        ClaimIssuer issuer = new ClaimIssuer().iat(1000).expiresIn(Duration.ofMinutes(5)).nats(new UserClaim(ACCOUNT_ID));
+        assertEquals(1300, new Claim(getClaimBody(issuer.issueJwt(SIGNING_KEY))).exp);
+        assertEquals(2300, new Claim(getClaimBody(issuer.iat(2000).issueJwt(SIGNING_KEY))).exp);
+        assertEquals(5000, new Claim(getClaimBody(issuer.exp(5000L).issueJwt(SIGNING_KEY))).exp);
+    }
+
+    @Test
+    public void testFrozenClaimIssuer() throws Exception {
+        String signingKeyPub = new String(SIGNING_KEY.getPublicKey());
+        String userKey = new String(USER_KEY.getPublicKey());
+        UserClaim userClaim = new UserClaim(ACCOUNT_ID).tags("tag1");
+
+        ClaimIssuer issuer = new ClaimIssuer().aud("APP").iat(1633043378L).expiresIn(Duration.ofMinutes(5));
+        FrozenClaimIssuer frozen = issuer.freeze(SIGNING_KEY);
+        assertEquals(signingKeyPub, frozen.getIss());
+        assertEquals("APP", frozen.getAud());
+        assertNull(frozen.getNbf());
+        assertEquals(Duration.ofMinutes(5), frozen.getExpiresIn());
+        assertSame(SIGNING_KEY, frozen.getSigningKey());
+
+        // changing the builder does not change the frozen issuer
+        issuer.aud("OTHER").iat(1);
+
+        String expected = new ClaimIssuer().aud("APP").iat(1633043378L).expiresIn(Duration.ofMinutes(5))
+            .iss(signingKeyPub).sub(userKey).name("name").nats(userClaim).issueJwt(SIGNING_KEY);
+        assertEquals(expected, frozen.issueJwt(userKey, "name", userClaim));
+        assertEquals(expected, frozen.issueJwt(userKey, "name", userClaim));
+
+        Claim claim = new Claim(getClaimBody(frozen.issueJwt(userKey, userClaim)));
+        assertNull(claim.name);
+        assertEquals(1633043378L + 300, claim.exp);
+
+        FrozenClaimIssuer now = new ClaimIssuer().iss(ACCOUNT_ID).freeze(SIGNING_KEY);
+        assertEquals(ACCOUNT_ID, now.getIss());
+        long before = currentTimeSeconds();
+        claim = new Claim(getClaimBody(now.issueJwt(userKey, userClaim)));
+        assertTrue(claim.iat >= before);
+        assertEquals(-1, claim.exp);
+    }
+
+    @Test
+    public void testSigningKeyRegistry() throws Exception {
+        NKey otherKey = PROVIDER.fromSeed("SAADFHQTEKYBOCG4CPEPNAJ5FLRX4G4WTCNTAIOKN3LARLHGVKB4BRUHYY".toCharArray());
+        String signingKeyPub = new String(SIGNING_KEY.getPublicKey());
+        String otherKeyPub = new String(otherKey.getPublicKey());
+        String userKey = new String(USER_KEY.getPublicKey());
+
+        SigningKeyRegistry registry = new SigningKeyRegistry();
+        assertNull(registry.get(ACCOUNT_ID));
+        assertFalse(registry.isValid(ACCOUNT_ID, signingKeyPub));
+        assertThrows(IllegalArgumentException.class, () -> registry.issueUserJWT(userKey, null, null, null, null, new UserClaim(ACCOUNT_ID)));
+
+        AccountSigningKey key = registry.register(ACCOUNT_ID, SIGNING_KEY);
+        assertEquals(ACCOUNT_ID, key.getIssuerAccount());
+        assertEquals(signingKeyPub, key.getPublicKey());
+        assertSame(SIGNING_KEY, key.getSigningKey());
+        assertSame(key, registry.get(ACCOUNT_ID));
+        assertTrue(registry.isValid(ACCOUNT_ID, signingKeyPub));
+        assertFalse(registry.isValid(ACCOUNT_ID, null));
+        assertEquals(Collections.singleton(ACCOUNT_ID), registry.getAccounts());
+
+        UserClaim userClaim = new UserClaim(ACCOUNT_ID).tags("tag1");
+        String expected = issueUserJWT(SIGNING_KEY, userKey, "name", Duration.ofMinutes(5), 1633043378L, "APP", userClaim);
+        assertEquals(expected, registry.issueUserJWT(userKey, "name", Duration.ofMinutes(5), 1633043378L, "APP", userClaim));
+        assertThrows(IllegalArgumentException.class, () -> registry.issueUserJWT(ACCOUNT_ID, null, null, null, null, userClaim));
+
+        // rotate with an overlap, both keys are valid, the new one signs
+        registry.rotate(ACCOUNT_ID, otherKey, Duration.ofHours(1));
+        assertEquals(otherKeyPub, registry.get(ACCOUNT_ID).getPublicKey());
+        assertSame(key, registry.getPrevious(ACCOUNT_ID));
+        assertTrue(registry.isValid(ACCOUNT_ID, signingKeyPub));
+        assertTrue(registry.isValid(ACCOUNT_ID, otherKeyPub));
+        String jwt = registry.issueUserJWT(userKey, null, null, null, null, userClaim);
+        assertEquals(otherKeyPub, new Claim(getClaimBody(jwt)).iss);
+
+        // rotate without an overlap, only the new key is valid
+        registry.rotate(ACCOUNT_ID, SIGNING_KEY, Duration.ZERO);
+        assertNull(registry.getPrevious(ACCOUNT_ID));
+        assertFalse(registry.isValid(ACCOUNT_ID, otherKeyPub));
+        assertTrue(registry.isValid(ACCOUNT_ID, signingKeyPub));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.register(ACCOUNT_ID, USER_KEY));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(userKey, SIGNING_KEY));
+        assertThrows(IllegalArgumentException.class, () -> registry.rotate(ACCOUNT_ID, USER_KEY, null));
+
+        assertTrue(registry.remove(ACCOUNT_ID));
+        assertFalse(registry.remove(ACCOUNT_ID));
+        assertNull(registry.getPrevious(ACCOUNT_ID));
+        registry.rotate(ACCOUNT_ID, SIGNING_KEY, null);
+        assertEquals(signingKeyPub, registry.get(ACCOUNT_ID).getPublicKey());
+    }
+
+    @Test
+    public void testClock() throws Exception {
+        assertSame(JwtClock.SYSTEM, getClock());
+        ManualJwtClock clock = new ManualJwtClock(1633043378L);
+        setClock(clock);
+        try {
+            assertEquals(1633043378L, currentTimeSeconds());
+            ClaimIssuer issuer = new ClaimIssuer().expiresIn(Duration.ofMinutes(5)).nats(new UserClaim(ACCOUNT_ID));
+            Claim claim = new Claim(getClaimBody(issuer.issueJwt(SIGNING_KEY)));
+            assertEquals(1633043378L, claim.iat);
+            assertEquals(1633043378L + 300, claim.exp);
+            assertFalse(claim.isExpired());
+
+            assertEquals(1633043378L + 299, clock.advance(Duration.ofSeconds(299)));
+            assertFalse(claim.isExpired());
+            clock.advance(Duration.ofSeconds(1));
+            assertTrue(claim.isExpired());
+
+            String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey()));
+            claim = new Claim(getClaimBody(jwt));
+            assertEquals(1633043378L + 300, claim.iat);
+            assertFalse(claim.isExpired());
+
+            SigningKeyRegistry registry = new SigningKeyRegistry();
+            registry.register(ACCOUNT_ID, SIGNING_KEY);
+            registry.rotate(ACCOUNT_ID, PROVIDER.fromSeed("SAADFHQTEKYBOCG4CPEPNAJ5FLRX4G4WTCNTAIOKN3LARLHGVKB4BRUHYY".toCharArray()), Duration.ofMinutes(1));
+            clock.advance(Duration.ofSeconds(59));
+            assertTrue(registry.isValid(ACCOUNT_ID, new String(SIGNING_KEY.getPublicKey())));
+            clock.advance(Duration.ofSeconds(1));
+            assertFalse(registry.isValid(ACCOUNT_ID, new String(SIGNING_KEY.getPublicKey())));
+
+            // rotating again during an overlap keeps each replaced key for its own window
+            NKey key1 = PROVIDER.createAccount();
+            NKey key2 = PROVIDER.createAccount();
+            NKey key3 = PROVIDER.createAccount();
+            String pub1 = new String(key1.getPublicKey());
+            String pub2 = new String(key2.getPublicKey());
+            registry.register(ACCOUNT_ID, key1);
+            registry.rotate(ACCOUNT_ID, key2, Duration.ofMinutes(1));
+            clock.advance(Duration.ofSeconds(10));
+            registry.rotate(ACCOUNT_ID, key3, Duration.ofMinutes(1));
+            assertEquals(new String(key3.getPublicKey()), registry.get(ACCOUNT_ID).getPublicKey());
+            assertEquals(pub2, registry.getPrevious(ACCOUNT_ID).getPublicKey());
+            assertTrue(registry.isValid(ACCOUNT_ID, pub1));
+            assertTrue(registry.isValid(ACCOUNT_ID, pub2));
+            clock.advance(Duration.ofSeconds(50));
+            assertFalse(registry.isValid(ACCOUNT_ID, pub1));
+            assertTrue(registry.isValid(ACCOUNT_ID, pub2));
+            clock.advance(Duration.ofSeconds(10));
+            assertFalse(registry.isValid(ACCOUNT_ID, pub2));
+            assertNull(registry.getPrevious(ACCOUNT_ID));
+
+            // rotating back to a replaced key makes it current, no longer previous
+            registry.rotate(ACCOUNT_ID, key1, Duration.ofMinutes(1));
+            registry.rotate(ACCOUNT_ID, key3, Duration.ZERO);
+            assertNull(registry.getPrevious(ACCOUNT_ID));
+
+            clock.set(1);
+            assertEquals(1, currentTimeSeconds());
+        }
+        finally {
+            setClock(null);
+        }
+        assertSame(JwtClock.SYSTEM, getClock());
+
+        assertThrows(IllegalArgumentException.class, () -> new CoarseJwtClock(Duration.ZERO));
+        try (CoarseJwtClock coarse = new CoarseJwtClock(Duration.ofMillis(10))) {
+            assertTrue(coarse.isRunning());
+            assertEquals(Duration.ofMillis(10), coarse.getTick());
+            assertTrue(Math.abs(JwtClock.SYSTEM.currentTimeSeconds() - coarse.currentTimeSeconds()) <= 1);
+            setClock(coarse);
+            assertTrue(Math.abs(JwtClock.SYSTEM.currentTimeSeconds() - currentTimeSeconds()) <= 1);
+            coarse.close();
+            assertFalse(coarse.isRunning());
+            assertTrue(Math.abs(JwtClock.SYSTEM.currentTimeSeconds() - coarse.currentTimeSeconds()) <= 1);
+        }
+        finally {
+            setClock(null);
+        }
+    }
+
+    @Test
+    public void testRevocationIndex() throws Exception {
+        String userKey = new String(USER_KEY.getPublicKey());
+        RevocationIndex index = new RevocationIndex();
+        assertFalse(index.isRevoked(ACCOUNT_ID, userKey, 100));
+        assertNull(index.getRevocation(ACCOUNT_ID, userKey));
+        assertEquals(0, index.size(ACCOUNT_ID));
+        assertFalse(index.remove(ACCOUNT_ID, userKey));
+
+        index.revoke(ACCOUNT_ID, userKey, 100);
+        assertTrue(index.isRevoked(ACCOUNT_ID, userKey, 99));
+        assertTrue(index.isRevoked(ACCOUNT_ID, userKey, 100));
+        assertFalse(index.isRevoked(ACCOUNT_ID, userKey, 101));
+        assertFalse(index.isRevoked("AOTHER", userKey, 99));
+        assertFalse(index.isRevoked(ACCOUNT_ID, "not-a-key", 99));
+        assertEquals(Long.valueOf(100), index.getRevocation(ACCOUNT_ID, userKey));
+        assertEquals(1, index.size(ACCOUNT_ID));
+
+        // issued at 1633043378, revoked at or after that
+        String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, userKey, null, null, null, 1633043378L);
+        Claim claim = new Claim(getClaimBody(jwt));
+        assertFalse(index.isRevoked(claim));
+        index.revoke(ACCOUNT_ID, userKey, 1633043378L);
+        assertTrue(index.isRevoked(claim));
+        assertEquals(1, index.size(ACCOUNT_ID));
+        assertTrue(index.remove(ACCOUNT_ID, userKey));
+        assertFalse(index.remove(ACCOUNT_ID, userKey));
+        assertFalse(index.isRevoked(claim));
+        assertEquals(0, index.size(ACCOUNT_ID));
+
+        index.revoke(ACCOUNT_ID, RevocationIndex.ALL_USERS, 1633043378L);
+        assertTrue(index.isRevoked(claim));
+        assertEquals(Long.valueOf(1633043378L), index.getRevocation(ACCOUNT_ID, RevocationIndex.ALL_USERS));
+        assertTrue(index.remove(ACCOUNT_ID, RevocationIndex.ALL_USERS));
+        assertFalse(index.remove(ACCOUNT_ID, RevocationIndex.ALL_USERS));
+        assertFalse(index.isRevoked(claim));
+        assertFalse(index.isRevoked(new Claim(getClaimBody(new ClaimIssuer().nats(new AuthorizationResponse()).issueJwt(SIGNING_KEY)))));
+
+        // enough keys to grow the table several times, then bulk load over them
+        Random r = new Random(42);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+        Map<String, Long> revocations = new HashMap<>();
+        for (int x = 0; x < 5000; x++) {
+            StringBuilder sb = new StringBuilder("U");
+            for (int c = 1; c < 56; c++) {
+                sb.append(alphabet.charAt(r.nextInt(32)));
+            }
+            revocations.put(sb.toString(), (long) x);
+            index.revoke(ACCOUNT_ID, sb.toString(), x);
+        }
+        String[] keys = revocations.keySet().toArray(new String[0]);
+        for (int x = 0; x < 2500; x++) {
+            assertTrue(index.remove(ACCOUNT_ID, keys[x]));
+        }
+        assertEquals(2500, index.size(ACCOUNT_ID));
+        for (Map.Entry<String, Long> e : revocations.entrySet()) {
+            index.revoke(ACCOUNT_ID, e.getKey(), e.getValue());
+        }
+        assertEquals(5000, index.size(ACCOUNT_ID));
+        for (Map.Entry<String, Long> e : revocations.entrySet()) {
+            assertTrue(index.isRevoked(ACCOUNT_ID, e.getKey(), e.getValue()));
+            assertFalse(index.isRevoked(ACCOUNT_ID, e.getKey(), e.getValue() + 1));
+        }
+
+        revocations.put(RevocationIndex.ALL_USERS, 10L);
+        index.load(ACCOUNT_ID, revocations);
+        assertEquals(5000, index.size(ACCOUNT_ID));
+        assertTrue(index.isRevoked(ACCOUNT_ID, userKey, 10));
+        for (Map.Entry<String, Long> e : revocations.entrySet()) {
+            assertEquals(e.getValue(), index.getRevocation(ACCOUNT_ID, e.getKey()));
+        }
+        index.load(ACCOUNT_ID, Collections.emptyMap());
+        assertEquals(0, index.size(ACCOUNT_ID));
+        assertFalse(index.isRevoked(ACCOUNT_ID, userKey, 10));
+
+        assertThrows(IllegalArgumentException.class, () -> index.revoke(ACCOUNT_ID, "short", 1));
+        assertThrows(IllegalArgumentException.class, () -> index.revoke(ACCOUNT_ID, userKey.replace(userKey.charAt(5), '1'), 1));
+        index.removeAccount(ACCOUNT_ID);
+        assertNull(index.getRevocation(ACCOUNT_ID, RevocationIndex.ALL_USERS));
+        assertEquals(0, index.size(ACCOUNT_ID));
+    }
+
+    @Test
+    public void testRevocationIndexRaces() throws Exception {
+        String userKey = new String(USER_KEY.getPublicKey());
+        RevocationIndex index = new RevocationIndex();
+
+        // both loads revoke the user, one through the table and one through all users,
+        // so a check that mixes the two states is the only way to see it as not revoked
+        Map<String, Long> byAll = Collections.singletonMap(RevocationIndex.ALL_USERS, 100L);
+        Map<String, Long> byKey = Collections.singletonMap(userKey, 100L);
+        index.load(ACCOUNT_ID, byKey);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+        Thread checker = new Thread(() -> {
+            while (!done.get()) {
+                if (!index.isRevoked(ACCOUNT_ID, userKey, 50)) {
+                    torn.set(true);
+                }
+            }
+        });
+        checker.start();
+        try {
+            for (int x = 0; x < 20000; x++) {
+                index.load(ACCOUNT_ID, x % 2 == 0 ? byAll : byKey);
+            }
+        }
+        finally {
+            done.set(true);
+            checker.join(10000);
+        }
+        assertFalse(checker.isAlive());
+        assertFalse(torn.get());
+
+        // removing the account while others update it, every update after the last removal is kept
+        String otherKey = new String(SIGNING_KEY.getPublicKey());
+        done.set(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread remover = new Thread(() -> {
+            while (!done.get()) {
+                index.removeAccount(ACCOUNT_ID);
+            }
+        });
+        Thread writer = new Thread(() -> {
+            try {
+                for (int x = 0; x < 20000; x++) {
+                    index.revoke(ACCOUNT_ID, userKey, x);
+                    index.revoke(ACCOUNT_ID, RevocationIndex.ALL_USERS, x);
+                    index.load(ACCOUNT_ID, Collections.singletonMap(otherKey, (long) x));
+                }
+            }
+            catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        remover.start();
+        writer.start();
+        writer.join(30000);
+        done.set(true);
+        remover.join(10000);
+        assertFalse(writer.isAlive());
+        assertFalse(remover.isAlive());
+        assertNull(failure.get());
+        index.revoke(ACCOUNT_ID, userKey, 7);
+        index.revoke(ACCOUNT_ID, RevocationIndex.ALL_USERS, 8);
+        assertEquals(Long.valueOf(7), index.getRevocation(ACCOUNT_ID, userKey));
+        assertEquals(Long.valueOf(8), index.getRevocation(ACCOUNT_ID, RevocationIndex.ALL_USERS));
+        index.removeAccount(ACCOUNT_ID);
+        assertFalse(index.remove(ACCOUNT_ID, userKey));
+        assertEquals(0, index.size(ACCOUNT_ID));
+        index.revoke(ACCOUNT_ID, userKey, 9);
+        assertEquals(1, index.size(ACCOUNT_ID));
+        assertTrue(index.isRevoked(ACCOUNT_ID, userKey, 9));
+    }
+
+    @Test
+    public void testRefreshScheduler() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new RefreshScheduler(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RefreshScheduler(0.5, 0.5));
+        long start = 1633043378L;
+        ManualJwtClock clock = new ManualJwtClock(start);
+        setClock(clock);
+        try {
+            try (RefreshScheduler scheduler = new RefreshScheduler(0.5, 0)) {
+                RefreshListener ignore = (h, jwt) -> {};
+                assertThrows(IllegalArgumentException.class, () -> scheduler.track(new ClaimIssuer().nats(new UserClaim(ACCOUNT_ID)), SIGNING_KEY, ignore));
+                assertThrows(IllegalArgumentException.class, () -> scheduler.track(new ClaimIssuer().iat(1).expiresIn(Duration.ofMinutes(1)).nats(new UserClaim(ACCOUNT_ID)), SIGNING_KEY, ignore));
+
+                List<String> tokens = new ArrayList<>();
+                ClaimIssuer template = new ClaimIssuer().sub(new String(USER_KEY.getPublicKey())).expiresIn(Duration.ofSeconds(100)).nats(new UserClaim(ACCOUNT_ID));
+                RefreshHandle handle = scheduler.track(template, SIGNING_KEY, (h, jwt) -> tokens.add(jwt));
+                template.sub("changed");
+                assertEquals(1, scheduler.size());
+                assertEquals(start, handle.getIssuedAt());
+                assertEquals(start + 100, handle.getExpiresAt());
+                assertEquals(start + 50, handle.getRefreshAt());
+                assertEquals(start, new Claim(getClaimBody(handle.getJwt())).iat);
+
+                clock.advance(Duration.ofSeconds(49));
+                assertEquals(0, scheduler.runDue());
+                assertTrue(tokens.isEmpty());
+                clock.advance(Duration.ofSeconds(1));
+                assertEquals(1, scheduler.runDue());
+                assertEquals(1, tokens.size());
+                assertEquals(tokens.get(0), handle.getJwt());
+                Claim claim = new Claim(getClaimBody(handle.getJwt()));
+                assertEquals(start + 50, claim.iat);
+                assertEquals(start + 150, claim.exp);
+                assertEquals(new String(USER_KEY.getPublicKey()), claim.sub);
+                assertEquals(start + 100, handle.getRefreshAt());
+
+                handle.cancel();
+                assertTrue(handle.isCancelled());
+                assertEquals(0, scheduler.size());
+                clock.advance(Duration.ofSeconds(500));
+                assertEquals(0, scheduler.runDue());
+                assertEquals(1, tokens.size());
+            }
+
+            // lifetimes spread over several wheel levels, with jitter, none may lapse
+            clock.set(start);
+            try (RefreshScheduler scheduler = new RefreshScheduler(0.8, 0.2)) {
+                Random r = new Random(42);
+                List<RefreshHandle> handles = new ArrayList<>();
+                Map<RefreshHandle, Long> lastIat = new HashMap<>();
+                RefreshListener listener = (h, jwt) -> {
+                    assertTrue(h.getIssuedAt() > lastIat.put(h, h.getIssuedAt()));
+                    assertEquals(h.getJwt(), jwt);
+                };
+                for (int x = 0; x < 500; x++) {
+                    ClaimIssuer template = new ClaimIssuer().expiresIn(Duration.ofSeconds(1000 + r.nextInt(100_000))).nats(new UserClaim(ACCOUNT_ID));
+                    RefreshHandle h = scheduler.track(template, SIGNING_KEY, listener);
+                    lastIat.put(h, h.getIssuedAt());
+                    handles.add(h);
+                }
+                int refreshed = 0;
+                while (clock.currentTimeSeconds() < start + 200_000) {
+                    long now = clock.advance(Duration.ofSeconds(1 + r.nextInt(100)));
+                    refreshed += scheduler.runDue();
+                    for (RefreshHandle h : handles) {
+                        assertTrue(h.getExpiresAt() > now);
+                        assertTrue(h.getRefreshAt() > now);
+                    }
+                }
+                assertTrue(refreshed > 500);
+                assertEquals(500, scheduler.size());
+
+                scheduler.start();
+                assertTrue(scheduler.isRunning());
+                scheduler.close();
+                assertFalse(scheduler.isRunning());
+            }
+
+            // an error from a listener does not drop the other due entries
+            clock.set(start);
+            try (RefreshScheduler scheduler = new RefreshScheduler(0.5, 0)) {
+                ClaimIssuer template = new ClaimIssuer().expiresIn(Duration.ofSeconds(100)).nats(new UserClaim(ACCOUNT_ID));
+                List<RefreshHandle> refreshed = new ArrayList<>();
+                RefreshListener listener = (h, jwt) -> {
+                    if (refreshed.isEmpty()) {
+                        refreshed.add(h);
+                        throw new Error("listener");
+                    }
+                    refreshed.add(h);
+                };
+                scheduler.track(template, SIGNING_KEY, listener);
+                scheduler.track(template, SIGNING_KEY, listener);
+                clock.advance(Duration.ofSeconds(50));
+                assertThrows(Error.class, scheduler::runDue);
+                assertEquals(2, scheduler.size());
+                clock.advance(Duration.ofSeconds(1));
+                assertEquals(1, scheduler.runDue());
+                assertEquals(2, refreshed.size());
+                assertNotSame(refreshed.get(0), refreshed.get(1));
+            }
+        }
+        finally {
+            setClock(null);
+        }
+    }
+
+    @Test
+    public void testClaimRenewer() throws Exception {
+        ManualJwtClock clock = new ManualJwtClock(1633043378L);
+        setClock(clock);
+        try {
+            UserClaim uc = new UserClaim(ACCOUNT_ID).pub(new Permission().allow(Arrays.asList("foo.>", "bar")));
+            for (String name : new String[]{null, "plain", "n\u00e4me \ud83d\ude00"}) {
+                ClaimIssuer issuer = new ClaimIssuer().aud("aud").name(name).sub(new String(USER_KEY.getPublicKey()))
+                    .expiresIn(Duration.ofMinutes(10)).nats(uc);
+                ClaimRenewer renewer = new ClaimRenewer(issuer);
+                assertEquals(600, renewer.getLifetime());
+                assertEquals(issuer.issueJwt(SIGNING_KEY), renewer.renew(SIGNING_KEY));
+                clock.advance(Duration.ofSeconds(100));
+                assertEquals(issuer.issueJwt(SIGNING_KEY), renewer.renew(SIGNING_KEY));
+                assertEquals(issuer.iat(5).exp(7L).issueJwt(SIGNING_KEY), renewer.renew(5, 7, SIGNING_KEY));
+                assertEquals(issuer.exp(null).expiresIn(null).issueJwt(SIGNING_KEY), renewer.renew(5, 0, SIGNING_KEY));
+            }
+
+            String jwt = new ClaimIssuer().iat(1000).exp(1060L).name("renew me").nats(uc).issueJwt(SIGNING_KEY);
+            ClaimRenewer renewer = new ClaimRenewer(jwt);
+            assertEquals(60, renewer.getLifetime());
+            String renewed = renewer.renew(SIGNING_KEY);
+            assertTrue(verifySignature(renewed, SIGNING_KEY));
+            Claim original = new Claim(getClaimBody(jwt));
+            Claim claim = new Claim(getClaimBody(renewed));
+            assertEquals(clock.currentTimeSeconds(), claim.iat);
+            assertEquals(clock.currentTimeSeconds() + 60, claim.exp);
+            assertNotEquals(original.jti, claim.jti);
+            assertEquals(original.name, claim.name);
+            assertEquals(original.userClaim, claim.userClaim);
+            assertEquals(0, new ClaimRenewer(new ClaimIssuer().nats(uc).issueJwt(SIGNING_KEY)).getLifetime());
+
+            // without nbf and nats the claim ends at exp, or at iat
+            ClaimIssuer minimal = new ClaimIssuer().expiresIn(Duration.ofMinutes(1));
+            ClaimRenewer minimalRenewer = new ClaimRenewer(minimal);
+            String minimalJwt = minimalRenewer.renew(SIGNING_KEY);
+            assertEquals(minimal.issueJwt(SIGNING_KEY), minimalJwt);
+            assertFalse(getClaimBody(minimalJwt).contains(",}"));
+            assertEquals(clock.currentTimeSeconds() + 60, new Claim(getClaimBody(minimalJwt)).exp);
+            String noExp = minimalRenewer.renew(5, 0, SIGNING_KEY);
+            assertEquals(new ClaimIssuer().iat(5).issueJwt(SIGNING_KEY), noExp);
+            assertFalse(getClaimBody(noExp).contains(",}"));
+            assertEquals(5, new Claim(getClaimBody(noExp)).iat);
+        }
+        finally {
+            setClock(null);
+        }
+    }
+
+    @Test
+    public void testIssuedJwtStore() throws Exception {
+        Path dir = Files.createTempDirectory("jwts");
+        ManualJwtClock clock = new ManualJwtClock(1633043378L);
+        setClock(clock);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> new IssuedJwtStore(dir, 100));
+            List<String> jwts = new ArrayList<>();
+            List<String> subjects = new ArrayList<>();
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                for (int x = 0; x < 60; x++) {
+                    String sub = "U" + (x % 5);
+                    // the first 40 expire after 100 seconds, the rest after a day
+                    String jwt = new ClaimIssuer().sub(sub).expiresIn(Duration.ofSeconds(x < 40 ? 100 : 86400))
+                        .nats(new UserClaim(ACCOUNT_ID)).issueJwt(SIGNING_KEY);
+                    store.append(jwt);
+                    jwts.add(jwt);
+                    subjects.add(sub);
+                    clock.advance(Duration.ofSeconds(1));
+                }
+                store.sync();
+                store.sync();
+                assertEquals(60, store.size());
+                assertTrue(store.getSegmentCount() > 3);
+                for (String jwt : jwts) {
+                    String jti = new Claim(getClaimBody(jwt)).jti;
+                    assertEquals(jwt, store.getJwt(jti));
+                    ByteBuffer view = store.getToken(jti);
+                    assertTrue(view.isReadOnly());
+                    assertEquals(jwt.length(), view.remaining());
+                }
+                assertEquals(jwts.get(59), store.getLatestJwt("U4"));
+                assertEquals(jwts.get(55), store.getLatestJwt("U0"));
+                assertNull(store.getJwt("nope"));
+                assertNull(store.getLatestToken("nope"));
+                assertThrows(IllegalArgumentException.class, () -> store.append(jwts.get(0), new Claim("{\"sub\":\"U0\",\"nats\":{\"type\":\"user\"}}")));
+            }
+
+            // a torn append at the end of the last segment is ignored on reopen
+            Path last;
+            try (Stream<Path> files = Files.list(dir)) {
+                last = files.max(Comparator.naturalOrder()).orElseThrow();
+            }
+            byte[] bytes = Files.readAllBytes(last);
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] == 0) {
+                end--;
+            }
+            bytes[end] = 0;
+            bytes[end + 3] = 50;
+            bytes[end + 4] = 7;
+            Files.write(last, bytes);
+
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                assertEquals(60, store.size());
+                for (int x = 0; x < jwts.size(); x++) {
+                    assertEquals(jwts.get(x), store.getJwt(new Claim(getClaimBody(jwts.get(x))).jti));
+                }
+                assertEquals(jwts.get(59), store.getLatestJwt("U4"));
+                String extra = new ClaimIssuer().sub("U9").nats(new UserClaim(ACCOUNT_ID)).issueJwt(SIGNING_KEY);
+                store.append(extra);
+                jwts.add(extra);
+            }
+
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                assertEquals(61, store.size());
+                assertEquals(jwts.get(60), store.getLatestJwt("U9"));
+
+                // the first 40 have expired, their segments go and the live tokens move
+                clock.advance(Duration.ofSeconds(100));
+                int segments = store.getSegmentCount();
+                assertTrue(store.compact() > 0);
+                assertTrue(store.getSegmentCount() < segments);
+                assertEquals(0, store.compact());
+                for (int x = 0; x < jwts.size(); x++) {
+                    Claim claim = new Claim(getClaimBody(jwts.get(x)));
+                    if (claim.isExpired()) {
+                        assertNull(store.getJwt(claim.jti));
+                    }
+                    else {
+                        assertEquals(jwts.get(x), store.getJwt(claim.jti));
+                    }
+                }
+                assertEquals(jwts.get(59), store.getLatestJwt("U4"));
+            }
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                assertEquals(jwts.get(59), store.getLatestJwt("U4"));
+                assertEquals(jwts.get(60), store.getLatestJwt("U9"));
+                store.close();
+                assertThrows(IllegalStateException.class, () -> store.append(jwts.get(0)));
+            }
+        }
+        finally {
+            setClock(null);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : files.toArray(Path[]::new)) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testIssuedJwtStoreSyncWhileRolling() throws Exception {
+        Path dir = Files.createTempDirectory("jwts");
+        try {
+            List<String> jwts = new ArrayList<>();
+            for (int x = 0; x < 200; x++) {
+                jwts.add(new ClaimIssuer().sub("U" + x).nats(new UserClaim(ACCOUNT_ID)).issueJwt(SIGNING_KEY));
+            }
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                AtomicBoolean done = new AtomicBoolean();
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+                Thread syncer = new Thread(() -> {
+                    try {
+                        while (!done.get()) {
+                            store.sync();
+                        }
+                    }
+                    catch (Throwable t) {
+                        failure.set(t);
+                    }
+                });
+                Thread appender = new Thread(() -> {
+                    try {
+                        for (String jwt : jwts) {
+                            store.append(jwt);
+                        }
+                    }
+                    catch (Throwable t) {
+                        failure.set(t);
+                    }
+                    finally {
+                        done.set(true);
+                    }
+                });
+                syncer.start();
+                appender.start();
+                appender.join(10_000);
+                syncer.join(10_000);
+                assertFalse(appender.isAlive());
+                assertFalse(syncer.isAlive());
+                assertNull(failure.get());
+                assertEquals(200, store.size());
+                assertTrue(store.getSegmentCount() > 10);
+            }
+
+            // a sealed segment with nothing in it is deleted
+            Path empty = dir.resolve("segment-0000001000.jwts");
+            Files.write(empty, new byte[4096]);
+            Files.write(dir.resolve("segment-0000001001.jwts"), new byte[4096]);
+            try (IssuedJwtStore store = new IssuedJwtStore(dir, 4096)) {
+                assertEquals(200, store.size());
+                int segments = store.getSegmentCount();
+                store.compact();
+                assertFalse(Files.exists(empty));
+                assertEquals(200, store.size());
+                assertTrue(store.getSegmentCount() < segments);
+            }
+        }
+        finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : files.toArray(Path[]::new)) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testCreds() throws Exception {
+        String jwt = issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey()));
+        char[] seed = USER_KEY.getSeed();
+        String expected = String.format(NATS_USER_JWT_FORMAT, jwt, new String(seed));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CredsWriter writer = new CredsWriter(Channels.newChannel(out), 1024)) {
+            for (int x = 0; x < 20; x++) {
+                writer.write(jwt, seed);
+            }
+            writer.write(new UserCreds(jwt + "X", seed));
+        }
+        byte[] archive = out.toByteArray();
+        assertEquals(expected.repeat(20) + String.format(NATS_USER_JWT_FORMAT, jwt + "X", new String(seed)), new String(archive, StandardCharsets.US_ASCII));
+
+        List<UserCreds> all = CredsReader.readAll(ByteBuffer.wrap(archive));
+        assertEquals(21, all.size());
+        for (int x = 0; x < 20; x++) {
+            assertEquals(jwt, all.get(x).getJwt());
+            assertArrayEquals(seed, all.get(x).getSeed());
+        }
+        assertEquals(jwt + "X", all.get(20).getJwt());
+        all.get(0).wipe();
+        assertArrayEquals(new char[seed.length], all.get(0).getSeed());
+
+        UserCreds creds = CredsReader.read(expected.replace("\n", "\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertEquals(jwt, creds.getJwt());
+        assertArrayEquals(seed, creds.getSeed());
+        assertThrows(IllegalArgumentException.class, () -> CredsReader.read(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> CredsReader.read(expected.substring(0, expected.indexOf("-----BEGIN USER")).getBytes(StandardCharsets.US_ASCII)));
+
+        Path file = Files.createTempFile("user", ".creds");
+        try {
+            CredsWriter writer = new CredsWriter();
+            assertThrows(IllegalStateException.class, () -> writer.write(jwt, seed));
+            writer.writeFile(file, jwt, seed);
+            assertEquals(expected, Files.readString(file));
+            creds = CredsReader.read(file);
+            assertEquals(jwt, creds.getJwt());
+            assertArrayEquals(seed, creds.getSeed());
+            writer.close();
+            assertThrows(IllegalStateException.class, () -> writer.writeFile(file, jwt, seed));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private static String accountJwt(NKey account, long iat, String... signingKeys) throws Exception {
+        StringBuilder keys = new StringBuilder();
+        for (String key : signingKeys) {
+            keys.append(keys.length() == 0 ? "" : ",").append("{\"kind\":\"user_scope\",\"key\":\"").append(key).append("\"}");
+        }
+        JsonValue nats = JsonParser.parse("{\"type\":\"account\",\"version\":2,\"signing_keys\":[" + keys + "]}");
+        return new ClaimIssuer().iat(iat).sub(new String(account.getPublicKey())).nats(nats).issueJwt(account);
+    }
+
+    private static void awaitAccount(DirectoryAccountResolver resolver, String accountId, boolean present) throws InterruptedException {
+        for (int x = 0; x < 200 && (resolver.get(accountId) != null) != present; x++) {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void testDirectoryAccountResolver() throws Exception {
+        NKey account2 = PROVIDER.fromSeed("SAADFHQTEKYBOCG4CPEPNAJ5FLRX4G4WTCNTAIOKN3LARLHGVKB4BRUHYY".toCharArray());
+        String account2Id = new String(account2.getPublicKey());
+        String account1Id = new String(SIGNING_KEY.getPublicKey());
+        String signingKey = ACCOUNT_ID;
+        Path dir = Files.createTempDirectory("accounts");
+        Path shard = Files.createDirectory(dir.resolve("AB"));
+        try {
+            Files.writeString(dir.resolve(account1Id + ".jwt"), accountJwt(SIGNING_KEY, 100));
+            Files.writeString(shard.resolve(account2Id + ".jwt"), accountJwt(account2, 100, signingKey));
+            Files.writeString(dir.resolve("broken.jwt"), "not a jwt");
+            Files.writeString(dir.resolve("user.jwt"), issueUserJWT(SIGNING_KEY, ACCOUNT_ID, new String(USER_KEY.getPublicKey())));
+
+            try (DirectoryAccountResolver resolver = new DirectoryAccountResolver(dir)) {
+                assertEquals(2, resolver.getAccounts().size());
+                ResolvedAccount resolved = resolver.get(account1Id);
+                assertEquals(account1Id, resolved.getAccountId());
+                assertTrue(resolved.getSigningKeys().isEmpty());
+                assertTrue(resolved.isSigningKey(account1Id));
+                assertEquals(Collections.singletonList(signingKey), resolver.get(account2Id).getSigningKeys());
+                assertTrue(resolver.get(account2Id).isSigningKey(signingKey));
+                assertFalse(resolver.get(account2Id).isSigningKey(account1Id));
+                assertThrows(UnsupportedOperationException.class, () -> resolver.get(account2Id).getSigningKeys().clear());
+                assertThrows(UnsupportedOperationException.class, () -> resolver.get(account2Id).getAccountClaim().getSigningKeys().clear());
+                resolver.get(account2Id).getAccountClaim().signingKeys(Collections.singletonList(account1Id));
+                assertEquals(Collections.singletonList(signingKey), resolver.get(account2Id).getSigningKeys());
+                assertTrue(resolver.get(account2Id).isSigningKey(signingKey));
+                assertFalse(resolver.get(account2Id).isSigningKey(account1Id));
+                assertNull(resolver.get("AUNKNOWN"));
+                assertThrows(UnsupportedOperationException.class, () -> resolver.getAccounts().clear());
+
+                // a newer jwt for the same account in another file wins
+                Files.writeString(shard.resolve("copy.jwt"), accountJwt(account2, 200));
+                resolver.reload();
+                assertEquals(200, resolver.get(account2Id).getClaim().iat);
+                Files.delete(shard.resolve("copy.jwt"));
+                resolver.reload();
+                assertEquals(100, resolver.get(account2Id).getClaim().iat);
+
+                assertFalse(resolver.isWatching());
+                resolver.watch();
+                assertTrue(resolver.isWatching());
+                Map<String, ResolvedAccount> before = resolver.getAccounts();
+
+                Files.delete(dir.resolve(account1Id + ".jwt"));
+                awaitAccount(resolver, account1Id, false);
+                assertNull(resolver.get(account1Id));
+                assertNotNull(before.get(account1Id));
+
+                // a partial write keeps the previous jwt
+                Files.writeString(shard.resolve(account2Id + ".jwt"), "eyJ0");
+                Files.writeString(dir.resolve(account1Id + ".jwt"), accountJwt(SIGNING_KEY, 300, account2Id));
+                awaitAccount(resolver, account1Id, true);
+                assertEquals(Collections.singletonList(account2Id), resolver.get(account1Id).getSigningKeys());
+                assertEquals(100, resolver.get(account2Id).getClaim().iat);
+
+                Path newShard = Files.createDirectory(dir.resolve("CD"));
+                Files.writeString(newShard.resolve("late.jwt"), accountJwt(account2, 400));
+                for (int x = 0; x < 200 && resolver.get(account2Id).getClaim().iat != 400; x++) {
+                    Thread.sleep(50);
+                }
+                assertEquals(400, resolver.get(account2Id).getClaim().iat);
+
+                resolver.close();
+                assertFalse(resolver.isWatching());
+                assertEquals(2, resolver.getAccounts().size());
+            }
+        }
+        finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (Path p : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                    Files.delete(p);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAccountClaim() throws Exception {
+        StringBuilder json = new StringBuilder("{\"exports\":[");
+        for (int x = 0; x < 1000; x++) {
+            json.append(x == 0 ? "" : ",").append("{\"name\":\"e").append(x).append("\",\"subject\":\"svc.").append(x).append(".*\",\"type\":\"service\"}");
+        }
+        json.append(",{\"name\":\"all\",\"subject\":\"events.>\",\"type\":\"stream\",\"token_req\":true,\"account_token_position\":2}]");
+        json.append(",\"imports\":[{\"name\":\"i\",\"subject\":\"their.>\",\"account\":\"").append(ACCOUNT_ID).append("\",\"local_subject\":\"mine.>\",\"type\":\"stream\"}]");
+        json.append(",\"limits\":{\"subs\":100,\"conn\":5,\"wildcards\":true,\"mem_storage\":-1}");
+        json.append(",\"revocations\":{\"U1\":100,\"*\":50}");
+        json.append(",\"signing_keys\":[\"AKEY1\",{\"kind\":\"user_scope\",\"key\":\"AKEY2\"}]");
+        json.append(",\"description\":\"desc\",\"tags\":[\"t\"],\"type\":\"account\",\"version\":2}");
+
+        String jwt = new ClaimIssuer().sub(ACCOUNT_ID).nats(JsonParser.parse(json.toString())).issueJwt(SIGNING_KEY);
+        Claim claim = new Claim(getClaimBody(jwt));
+        assertEquals(ACCOUNT_CLAIM_TYPE, claim.type);
+        AccountClaim ac = claim.accountClaim;
+        assertNotNull(ac);
+        assertNull(claim.userClaim);
+        assertEquals(100, ac.limits.subs);
+        assertEquals(5, ac.limits.conn);
+        assertEquals(NO_LIMIT, ac.limits.data);
+        assertTrue(ac.limits.wildcards);
+        assertEquals(-1, ac.limits.memStorage);
+        assertEquals("desc", ac.description);
+        assertEquals(Collections.singletonList("t"), ac.tags);
+
+        // unread sections are written back as they came
+        assertEquals(ac, new AccountClaim(JsonParser.parse(ac.toJson())));
+
+        assertEquals(1001, ac.getExports().size());
+        assertSame(ac.getExports(), ac.getExports());
+        assertEquals("e7", ac.findExports("svc.7.x").get(0).name);
+        assertTrue(ac.findExports("svc.7").isEmpty());
+        assertTrue(ac.findExports("svc.7.x.y").isEmpty());
+        Export all = ac.findExports("events.a.b").get(0);
+        assertEquals("all", all.name);
+        assertTrue(all.tokenReq);
+        assertEquals(2, all.accountTokenPosition);
+        assertEquals(Export.STREAM, all.type);
+        assertTrue(ac.findExports("events").isEmpty());
+
+        Import imp = ac.getImports().get(0);
+        assertEquals(ACCOUNT_ID, imp.account);
+        assertEquals("mine.>", imp.localSubject);
+
+        assertEquals(Long.valueOf(100), ac.getRevocations().get("U1"));
+        assertTrue(ac.isRevoked("U1", 100));
+        assertFalse(ac.isRevoked("U1", 101));
+        assertTrue(ac.isRevoked("U2", 50));
+        assertFalse(ac.isRevoked("U2", 51));
+        RevocationIndex index = new RevocationIndex();
+        index.load(ACCOUNT_ID, Collections.singletonMap(RevocationIndex.ALL_USERS, ac.getRevocations().get(RevocationIndex.ALL_USERS)));
+        assertTrue(index.isRevoked(ACCOUNT_ID, new String(USER_KEY.getPublicKey()), 50));
+
+        assertEquals(Arrays.asList("AKEY1", "AKEY2"), ac.getSigningKeys());
+        assertTrue(ac.isSigningKey("AKEY2"));
+        assertFalse(ac.isSigningKey(ACCOUNT_ID));
+
+        // once read, imports and revocations are written from the model, exports and signing keys as they came
+        AccountClaim copy = new AccountClaim(JsonParser.parse(ac.toJson()));
+        assertEquals(ac, copy);
+        assertEquals(ac.hashCode(), copy.hashCode());
+        assertThrows(UnsupportedOperationException.class, () -> ac.getSigningKeys().add("AKEY3"));
+        assertThrows(UnsupportedOperationException.class, () -> ac.getExports().clear());
+
+        String scoped = "{\"exports\":[{\"name\":\"e\",\"subject\":\"svc.*\",\"type\":\"service\""
+            + ",\"revocations\":{\"" + ACCOUNT_ID + "\":100},\"response_threshold\":1000000000,\"service_latency\":{\"sampling\":50,\"results\":\"lat\"}}]"
+            + ",\"signing_keys\":[{\"kind\":\"user_scope\",\"key\":\"AKEY2\",\"role\":\"r\",\"template\":{\"subs\":1}}]"
+            + ",\"type\":\"account\",\"version\":2}";
+        AccountClaim scopedClaim = new AccountClaim(JsonParser.parse(scoped));
+        String before = scopedClaim.toJson();
+        assertTrue(scopedClaim.isSigningKey("AKEY2"));
+        assertEquals(1, scopedClaim.findExports("svc.a").size());
+        assertEquals(before, scopedClaim.toJson());
+        JsonValue reissued = JsonParser.parse(new Claim(getClaimBody(new ClaimIssuer().sub(ACCOUNT_ID).nats(scopedClaim).issueJwt(SIGNING_KEY))).nats.toJson());
+        JsonValue scope = reissued.map.get("signing_keys").array.get(0);
+        assertEquals("user_scope", scope.map.get("kind").string);
+        assertEquals("r", scope.map.get("role").string);
+        JsonValue export = reissued.map.get("exports").array.get(0);
+        assertEquals(Long.valueOf(100), export.map.get("revocations").map.get(ACCOUNT_ID).l);
+        assertNotNull(export.map.get("response_threshold"));
+        assertNotNull(export.map.get("service_latency"));
+
+        // a setter replaces the kept json
+        scopedClaim.signingKeys(Collections.singletonList("AKEY3"));
+        assertEquals(Collections.singletonList("AKEY3"), new AccountClaim(JsonParser.parse(scopedClaim.toJson())).getSigningKeys());
+        assertFalse(scopedClaim.isSigningKey("AKEY2"));
+
+        AccountClaim built = new AccountClaim()
+            .limits(new AccountLimits().subs(10).conn(2))
+            .exports(Collections.singletonList(new Export().name("x").subject("x.>").type(Export.SERVICE)))
+            .imports(Collections.singletonList(new Import().name("y").subject("y").account(ACCOUNT_ID).type(Export.SERVICE).share(true)))
+            .revocations(Collections.singletonMap("U1", 5L))
+            .signingKeys(Collections.singletonList("AKEY"))
+            .description("d").infoUrl("https://example.com");
+        Claim builtClaim = new Claim(getClaimBody(new ClaimIssuer().sub(ACCOUNT_ID).nats(built).issueJwt(SIGNING_KEY)));
+        assertEquals(built, builtClaim.accountClaim);
+        assertEquals(1, builtClaim.accountClaim.findExports("x.a").size());
+        assertEquals(0, new AccountClaim().getExports().size());
+        assertThrows(IllegalArgumentException.class, () -> new AccountClaim(JsonParser.parse("{\"type\":\"user\",\"version\":2}")));
+    }
+
+    @Test
+    public void testOperatorAndActivationClaims() throws Exception {
+        OperatorClaim oc = new OperatorClaim()
+            .signingKeys(Arrays.asList("OKEY1", "OKEY2"))
+            .accountServerUrl("https://example.com/jwt/v1")
+            .operatorServiceUrls(Collections.singletonList("nats://localhost:4222"))
+            .systemAccount(ACCOUNT_ID)
+            .strictSigningKeyUsage(true);
+        Claim operator = new Claim(getClaimBody(new ClaimIssuer().sub("OPERATOR").nats(oc).issueJwt(SIGNING_KEY)));
+        assertEquals(JwtUtils.OPERATOR_CLAIM_TYPE, operator.type);
+        assertEquals(oc, operator.operatorClaim);
+        assertEquals(oc.hashCode(), operator.operatorClaim.hashCode());
+        assertNull(operator.activationClaim);
+
+        ActivationClaim ac = new ActivationClaim().importSubject("svc.private").importType(Export.SERVICE);
+        ClaimIssuer template = new ClaimIssuer().nats(ac).iat(1633043378L).expiresIn(Duration.ofHours(1));
+        ActivationIssuer issuer = new ActivationIssuer(template, SIGNING_KEY);
+        assertEquals(new String(SIGNING_KEY.getPublicKey()), issuer.getIss());
+
+        List<String> accounts = new ArrayList<>();
+        for (int x = 0; x < 200; x++) {
+            accounts.add("A" + x);
+        }
+        Map<String, String> tokens = issuer.issue(accounts);
+        assertEquals(accounts, new ArrayList<>(tokens.keySet()));
+        Set<String> jtis = new HashSet<>();
+        for (Map.Entry<String, String> e : tokens.entrySet()) {
+            assertTrue(verifySignature(e.getValue(), SIGNING_KEY));
+            Claim claim = new Claim(getClaimBody(e.getValue()));
+            assertEquals(e.getKey(), claim.sub);
+            assertEquals(1633043378L, claim.iat);
+            assertEquals(1633043378L + 3600, claim.exp);
+            assertEquals(ac, claim.activationClaim);
+            jtis.add(claim.jti);
+        }
+        assertEquals(accounts.size(), jtis.size());
+
+        // the same token as the generic path
+        template.iss(issuer.getIss()).sub("A7");
+        assertEquals(template.issueJwt(SIGNING_KEY), tokens.get("A7"));
+        assertEquals(tokens.get("A7"), issuer.issue("A7"));
+
+        // the template and the returned claim are copies
+        assertEquals(ac, issuer.getActivation());
+        ac.importSubject("svc.changed");
+        issuer.getActivation().importSubject("svc.changed");
+        assertEquals("svc.private", issuer.getActivation().importSubject);
+        assertEquals("svc.private", new Claim(getClaimBody(issuer.issue("A1"))).activationClaim.importSubject);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Map<String, String> pooled = issuer.issue(accounts, pool);
+            assertEquals(accounts, new ArrayList<>(pooled.keySet()));
+            for (Map.Entry<String, String> e : pooled.entrySet()) {
+                assertTrue(verifySignature(e.getValue(), SIGNING_KEY));
+                assertEquals(e.getKey(), new Claim(getClaimBody(e.getValue())).sub);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new ActivationIssuer(new ClaimIssuer().nats(oc), SIGNING_KEY));
+    }
+
+    @Test
+    public void testWriteJson() throws Exception {
+        UserClaim uc = new UserClaim(ACCOUNT_ID)
+            .pub(getTestFullPub())
+            .sub(getTestFullSub())
+            .resp(getTestFullResponse())
+            .timeRanges(getTestFullTimeRanges())
+            .src("192.0.2.0/24")
+            .locale("Europe/Z\u00fcrich")
+            .tags("tag1", "tag\\two", "quote\"d", "snow \u2603", "line\nbreak", "bell\u0007")
+            .bearerToken(true)
+            .allowedConnectionTypes("STANDARD", "WEBSOCKET");
+        assertWritesJson(uc);
+        assertWritesJson(new UserClaim());
+
+        AuthorizationRequest ar = new AuthorizationRequest()
+            .serverId(new ServerId(MapBuilder.instance().put("name", "server").put("host", "h\u00f6st").put("version", "2.10.0").jv))
+            .userNkey(new String(USER_KEY.getPublicKey()))
+            .clientInformation(new ClientInfo(MapBuilder.instance().put("id", 7).put("name", "\uD83D\uDE00").put("kind", "Client").jv))
+            .connectOptions(new ConnectOpts(MapBuilder.instance().put("lang", "java").put("protocol", 1).jv))
+            .clientTls(new ClientTls(MapBuilder.instance().put("version", "1.3").jv))
+            .requestNonce("nonce");
+        assertWritesJson(ar);
+        assertWritesJson(new AuthorizationResponse().jwt("a.b.c").error("no \"way\"").issuerAccount(ACCOUNT_ID));
+        assertWritesJson(new ActivationClaim().importSubject("svc.>").importType(Export.SERVICE));
+
+        // the size is exact unless there are durations or lone surrogates
+        Permission p = new Permission().allow("a\u00e4\u2603\uD83D\uDE00", "tab\there").deny("bell\u0007", "x/y");
+        assertEquals(p.toJson().getBytes(StandardCharsets.UTF_8).length, p.maxJsonSize());
+        assertEquals(ar.toJson().getBytes(StandardCharsets.UTF_8).length, ar.maxJsonSize());
+        assertEquals(new UserClaim().toJson().length(), new UserClaim().maxJsonSize());
+
+        // values that are not JsonWritable are written from their json
+        ByteSink sink = new ByteSink(16);
+        sink.beginJson();
+        sink.addField("account", new AccountClaim().description("d"));
+        sink.addField("skipped", -2L);
+        sink.addFieldWhenGteMinusOne("nl", -1L);
+        sink.endJson();
+        assertEquals("{\"account\":" + new AccountClaim().description("d").toJson() + ",\"nl\":-1}", sink.toString());
+        sink.reset();
+        assertEquals(0, sink.length());
+        assertEquals("-9223372036854775808,0,123", sink.appendLong(Long.MIN_VALUE).append((byte) ',')
+            .appendLong(0).append((byte) ',').appendLong(123).toString());
+
+        // the jti of a non ascii claim is the hash of its json as US_ASCII, see ClaimIssuer
+        ClaimIssuer template = new ClaimIssuer().iss(new String(SIGNING_KEY.getPublicKey())).iat(1633043378L)
+            .name("n\u00e4me \uD83D\uDE00").nats(new ActivationClaim().importSubject("\u00e4.>"));
+        String assembled = new ActivationIssuer(template, SIGNING_KEY).issue("A");
+        assertEquals(template.sub("A").issueJwt(SIGNING_KEY), assembled);
+    }
+
+    private static void assertWritesJson(JsonWritable w) {
+        ByteSink sink = new ByteSink();
+        w.writeJson(sink);
+        byte[] expected = w.toJson().getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, sink.toByteArray());
+        assertTrue(w.maxJsonSize() >= expected.length);
+        assertEquals(w.maxJsonSize(), w.maxJsonSize());
+    }
+
+    @Test
+    public void testBase64Url() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        Random random = new Random(42);
+        for (int len = 0; len < 100; len++) {
+            byte[] src = new byte[len + 5];
+            random.nextBytes(src);
+            byte[] expected = encoder.encode(Arrays.copyOfRange(src, 3, 3 + len));
+            assertEquals(expected.length, Base64Url.encodedLength(len));
+
+            byte[] dst = new byte[expected.length + 7];
+            assertEquals(2 + expected.length, Base64Url.encode(src, 3, len, dst, 2));
+            assertArrayEquals(expected, Arrays.copyOfRange(dst, 2, 2 + expected.length));
+            assertArrayEquals(encoder.encode(src), Base64Url.encode(src));
+        }
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> Base64Url.encode(new byte[12], 0, 12, new byte[15], 0));
+    }
+
+    @Test
+    public void testClaimCodec() throws Exception {
+        UserClaim uc = new UserClaim(ACCOUNT_ID)
+            .pub(new Permission().allow("orders.>", "events.*").deny("orders.secret"))
+            .sub(new Permission().allow("orders.>", "_INBOX.>"))
+            .resp(getTestFullResponse())
+            .timeRanges(getTestFullTimeRanges())
+            .src("192.0.2.0/24")
+            .locale("Europe/Z\u00fcrich")
+            .tags("t\u00e4g", "orders.>")
+            .subs(10).data(-1).payload(Long.MAX_VALUE)
+            .bearerToken(true)
+            .allowedConnectionTypes("STANDARD");
+        Claim user = new Claim(getClaimBody(new ClaimIssuer().aud("APP").iat(1633043378L).expiresIn(Duration.ofMinutes(5))
+            .name("n\u00e4me").sub(new String(USER_KEY.getPublicKey())).nats(uc).issueJwt(SIGNING_KEY)));
+        byte[] encoded = ClaimCodec.encode(user);
+        assertEquals(ClaimCodec.VERSION, encoded[0]);
+        assertTrue(encoded.length < user.toJson().getBytes(StandardCharsets.UTF_8).length);
+        Claim decoded = ClaimCodec.decode(encoded);
+        assertClaimHeader(user, decoded);
+        assertEquals(user.userClaim, decoded.userClaim);
+        assertEquals(JwtUtils.USER_CLAIM_TYPE, decoded.type);
+        assertEquals(uc.toJson(), decoded.nats.toJson());
+
+        // the nats json fields of a parsed claim are in json order, so compare through the model
+        Map<String, JsonValue> tlsMap = new HashMap<>();
+        tlsMap.put("cipher", new JsonValue("TLS_AES_128_GCM_SHA256"));
+        tlsMap.put("version", new JsonValue("1.3"));
+        tlsMap.put("certs", new JsonValue(Collections.singletonList(new JsonValue("cert"))));
+        tlsMap.put("verified_chains", new JsonValue(Collections.singletonList(
+            new JsonValue(Arrays.asList(new JsonValue("cert"), new JsonValue("ca"))))));
+        AuthorizationRequest ar = new AuthorizationRequest()
+            .serverId(new ServerId(MapBuilder.instance().put("name", "server").put("host", "host").put("version", "2.10.0").jv))
+            .userNkey(new String(USER_KEY.getPublicKey()))
+            .clientInformation(new ClientInfo(MapBuilder.instance().put("id", 7).put("user", "u").put("kind", "Client").put("nonce", "n1").jv))
+            .connectOptions(new ConnectOpts(MapBuilder.instance().put("lang", "java").put("pass", "secret").put("protocol", 1).jv))
+            .clientTls(new ClientTls(new JsonValue(tlsMap)))
+            .requestNonce("nonce");
+        Claim request = new Claim(getClaimBody(new ClaimIssuer().iat(1633043378L).sub("server").nats(ar).issueJwt(SIGNING_KEY)));
+        Interner interner = new Interner(64);
+        Claim r1 = ClaimCodec.decode(ClaimCodec.encode(request), 0, ClaimCodec.encode(request).length, interner);
+        Claim r2 = ClaimCodec.decode(ClaimCodec.encode(request), 0, ClaimCodec.encode(request).length, interner);
+        assertClaimHeader(request, r1);
+        assertEquals(request.authorizationRequest, r1.authorizationRequest);
+        assertEquals(request.authorizationRequest.clientTls.verifiedChains, r1.authorizationRequest.clientTls.verifiedChains);
+        assertSame(r1.authorizationRequest.serverId, r2.authorizationRequest.serverId);
+        assertSame(r1.authorizationRequest.clientInfo.user, r2.authorizationRequest.clientInfo.user);
+        assertNotSame(r1.authorizationRequest.connectOpts.pass, r2.authorizationRequest.connectOpts.pass);
+
+        // an encoded claim can be anywhere in a larger buffer
+        ByteSink sink = new ByteSink();
+        sink.append((byte) 9);
+        ClaimCodec.encode(user, sink);
+        int userEnd = sink.length();
+        ClaimCodec.encode(request, sink);
+        byte[] all = sink.toByteArray();
+        assertEquals(user.userClaim, ClaimCodec.decode(all, 1, userEnd - 1, Interner.NONE).userClaim);
+        assertEquals(request.authorizationRequest, ClaimCodec.decode(all, userEnd, all.length - userEnd, Interner.NONE).authorizationRequest);
+
+        Claim response = new Claim(getClaimBody(new ClaimIssuer().sub("U").nats(new AuthorizationResponse().jwt("a.b.c").issuerAccount(ACCOUNT_ID)).issueJwt(SIGNING_KEY)));
+        assertEquals(response.authorizationResponse, ClaimCodec.decode(ClaimCodec.encode(response)).authorizationResponse);
+        Claim activation = new Claim(getClaimBody(new ClaimIssuer().sub("A").nats(new ActivationClaim().importSubject("svc").importType(Export.SERVICE)).issueJwt(SIGNING_KEY)));
+        assertEquals(activation.activationClaim, ClaimCodec.decode(ClaimCodec.encode(activation)).activationClaim);
+        Claim operator = new Claim(getClaimBody(new ClaimIssuer().sub("O").nats(new OperatorClaim().signingKeys("K1").strictSigningKeyUsage(true)).issueJwt(SIGNING_KEY)));
+        assertEquals(operator.operatorClaim, ClaimCodec.decode(ClaimCodec.encode(operator)).operatorClaim);
+
+        // other claims are kept as their json
+        AccountClaim account = new AccountClaim().description("d").signingKeys(Collections.singletonList("AKEY"));
+        Claim accountClaim = new Claim(getClaimBody(new ClaimIssuer().sub(ACCOUNT_ID).nats(account).issueJwt(SIGNING_KEY)));
+        Claim accountDecoded = ClaimCodec.decode(ClaimCodec.encode(accountClaim));
+        assertEquals(accountClaim.accountClaim, accountDecoded.accountClaim);
+        assertEquals(ACCOUNT_CLAIM_TYPE, accountDecoded.type);
+        String scopedJson = "{\"signing_keys\":[{\"kind\":\"user_scope\",\"key\":\"AKEY2\",\"template\":{\"subs\":1}}]"
+            + ",\"default_permissions\":{\"pub\":{\"deny\":[\">\"]}},\"mappings\":{\"a\":[{\"subject\":\"b\"}]}"
+            + ",\"authorization\":{\"auth_users\":[\"U1\"]},\"type\":\"account\",\"version\":2}";
+        Claim scopedAccount = new Claim(getClaimBody(new ClaimIssuer().sub(ACCOUNT_ID).nats(JsonParser.parse(scopedJson)).issueJwt(SIGNING_KEY)));
+        scopedAccount.accountClaim.isSigningKey("AKEY2");
+        Claim scopedDecoded = ClaimCodec.decode(ClaimCodec.encode(scopedAccount));
+        assertEquals(scopedAccount.accountClaim, scopedDecoded.accountClaim);
+        assertEquals(scopedAccount.accountClaim.toJson(), scopedDecoded.accountClaim.toJson());
+        for (String field : new String[]{"\"user_scope\"", "\"default_permissions\"", "\"mappings\"", "\"authorization\""}) {
+            assertTrue(scopedDecoded.accountClaim.toJson().contains(field));
+        }
+
+        // a claim without nats
+        Claim bare = new Claim("{\"sub\":\"x\"}");
+        Claim bareDecoded = ClaimCodec.decode(ClaimCodec.encode(bare));
+        assertClaimHeader(bare, bareDecoded);
+        assertNull(bareDecoded.nats);
+        assertNull(bareDecoded.type);
+        assertEquals(bare.toJson(), ClaimSnapshot.of(bare).toJson());
+
+        byte[] bad = encoded.clone();
+        bad[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> ClaimCodec.decode(bad));
+        assertThrows(IllegalArgumentException.class, () -> ClaimCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> ClaimCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+    }
+
+    private static void assertClaimHeader(Claim expected, Claim actual) {
+        assertEquals(expected.aud, actual.aud);
+        assertEquals(expected.jti, actual.jti);
+        assertEquals(expected.iat, actual.iat);
+        assertEquals(expected.iss, actual.iss);
+        assertEquals(expected.exp, actual.exp);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.nbf, actual.nbf);
+        assertEquals(expected.sub, actual.sub);
+        assertEquals(expected.type, actual.type);
+    }
+
+    @Test
+    public void testClaimFingerprint() throws Exception {
+        UserClaim uc1 = new UserClaim(ACCOUNT_ID).pub(getTestFullPub()).sub(getTestFullSub()).resp(getTestFullResponse());
+        UserClaim uc2 = new UserClaim(ACCOUNT_ID).pub(getTestFullPub()).sub(getTestFullSub()).resp(getTestFullResponse());
+        ClaimFingerprint f1 = ClaimFingerprint.of(uc1);
+        assertEquals(f1, ClaimFingerprint.of(uc2));
+        assertEquals(f1.hashCode(), ClaimFingerprint.of(uc2).hashCode());
+        assertEquals(32, f1.toString().length());
+
+        // any difference is a different fingerprint, including ones json does not show
+        assertNotEquals(f1, ClaimFingerprint.of(uc2.subs(5)));
+        assertNotEquals(ClaimFingerprint.of(new UserClaim().tags(new ArrayList<>())), ClaimFingerprint.of(new UserClaim()));
+        assertEquals(new UserClaim().tags(new ArrayList<>()).toJson(), new UserClaim().toJson());
+        assertNotEquals(ClaimFingerprint.of(new Permission().allow("a")), ClaimFingerprint.of(new Permission().deny("a")));
+        assertNotEquals(ClaimFingerprint.of(new Permission()), ClaimFingerprint.of(new ActivationClaim().tags((List<String>) null)));
+        assertEquals(ClaimFingerprint.of(getTestFullPub()), ClaimFingerprint.of(getTestFullPub()));
+
+        AuthorizationRequest ar = new AuthorizationRequest()
+            .serverId(new ServerId(MapBuilder.instance().put("name", "server").jv))
+            .userNkey(new String(USER_KEY.getPublicKey()));
+        assertEquals(ClaimFingerprint.of(ar), ClaimFingerprint.of(new AuthorizationRequest(ar.toJsonValue())));
+        assertNotEquals(ClaimFingerprint.of(ar), ClaimFingerprint.of(new AuthorizationRequest(ar.toJsonValue()).requestNonce("n")));
+
+        // a claim computes it once, parsed and issued claims with the same content match
+        String jwt = new ClaimIssuer().iat(1633043378L).sub("U").nats(uc1).issueJwt(SIGNING_KEY);
+        Claim parsed = new Claim(getClaimBody(jwt));
+        assertSame(parsed.fingerprint(), parsed.fingerprint());
+        assertEquals(parsed.fingerprint(), new Claim(getClaimBody(jwt)).fingerprint());
+        assertEquals(parsed.fingerprint(), ClaimCodec.decode(ClaimCodec.encode(parsed)).fingerprint());
+        assertNotEquals(parsed.fingerprint(), ClaimFingerprint.of(parsed.userClaim));
+        assertNotEquals(parsed.fingerprint(), new Claim(getClaimBody(new ClaimIssuer().iat(1633043379L).sub("U").nats(uc1).issueJwt(SIGNING_KEY))).fingerprint());
+
+        // an account claim does not depend on which of its sections were read
+        String accountJson = "{\"exports\":[{\"name\":\"e\",\"subject\":\"svc.*\",\"type\":\"service\"}]"
+            + ",\"imports\":[{\"name\":\"i\",\"subject\":\"their.>\",\"account\":\"" + ACCOUNT_ID + "\",\"type\":\"stream\"}]"
+            + ",\"revocations\":{\"U2\":100,\"U1\":50}"
+            + ",\"signing_keys\":[\"AKEY1\",{\"kind\":\"user_scope\",\"key\":\"AKEY2\"}]"
+            + ",\"type\":\"account\",\"version\":2}";
+        AccountClaim untouched = new AccountClaim(JsonParser.parse(accountJson));
+        AccountClaim touched = new AccountClaim(JsonParser.parse(accountJson));
+        touched.getImports();
+        touched.getExports();
+        touched.getRevocations();
+        touched.getSigningKeys();
+        assertEquals(untouched, touched);
+        assertEquals(ClaimFingerprint.of(untouched), ClaimFingerprint.of(touched));
+        assertEquals(ClaimFingerprint.of(untouched), ClaimFingerprint.of(new AccountClaim(JsonParser.parse(accountJson))));
+        assertNotEquals(ClaimFingerprint.of(untouched), ClaimFingerprint.of(touched.description("d")));
+
+        // nor on what the model leaves out, scopes and fields it does not read
+        String scoped = "{\"signing_keys\":[{\"kind\":\"user_scope\",\"key\":\"AKEY2\",\"template\":{\"subs\":1}}],\"type\":\"account\",\"version\":2}";
+        AccountClaim scoped1 = new AccountClaim(JsonParser.parse(scoped));
+        AccountClaim scoped2 = new AccountClaim(JsonParser.parse(scoped.replace("\"subs\":1", "\"subs\":2")));
+        scoped2.isSigningKey("AKEY2");
+        assertNotEquals(ClaimFingerprint.of(scoped1), ClaimFingerprint.of(scoped2));
+        String withDefaults = "{\"default_permissions\":{\"pub\":{\"deny\":[\">\"]}},\"mappings\":{\"a\":[{\"subject\":\"b\"}]},\"type\":\"account\",\"version\":2}";
+        AccountClaim defaults = new AccountClaim(JsonParser.parse(withDefaults));
+        assertNotEquals(ClaimFingerprint.of(new AccountClaim(JsonParser.parse("{\"type\":\"account\",\"version\":2}"))), ClaimFingerprint.of(defaults));
+        assertEquals(ClaimFingerprint.of(defaults), ClaimFingerprint.of(new AccountClaim(JsonParser.parse(defaults.toJson()))));
+        assertTrue(defaults.toJson().contains("\"default_permissions\""));
+    }
+
+    @Test
+    public void testClaimSnapshot() throws Exception {
+        UserClaim uc = new UserClaim(ACCOUNT_ID)
+            .pub(getTestFullPub())
+            .sub(getTestFullSub())
+            .resp(getTestFullResponse())
+            .timeRanges(getTestFullTimeRanges())
+            .tags("tag1", "tag2");
+        String json = uc.toJson();
+        ClaimSnapshot<UserClaim> snapshot = uc.freeze();
+        assertEquals(json, snapshot.toJson());
+        assertSame(snapshot.toJson(), snapshot.toJson());
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), snapshot.toJsonBytes());
+        assertEquals(json.length(), snapshot.getJsonLength());
+        assertEquals(uc, snapshot.get());
+        assertEquals(ClaimFingerprint.of(uc), snapshot.fingerprint());
+
+        // later changes to the original or to a copy do not show
+        uc.pub.allow.set(0, "changed");
+        uc.tags("other");
+        assertEquals(json, snapshot.toJson());
+        int hashCode = snapshot.hashCode();
+        UserClaim copy = snapshot.get();
+        assertNotSame(copy, snapshot.get());
+        copy.tags.add("tag3");
+        copy.subs = 5;
+        assertNotEquals(snapshot, copy.freeze());
+        assertEquals(json, snapshot.toJson());
+        assertEquals(hashCode, snapshot.hashCode());
+        assertEquals(json, snapshot.get().toJson());
+        assertEquals(snapshot, snapshot.get().freeze());
+        assertEquals(snapshot.hashCode(), snapshot.get().freeze().hashCode());
+
+        // a snapshot as the nats of a token is the same as the value
+        ClaimIssuer issuer = new ClaimIssuer().iat(1633043378L).sub("U");
+        String expected = issuer.nats(snapshot.get()).issueJwt(SIGNING_KEY);
+        ClaimIssuer frozenIssuer = new ClaimIssuer().iat(1633043378L).sub("U").nats(snapshot);
+        assertEquals(expected, frozenIssuer.issueJwt(SIGNING_KEY));
+        ClaimIssuer responseIssuer = new ClaimIssuer().iat(1633043378L).sub("U").nats(new AuthorizationResponse());
+        assertArrayEquals(CalloutResponder.respond(issuer, SIGNING_KEY, responseIssuer, SIGNING_KEY),
+            CalloutResponder.respond(frozenIssuer, SIGNING_KEY, responseIssuer, SIGNING_KEY));
+        Claim claim = new Claim(getClaimBody(expected));
+        assertEquals(snapshot.get(), claim.userClaim);
+
+        ClaimSnapshot<Permission> permission = getTestFullPub().freeze();
+        assertEquals(getTestFullPub().toJson(), permission.toJson());
+        assertEquals(getTestFullPub(), permission.get());
+        AuthorizationRequest ar = new AuthorizationRequest().userNkey(new String(USER_KEY.getPublicKey()))
+            .serverId(new ServerId(MapBuilder.instance().put("name", "server").jv));
+        assertEquals(ar, ar.freeze().get());
+        assertEquals(ar.toJson(), ar.freeze().toJson());
+        assertEquals(new OperatorClaim().signingKeys("K").freeze(), new OperatorClaim().signingKeys("K").freeze());
+        assertNotEquals(new ActivationClaim().freeze(), new AuthorizationResponse().freeze());
+
+        AccountClaim account = new AccountClaim().description("d").signingKeys(Collections.singletonList("AKEY"));
+        assertThrows(IllegalArgumentException.class, () -> ClaimSnapshot.of(account));
+        assertThrows(IllegalArgumentException.class, () -> ClaimSnapshot.of(getTestFullResponse()));
+        assertThrows(IllegalArgumentException.class, () -> ClaimSnapshot.of(getTestFullTimeRanges().get(0)));
+    }
+
     @Test
     public void testVerifiedClaimsParseIsSuccessful(){
         Map<String, JsonValue> clientTlsMap = new HashMap<>();
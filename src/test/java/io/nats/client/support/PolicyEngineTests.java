@@ -0,0 +1,143 @@
+// Copyright 2023-2024 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.support;
+
+import io.nats.json.JsonValue;
+import io.nats.json.MapBuilder;
+import io.nats.jwt.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static io.nats.jwt.PolicyAttribute.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolicyEngineTests {
+
+    private static AuthorizationRequest request(String host, String kind, String user, String lang, String... tags) {
+        List<JsonValue> tagValues = new ArrayList<>();
+        for (String t : tags) {
+            tagValues.add(new JsonValue(t));
+        }
+        ClientInfo ci = new ClientInfo(MapBuilder.instance()
+            .put("host", host)
+            .put("kind", kind)
+            .put("tags", new JsonValue(tagValues))
+            .jv);
+        ConnectOpts co = new ConnectOpts(MapBuilder.instance().put("user", user).put("lang", lang).jv);
+        return new AuthorizationRequest().clientInformation(ci).connectOptions(co);
+    }
+
+    @Test
+    public void testSelect() {
+        List<PolicyRule<String>> rules = new ArrayList<>();
+        rules.add(new PolicyRule<>("admin").when(CONNECT_USER, "alice").when(CLIENT_HOST, "10.0.0.1"));
+        rules.add(new PolicyRule<>("ops").when(CLIENT_TAG, "ops"));
+        rules.add(new PolicyRule<>("java-leaf").when(CONNECT_LANG, "java").when(CLIENT_KIND, "Leafnode"));
+        rules.add(new PolicyRule<>("alice").when(CONNECT_USER, "alice"));
+        rules.add(new PolicyRule<>("default"));
+        rules.add(new PolicyRule<>("unreachable").when(CONNECT_USER, "bob"));
+
+        UserClaimPolicy<String> policy = UserClaimPolicy.compile(rules);
+        assertEquals("admin", policy.select(request("10.0.0.1", "Client", "alice", "go")));
+        assertEquals("alice", policy.select(request("10.0.0.2", "Client", "alice", "go")));
+        assertEquals("ops", policy.select(request("10.0.0.9", "Client", "alice", "go", "dev", "ops")));
+        assertEquals("java-leaf", policy.select(request("10.0.0.3", "Leafnode", "bob", "java")));
+        assertEquals("default", policy.select(request("10.0.0.3", "Client", "bob", "java")));
+        assertEquals("default", policy.select(new AuthorizationRequest()));
+
+        // mutating the rule after compiling does not change the policy
+        rules.get(4).when(CONNECT_USER, "nobody");
+        assertEquals("default", policy.select(new AuthorizationRequest()));
+
+        assertNull(UserClaimPolicy.compile(Collections.<PolicyRule<String>>emptyList()).select(new AuthorizationRequest()));
+    }
+
+    @Test
+    public void testNodeLimit() {
+        // every user and lang pair is its own path through the graph
+        List<PolicyRule<String>> rules = new ArrayList<>();
+        for (int u = 0; u < 40; u++) {
+            rules.add(new PolicyRule<>("user" + u).when(CONNECT_USER, "user" + u).when(CLIENT_TAG, "t" + u));
+            rules.add(new PolicyRule<>("lang" + u).when(CONNECT_LANG, "lang" + u));
+        }
+        rules.add(new PolicyRule<>("default").when(CLIENT_KIND, "Client"));
+
+        UserClaimPolicy<String> compiled = UserClaimPolicy.compile(rules);
+        UserClaimPolicy<String> linear = UserClaimPolicy.compile(rules, 50);
+        assertTrue(compiled.isCompiled());
+        assertFalse(linear.isCompiled());
+        assertFalse(UserClaimPolicy.compile(rules, 0).isCompiled());
+        assertTrue(UserClaimPolicy.compile(Collections.<PolicyRule<String>>emptyList(), 0).isCompiled());
+        assertThrows(IllegalArgumentException.class, () -> UserClaimPolicy.compile(rules, -1));
+
+        List<AuthorizationRequest> requests = new ArrayList<>();
+        requests.add(new AuthorizationRequest());
+        requests.add(request("h", "Client", "user3", "lang5", "t3"));
+        requests.add(request("h", "Client", "user3", "lang5", "t4"));
+        requests.add(request("h", "Client", "user9", "lang1"));
+        requests.add(request("h", "Leafnode", "nobody", "go", "t7"));
+        requests.add(request("h", "Client", "nobody", "go"));
+        for (AuthorizationRequest r : requests) {
+            assertEquals(compiled.select(r), linear.select(r));
+        }
+        assertEquals("user3", linear.select(requests.get(1)));
+        assertEquals("lang5", linear.select(requests.get(2)));
+        assertEquals("default", linear.select(requests.get(5)));
+        assertNull(linear.select(requests.get(4)));
+    }
+
+    @Test
+    public void testTlsCertFingerprint() throws Exception {
+        byte[] der = "not really a certificate".getBytes(StandardCharsets.UTF_8);
+        String pem = "-----BEGIN CERTIFICATE-----\n" + Base64.getMimeEncoder().encodeToString(der) + "\n-----END CERTIFICATE-----\n";
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(der)) {
+            sb.append(String.format("%02X:", b));
+        }
+        String colons = sb.substring(0, sb.length() - 1);
+        String hex = colons.replace(":", "").toLowerCase();
+
+        Map<String, JsonValue> tlsMap = new HashMap<>();
+        tlsMap.put("certs", new JsonValue(Collections.singletonList(new JsonValue(pem))));
+        ClientTls tls = new ClientTls(new JsonValue(tlsMap));
+        assertEquals(hex, tls.getCertFingerprint());
+        assertNull(new ClientTls(new JsonValue(new HashMap<>())).getCertFingerprint());
+        tlsMap.put("certs", new JsonValue(Collections.singletonList(new JsonValue("not pem"))));
+        assertNull(new ClientTls(new JsonValue(tlsMap)).getCertFingerprint());
+
+        List<PolicyRule<String>> rules = new ArrayList<>();
+        rules.add(new PolicyRule<>("cert").when(TLS_CERT, colons));
+        rules.add(new PolicyRule<>("pem").when(TLS_CERT, pem));
+        assertEquals(hex, rules.get(0).getCondition(TLS_CERT));
+        AuthorizationRequest request = new AuthorizationRequest().clientTls(tls);
+        assertEquals("cert", UserClaimPolicy.compile(rules).select(request));
+        assertEquals("cert", UserClaimPolicy.compile(rules, 0).select(request));
+        assertNull(UserClaimPolicy.compile(rules.subList(1, 2)).select(request));
+    }
+
+    @Test
+    public void testReload() {
+        PolicyEngine<String> engine = new PolicyEngine<>();
+        assertNull(engine.select(new AuthorizationRequest()));
+
+        UserClaimPolicy<String> before = engine.getPolicy();
+        UserClaimPolicy<String> previous = engine.reload(Collections.singletonList(new PolicyRule<>("all")));
+        assertSame(before, previous);
+        assertEquals("all", engine.select(new AuthorizationRequest()));
+        assertNull(before.select(new AuthorizationRequest()));
+    }
+}